@@ -13,6 +13,12 @@ public class Main {
             System.err.println("Error setting Look and Feel: " + e.getMessage());
         }
 
+        // move old stays out of the live data files in the background
+        common.filehandler.BookingArchiver.startBackground();
+
+        // time UI events and record what the EDT was doing when it stalled
+        EdtWatchdog.start();
+
         // main ui
         SwingUtilities.invokeLater(() -> {
             new GuestMenu();
@@ -1,5 +1,6 @@
 package admin.service;
 
+import common.filehandler.BookingArchiver;
 import common.filehandler.TransactionFileHandler;
 import common.model.Booking;
 import common.model.Payment;
@@ -13,6 +14,7 @@ import java.util.*;
 
 /**
  * Lightweight analytics computed from the local txt files.
+ * Archived (past) stays are counted from the archive segment summaries, not re-read.
  */
 public class AdminAnalyticsService {
 
@@ -23,11 +25,18 @@ public class AdminAnalyticsService {
                 sum += p.getAmount();
             }
         }
+        for (BookingArchiver.Summary s : BookingArchiver.readSummaries()) {
+            sum += s.revenue();
+        }
         return sum;
     }
 
     public int getTotalBookings() {
-        return TransactionFileHandler.readBookingsFromFile().size();
+        int total = TransactionFileHandler.readBookingsFromFile().size();
+        for (BookingArchiver.Summary s : BookingArchiver.readSummaries()) {
+            total += s.bookings();
+        }
+        return total;
     }
 
     public int getActiveGuests() {
@@ -52,6 +61,9 @@ public class AdminAnalyticsService {
             if (map.containsKey(s)) map.put(s, map.get(s) + 1);
             else map.put(s, map.getOrDefault(s, 0) + 1);
         }
+        for (BookingArchiver.Summary s : BookingArchiver.readSummaries()) {
+            s.bookingsByStatus().forEach((status, n) -> map.merge(status, n, Integer::sum));
+        }
         return map;
     }
 
@@ -73,6 +85,11 @@ public class AdminAnalyticsService {
                 tmp.put(ym, tmp.get(ym) + p.getAmount());
             }
         }
+        for (BookingArchiver.Summary s : BookingArchiver.readSummaries()) {
+            s.revenueByMonth().forEach((ym, v) -> {
+                if (tmp.containsKey(ym)) tmp.put(ym, tmp.get(ym) + v);
+            });
+        }
 
         Map<String, Double> out = new LinkedHashMap<>();
         for (Map.Entry<YearMonth, Double> e : tmp.entrySet()) {
@@ -1,7 +1,6 @@
 package admin.ui;
 
 import common.filehandler.TransactionFileHandler;
-import common.model.Booking;
 import common.model.Room;
 import guest.ui.UIStyles;
 
@@ -25,8 +24,44 @@ public class AdminAvailabilityPanel extends JPanel {
     private JTable table;
     private AvailabilityTableModel model;
     private JLabel hint;
+    private Month preloaded;
+    private boolean refreshing;
+
+    /** The rooms shown for one month and hotel filter, with booked units per night; {@link #load} may run off the EDT. */
+    record Month(List<Room> allRooms, List<Room> rooms, YearMonth month, String hotelFilter, Map<String, int[]> bookedByRoom) {
+        static Month load(YearMonth month, String hotelFilter) {
+            List<Room> allRooms = TransactionFileHandler.readRoomsFromFile();
+            List<Room> rooms = new ArrayList<>();
+            for (Room r : allRooms) {
+                if (r == null) continue;
+                if (!"All Hotels".equalsIgnoreCase(hotelFilter)) {
+                    if (r.getHotelName() == null || !r.getHotelName().equalsIgnoreCase(hotelFilter)) continue;
+                }
+                rooms.add(r);
+            }
+            // booked units per day, straight from the inventory calendar
+            Map<String, int[]> booked = new HashMap<>();
+            LocalDate monthStart = month.atDay(1);
+            LocalDate monthEndExclusive = month.plusMonths(1).atDay(1);
+            for (Room r : rooms) {
+                booked.put(r.getId(), TransactionFileHandler.confirmedBookingsPerNight(r.getId(), monthStart, monthEndExclusive));
+            }
+            return new Month(allRooms, rooms, month, hotelFilter, booked);
+        }
+
+        /** What the panel opens with: all hotels, this month. */
+        static Month current() {
+            return load(YearMonth.now(), "All Hotels");
+        }
+    }
 
     public AdminAvailabilityPanel() {
+        this(null);
+    }
+
+    /** Opens with {@code preloaded} (from {@link Month#current()}) instead of reading it on the EDT. */
+    AdminAvailabilityPanel(Month preloaded) {
+        this.preloaded = preloaded;
         setLayout(new BorderLayout());
         setBackground(UIStyles.BG);
         initUI();
@@ -92,19 +127,32 @@ public class AdminAvailabilityPanel extends JPanel {
         footer.add(hint, BorderLayout.WEST);
         add(footer, BorderLayout.SOUTH);
 
+        // Default month = current (before the listeners, so it does not trigger a refresh of its own)
+        monthCombo.setSelectedIndex(LocalDate.now().getMonthValue() - 1);
+
         Runnable onChange = this::refresh;
         hotelCombo.addActionListener(e -> onChange.run());
         monthCombo.addActionListener(e -> onChange.run());
         yearCombo.addActionListener(e -> onChange.run());
         refreshBtn.addActionListener(e -> onChange.run());
-
-        // Default month = current
-        monthCombo.setSelectedIndex(LocalDate.now().getMonthValue() - 1);
     }
 
     private void refresh() {
+        // Refilling the hotel combo fires its listener; that must not start another refresh.
+        if (refreshing) return;
+        refreshing = true;
+        try {
+            refreshNow();
+        } finally {
+            refreshing = false;
+        }
+    }
+
+    private void refreshNow() {
         // hotels
-        List<Room> rooms = TransactionFileHandler.readRoomsFromFile();
+        Month data = preloaded;
+        preloaded = null;
+        List<Room> rooms = data != null ? data.allRooms() : TransactionFileHandler.readRoomsFromFile();
         Set<String> hotels = new TreeSet<>();
         for (Room r : rooms) {
             if (r != null && r.getHotelName() != null && !r.getHotelName().isBlank()) hotels.add(r.getHotelName());
@@ -122,7 +170,10 @@ public class AdminAvailabilityPanel extends JPanel {
         String hotelFilter = (String) hotelCombo.getSelectedItem();
         if (hotelFilter == null) hotelFilter = "All Hotels";
 
-        model.setData(rooms, TransactionFileHandler.readBookingsFromFile(), ym, hotelFilter);
+        if (data == null || !data.month().equals(ym) || !data.hotelFilter().equalsIgnoreCase(hotelFilter)) {
+            data = Month.load(ym, hotelFilter);
+        }
+        model.setData(data);
 
         // adjust column widths (Room column already set)
         for (int c = 1; c < table.getColumnCount(); c++) {
@@ -139,54 +190,13 @@ public class AdminAvailabilityPanel extends JPanel {
         private List<Room> rooms = List.of();
         private YearMonth ym = YearMonth.now();
         private String hotelFilter = "All Hotels";
-        private final Map<String, int[]> bookedUnitsByRoom = new HashMap<>();
-
-        void setData(List<Room> allRooms, List<Booking> bookings, YearMonth ym, String hotelFilter) {
-            this.ym = ym;
-            this.hotelFilter = hotelFilter == null ? "All Hotels" : hotelFilter;
-
-            // filter rooms
-            List<Room> filtered = new ArrayList<>();
-            for (Room r : allRooms) {
-                if (r == null) continue;
-                if (!"All Hotels".equalsIgnoreCase(this.hotelFilter)) {
-                    if (r.getHotelName() == null || !r.getHotelName().equalsIgnoreCase(this.hotelFilter)) continue;
-                }
-                filtered.add(r);
-            }
-            this.rooms = filtered;
-
-            // compute booked map
-            bookedUnitsByRoom.clear();
-            int days = ym.lengthOfMonth();
-            for (Room r : this.rooms) {
-                bookedUnitsByRoom.put(r.getId(), new int[days]);
-            }
-
-            LocalDate monthStart = ym.atDay(1);
-            LocalDate monthEndExclusive = ym.plusMonths(1).atDay(1);
-
-            for (Booking b : bookings) {
-                if (b == null) continue;
-                if (b.getStatus() == null || !b.getStatus().equalsIgnoreCase("CONFIRMED")) continue;
-                if (!bookedUnitsByRoom.containsKey(b.getRoomId())) continue;
-
-                // overlap with selected month
-                LocalDate start = b.getCheckInDate();
-                LocalDate end = b.getCheckOutDate();
-                if (start == null || end == null) continue;
-                if (!start.isBefore(monthEndExclusive) || !end.isAfter(monthStart)) continue;
-
-                LocalDate cur = start.isBefore(monthStart) ? monthStart : start;
-                LocalDate last = end.isAfter(monthEndExclusive) ? monthEndExclusive : end;
-                while (cur.isBefore(last)) {
-                    int idx = cur.getDayOfMonth() - 1;
-                    int[] arr = bookedUnitsByRoom.get(b.getRoomId());
-                    if (arr != null && idx >= 0 && idx < arr.length) arr[idx]++;
-                    cur = cur.plusDays(1);
-                }
-            }
+        private Map<String, int[]> bookedUnitsByRoom = new HashMap<>();
 
+        void setData(Month data) {
+            this.ym = data.month();
+            this.hotelFilter = data.hotelFilter();
+            this.rooms = data.rooms();
+            this.bookedUnitsByRoom = data.bookedByRoom();
             fireTableStructureChanged();
         }
 
@@ -16,7 +16,10 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.format.DateTimeFormatter;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Admin panel to view and manage bookings.
@@ -26,11 +29,18 @@ public class AdminBookingsPanel extends JPanel {
     private DefaultTableModel model;
     private JLabel info;
 
+    private static final String[] COLUMNS = {"Booking ID", "Guest", "Room", "Hotel", "Check-in", "Check-out", "Guests", "Total", "Status"};
+
     public AdminBookingsPanel() {
+        this(loadRows());
+    }
+
+    /** Opens with rows from {@link #loadRows()}, which may have been read off the EDT. */
+    AdminBookingsPanel(Object[][] rows) {
         setLayout(new BorderLayout());
         setBackground(UIStyles.BG);
         initUI();
-        refresh();
+        showRows(rows);
     }
 
     private void initUI() {
@@ -67,8 +77,7 @@ public class AdminBookingsPanel extends JPanel {
         header.add(actions, BorderLayout.EAST);
         add(header, BorderLayout.NORTH);
 
-        String[] cols = {"Booking ID", "Guest", "Room", "Hotel", "Check-in", "Check-out", "Guests", "Total", "Status"};
-        model = new DefaultTableModel(cols, 0) {
+        model = new DefaultTableModel(COLUMNS, 0) {
             @Override public boolean isCellEditable(int row, int col) { return false; }
         };
         table = new JTable(model);
@@ -108,9 +117,7 @@ public class AdminBookingsPanel extends JPanel {
             return null;
         }
 
-        Booking b = TransactionFileHandler.readBookingsFromFile().stream()
-                .filter(x -> bookingId.equalsIgnoreCase(x.getBookingId()))
-                .findFirst().orElse(null);
+        Booking b = TransactionFileHandler.findBookingById(bookingId);
         if (b == null) {
             JOptionPane.showMessageDialog(this, "Booking not found.", "Error", JOptionPane.ERROR_MESSAGE);
             return null;
@@ -119,10 +126,7 @@ public class AdminBookingsPanel extends JPanel {
     }
 
     private Room getRoomFor(Booking b) {
-        Room r = TransactionFileHandler.readRoomsFromFile().stream()
-                .filter(x -> x.getId().equalsIgnoreCase(b.getRoomId()))
-                .findFirst().orElse(null);
-        return r;
+        return TransactionFileHandler.findRoomById(b.getRoomId());
     }
 
     private void exportReceiptPdf() {
@@ -284,27 +288,41 @@ public class AdminBookingsPanel extends JPanel {
     }
 
     private void refresh() {
-        model.setRowCount(0);
+        showRows(loadRows());
+    }
+
+    /** Table rows for all bookings; touches no Swing state, so it can run off the EDT. */
+    static Object[][] loadRows() {
         List<Booking> bookings = TransactionFileHandler.readBookingsFromFile();
-        List<Room> rooms = TransactionFileHandler.readRoomsFromFile();
+        Map<String, String> hotelByRoom = new HashMap<>();
+        for (Room r : TransactionFileHandler.readRoomsFromFile()) {
+            hotelByRoom.putIfAbsent(r.getId().toUpperCase(Locale.ROOT), r.getHotelName());
+        }
         DateTimeFormatter df = DateTimeFormatter.ISO_LOCAL_DATE;
 
-        for (Booking b : bookings) {
-            Room r = rooms.stream().filter(x -> x.getId().equalsIgnoreCase(b.getRoomId())).findFirst().orElse(null);
-            String hotel = r != null ? r.getHotelName() : "(Unknown)";
-            model.addRow(new Object[]{
+        Object[][] rows = new Object[bookings.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            Booking b = bookings.get(i);
+            String hotel = b.getRoomId() == null ? null : hotelByRoom.get(b.getRoomId().toUpperCase(Locale.ROOT));
+            rows[i] = new Object[]{
                     b.getBookingId(),
                     b.getGuestName(),
                     b.getRoomId(),
-                    hotel,
+                    hotel != null ? hotel : "(Unknown)",
                     b.getCheckInDate().format(df),
                     b.getCheckOutDate().format(df),
                     b.getNumberOfGuests(),
                     common.util.CurrencyUtil.format(b.getTotalPrice()),
                     b.getStatus()
-            });
+            };
         }
-        info.setText("Bookings: " + bookings.size());
+        return rows;
+    }
+
+    private void showRows(Object[][] rows) {
+        // One model event for the whole table rather than one per row.
+        model.setDataVector(rows, COLUMNS);
+        info.setText("Bookings: " + rows.length);
     }
 
     private void cancelSelected() {
@@ -323,14 +341,11 @@ public class AdminBookingsPanel extends JPanel {
         if (ok != JOptionPane.YES_OPTION) return;
 
         // cancel booking (does not toggle room availability; conflicts are date-based)
-        List<Booking> bookings = TransactionFileHandler.readBookingsFromFile();
-        Booking target = bookings.stream().filter(b -> bookingId.equalsIgnoreCase(b.getBookingId())).findFirst().orElse(null);
-        if (target == null) {
-            JOptionPane.showMessageDialog(this, "Booking not found.", "Error", JOptionPane.ERROR_MESSAGE);
+        GuestBookingService svc = new GuestBookingService();
+        if (!svc.cancelBooking(bookingId)) {
+            JOptionPane.showMessageDialog(this, svc.getLastError(), "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        target.setStatus("CANCELLED");
-        TransactionFileHandler.updateBooking(target);
         refresh();
     }
 }
@@ -13,13 +13,28 @@ import java.nio.file.Path;
  * Dashboard content panel with stat cards and chart placeholders.
  */
 public class AdminDashboardPanel extends JPanel {
+
+    /** Figures shown on the dashboard; computed with {@link #load()}, which may run off the EDT. */
+    public record Stats(double revenue, int bookings, int guests, int hotels,
+                        Map<String, Double> revenueByMonth, Map<String, Integer> bookingsByStatus,
+                        Map<String, Integer> occupancyByHotel) {
+        public static Stats load() {
+            AdminAnalyticsService analytics = new AdminAnalyticsService();
+            return new Stats(analytics.getTotalRevenue(), analytics.getTotalBookings(), analytics.getActiveGuests(),
+                    analytics.getHotelsCount(), analytics.getRevenueByMonth(6), analytics.getBookingsByStatus(),
+                    analytics.getOccupancyByHotel());
+        }
+    }
+
     public AdminDashboardPanel() {
+        this(Stats.load());
+    }
+
+    public AdminDashboardPanel(Stats stats) {
         setLayout(new BorderLayout(16,16));
         setBackground(new Color(245,245,245));
         setBorder(BorderFactory.createEmptyBorder(16,16,16,16));
 
-        AdminAnalyticsService analytics = new AdminAnalyticsService();
-
         // Header
         JPanel header = new JPanel();
         header.setOpaque(false);
@@ -40,10 +55,10 @@ public class AdminDashboardPanel extends JPanel {
         cards.setOpaque(false);
         cards.setLayout(new GridLayout(1,4,12,12));
 
-        double revenue = analytics.getTotalRevenue();
-        int bookings = analytics.getTotalBookings();
-        int guests = analytics.getActiveGuests();
-        int hotels = analytics.getHotelsCount();
+        double revenue = stats.revenue();
+        int bookings = stats.bookings();
+        int guests = stats.guests();
+        int hotels = stats.hotels();
 
         cards.add(new AdminStatsCard(UIManager.getIcon("OptionPane.informationIcon"), "Total Revenue", common.util.CurrencyUtil.format(revenue), "Live"));
         cards.add(new AdminStatsCard(UIManager.getIcon("FileView.directoryIcon"), "Total Bookings", String.valueOf(bookings), "Live"));
@@ -56,15 +71,15 @@ public class AdminDashboardPanel extends JPanel {
         JPanel charts = new JPanel(new GridLayout(2,2,12,12));
         charts.setOpaque(false);
 
-        Map<String, Double> revByMonth = analytics.getRevenueByMonth(6);
+        Map<String, Double> revByMonth = stats.revenueByMonth();
         JPanel trend = new BarChartPanel("Revenue (Last 6 Months)", revByMonth, "");
 
-        Map<String, Integer> statusCounts = analytics.getBookingsByStatus();
+        Map<String, Integer> statusCounts = stats.bookingsByStatus();
         Map<String, Double> statusD = new LinkedHashMap<>();
         for (Map.Entry<String, Integer> e : statusCounts.entrySet()) statusD.put(e.getKey(), e.getValue().doubleValue());
         JPanel occupancy = new BarChartPanel("Bookings by Status", statusD, "");
 
-        Map<String, Integer> occByHotel = analytics.getOccupancyByHotel();
+        Map<String, Integer> occByHotel = stats.occupancyByHotel();
         Map<String, Double> occHotelD = new LinkedHashMap<>();
         for (Map.Entry<String, Integer> e : occByHotel.entrySet()) occHotelD.put(e.getKey(), e.getValue().doubleValue());
         JPanel hotelOcc = new BarChartPanel("Occupied Rooms by Hotel", occHotelD, "(count)");
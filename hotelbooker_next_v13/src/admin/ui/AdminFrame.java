@@ -1,15 +1,66 @@
 package admin.ui;
 
+import admin.service.AdminAuth;
+import common.filehandler.TransactionFileHandler;
+import common.service.PromoCodeService;
+import common.service.ReviewService;
+import common.service.UserService;
 import guest.ui.UIStyles;
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Main admin window. Hosts sidebar, top bar and content area (CardLayout).
+ *
+ * Pages are built the first time they are shown. Until then a "Loading..." card is shown while
+ * the page's data is read on a background thread (into the in-memory tables its panel reads
+ * from, or, for the dashboard, the figures themselves); the panel is then built on the EDT. Once
+ * the dashboard is up, the data of the pages most likely to be opened next is read in the
+ * background too and kept, so opening one of them builds it at once as long as no booking or room
+ * changed in the meantime.
  */
 public class AdminFrame extends JFrame {
+    private static final String LOADING = "loading";
+
+    /** Versions of the bookings and rooms, which is what the pages' data is read from. */
+    private record DataRevision(long bookings, long rooms) {
+        static DataRevision now() {
+            // Both are lock-free, so asking on the EDT never waits for a load in progress.
+            return new DataRevision(TransactionFileHandler.bookingsRevision(), TransactionFileHandler.roomsVersion());
+        }
+    }
+
+    /** A page's data read ahead by {@link #warmUp()}, and the data revision it was read at. */
+    private record Warmed(String name, Object data, DataRevision revision) {}
+
+    /**
+     * One sidebar page: {@code load} runs off the EDT and its result is handed to {@code build},
+     * which creates the panel on the EDT. {@code load} may be null when there is nothing to read;
+     * {@code build} gets null when there was nothing to read or reading failed.
+     */
+    private record Page<T>(Supplier<T> load, Function<T, JComponent> build) {
+        static Page<Void> warming(Runnable warm, Supplier<JComponent> build) {
+            return new Page<>(warm == null ? null : () -> {
+                warm.run();
+                return null;
+            }, x -> build.get());
+        }
+    }
+
     private JPanel cards;
     private CardLayout cardLayout;
+    private final Map<String, Page<?>> pages = new HashMap<>();
+    private final Map<String, JComponent> built = new HashMap<>();
+    private final Map<String, SwingWorker<?, ?>> loading = new HashMap<>();
+    private final Map<String, Warmed> warmed = new HashMap<>();
+    private String wanted;
+    private boolean warmedUp;
 
     public AdminFrame() {
         setTitle("HotelManager - Admin Portal");
@@ -36,20 +87,25 @@ public class AdminFrame extends JFrame {
         cardLayout = new CardLayout();
         cards = new JPanel(cardLayout);
         cards.setBackground(UIStyles.BG);
+        cards.add(buildLoadingCard(), LOADING);
 
         // Dashboard default
-        AdminDashboardPanel dashboard = new AdminDashboardPanel();
-        cards.add(dashboard, "dashboard");
+        pages.put("dashboard", new Page<>(AdminDashboardPanel.Stats::load,
+                stats -> stats == null ? new AdminDashboardPanel() : new AdminDashboardPanel(stats)));
 
         // Rooms + bookings management
-        cards.add(new AdminRoomsPanel(), "hotels");
-        cards.add(new AdminAvailabilityPanel(), "availability");
-        cards.add(new AdminBookingsPanel(), "bookings");
-        cards.add(new AdminGuestsPanel(), "guests");
-        cards.add(new AdminReviewsPanel(), "reviews");
-        cards.add(new AdminPromoCodesPanel(), "promocodes");
-        cards.add(new AdminReportsPanel(), "reports");
-        cards.add(new AdminSettingsPanel(), "settings");
+        pages.put("hotels", Page.warming(TransactionFileHandler::readRoomsFromFile, AdminRoomsPanel::new));
+        pages.put("availability", new Page<>(AdminAvailabilityPanel.Month::current, AdminAvailabilityPanel::new));
+        pages.put("bookings", new Page<>(AdminBookingsPanel::loadRows,
+                rows -> rows == null ? new AdminBookingsPanel() : new AdminBookingsPanel(rows)));
+        pages.put("guests", Page.warming(() -> UserService.getInstance().getAllUsers(), AdminGuestsPanel::new));
+        pages.put("reviews", Page.warming(() -> {
+            TransactionFileHandler.readRoomsFromFile();
+            ReviewService.getAllReviews();
+        }, AdminReviewsPanel::new));
+        pages.put("promocodes", Page.warming(PromoCodeService::listAll, AdminPromoCodesPanel::new));
+        pages.put("reports", Page.warming(null, AdminReportsPanel::new));
+        pages.put("settings", Page.warming(null, AdminSettingsPanel::new));
 
         add(cards, BorderLayout.CENTER);
 
@@ -60,8 +116,112 @@ public class AdminFrame extends JFrame {
     // simplePanel removed in favor of real Settings panel
 
     public void showCard(String name) {
+        wanted = name;
+        Page<?> page = pages.get(name);
+        if (page != null && !built.containsKey(name)) {
+            Warmed ahead = warmed.remove(name);
+            if (page.load() == null) {
+                buildPage(name, page, null);
+            } else if (ahead != null && ahead.revision().equals(DataRevision.now())) {
+                buildPage(name, page, cast(ahead.data()));
+            } else {
+                if (cardLayout != null) cardLayout.show(cards, LOADING);
+                load(name, page);
+                return;
+            }
+        }
         if (cardLayout != null) cardLayout.show(cards, name);
         cards.revalidate();
         cards.repaint();
     }
+
+    /** Reads the page's data in the background, then builds it (and shows it if it is still wanted). */
+    private <T> void load(String name, Page<T> page) {
+        if (loading.containsKey(name)) return;
+        SwingWorker<T, Void> worker = new SwingWorker<>() {
+            @Override
+            protected T doInBackground() {
+                return page.load().get();
+            }
+
+            @Override
+            protected void done() {
+                loading.remove(name);
+                T data = null;
+                try {
+                    data = get();
+                } catch (Exception e) {
+                    // Built with null, the panel reads what it needs itself; it just does so on the EDT.
+                    System.err.println("Error loading admin page " + name + ": " + e.getMessage());
+                }
+                buildPage(name, page, data);
+                if (name.equals(wanted)) showCard(name);
+                if ("dashboard".equals(name)) warmUp();
+            }
+        };
+        loading.put(name, worker);
+        worker.execute();
+    }
+
+    private <T> void buildPage(String name, Page<T> page, T data) {
+        if (built.containsKey(name)) return;
+        JComponent panel = page.build().apply(data);
+        built.put(name, panel);
+        warmed.remove(name);
+        cards.add(panel, name);
+    }
+
+    /**
+     * Reads, in the background, the data of the pages staff usually open after the dashboard,
+     * so opening them later only has to build the panel. Only pages the sidebar offers this
+     * role are warmed.
+     */
+    private void warmUp() {
+        if (warmedUp) return;
+        warmedUp = true;
+        List<String> next = new ArrayList<>(List.of("bookings", "availability", "reviews"));
+        if (AdminAuth.getInstance().isAdmin()) {
+            next.add(1, "hotels");
+            next.add("guests");
+        }
+        new SwingWorker<Void, Warmed>() {
+            @Override
+            protected Void doInBackground() {
+                for (String name : next) {
+                    Page<?> page = pages.get(name);
+                    if (page == null || page.load() == null || !isDisplayable()) continue;
+                    try {
+                        // Taken before reading, so a change made meanwhile leaves the result unused.
+                        DataRevision revision = DataRevision.now();
+                        publish(new Warmed(name, page.load().get(), revision));
+                    } catch (RuntimeException e) {
+                        System.err.println("Error warming admin page " + name + ": " + e.getMessage());
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<Warmed> ready) {
+                for (Warmed w : ready) {
+                    if (!built.containsKey(w.name())) warmed.put(w.name(), w);
+                }
+            }
+        }.execute();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object data) {
+        return (T) data;
+    }
+
+    private JPanel buildLoadingCard() {
+        JPanel p = new JPanel(new GridBagLayout());
+        p.setBackground(UIStyles.BG);
+        JLabel label = new JLabel("Loading...");
+        label.setFont(UIStyles.FONT_PLAIN);
+        label.setForeground(UIStyles.MUTED);
+        p.add(label);
+        return p;
+    }
 }
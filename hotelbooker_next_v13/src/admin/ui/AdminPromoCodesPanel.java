@@ -97,7 +97,7 @@ public class AdminPromoCodesPanel extends JPanel {
                 return;
             }
             PromoCodeService.Promo p = rowToPromo(r);
-            PromoCodeService.upsert(p.code, p.percent, !p.active, p.description);
+            if (!PromoCodeService.upsert(p.code, p.percent, !p.active, p.description)) showSaveError();
             loadTable();
         });
         deleteBtn.addActionListener(e -> {
@@ -109,7 +109,7 @@ public class AdminPromoCodesPanel extends JPanel {
             String code = String.valueOf(model.getValueAt(r, 0));
             int ok = JOptionPane.showConfirmDialog(this, "Delete promo code '" + code + "'?", "Confirm", JOptionPane.YES_NO_OPTION);
             if (ok == JOptionPane.YES_OPTION) {
-                PromoCodeService.delete(code);
+                if (!PromoCodeService.delete(code)) showSaveError();
                 loadTable();
             }
         });
@@ -186,7 +186,12 @@ public class AdminPromoCodesPanel extends JPanel {
             return;
         }
 
-        PromoCodeService.upsert(code, pct, activeBox.isSelected(), desc);
+        if (!PromoCodeService.upsert(code, pct, activeBox.isSelected(), desc)) showSaveError();
         loadTable();
     }
+
+    private void showSaveError() {
+        JOptionPane.showMessageDialog(this, "Could not save promo codes. The data folder may be busy; please try again.",
+                "Promo Codes", JOptionPane.ERROR_MESSAGE);
+    }
 }
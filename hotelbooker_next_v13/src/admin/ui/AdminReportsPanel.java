@@ -73,7 +73,7 @@ public class AdminReportsPanel extends JPanel {
 
     private void exportBookingsCsv() {
         try {
-            Path p = CsvExportUtils.exportBookings(TransactionFileHandler.readBookingsFromFile(), TransactionFileHandler.readRoomsFromFile());
+            Path p = CsvExportUtils.exportBookings(TransactionFileHandler.readBookingsFromFile(), TransactionFileHandler.readRoomsFromFile(), true);
             JOptionPane.showMessageDialog(this, "Bookings CSV exported to:\n" + p.toAbsolutePath());
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Could not export bookings CSV.\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -137,7 +137,7 @@ public class AdminReviewsPanel extends JPanel {
             Toast.show(this, "Review deleted.", Toast.Type.SUCCESS);
             load();
         } else {
-            Toast.show(this, "Review not found (maybe already deleted).", Toast.Type.WARNING);
+            Toast.show(this, "Review not found (maybe already deleted) or could not be saved.", Toast.Type.WARNING);
         }
     }
 }
@@ -97,7 +97,7 @@ public class AdminRoomsPanel extends JPanel {
         dialog.setVisible(true);
         Room created = dialog.getResult();
         if (created != null) {
-            TransactionFileHandler.updateRoom(created);
+            if (!TransactionFileHandler.updateRoom(created)) showSaveError();
             refresh();
         }
     }
@@ -109,16 +109,14 @@ public class AdminRoomsPanel extends JPanel {
             return;
         }
         String id = String.valueOf(model.getValueAt(row, 0));
-        Room existing = TransactionFileHandler.readRoomsFromFile().stream()
-                .filter(r -> r.getId().equalsIgnoreCase(id))
-                .findFirst().orElse(null);
+        Room existing = TransactionFileHandler.findRoomById(id);
         if (existing == null) return;
 
         RoomEditorDialog dialog = new RoomEditorDialog(SwingUtilities.getWindowAncestor(this), existing);
         dialog.setVisible(true);
         Room updated = dialog.getResult();
         if (updated != null) {
-            TransactionFileHandler.updateRoom(updated);
+            if (!TransactionFileHandler.updateRoom(updated)) showSaveError();
             refresh();
         }
     }
@@ -133,18 +131,7 @@ public class AdminRoomsPanel extends JPanel {
         int ok = JOptionPane.showConfirmDialog(this, "Delete room " + id + "?", "Confirm", JOptionPane.YES_NO_OPTION);
         if (ok != JOptionPane.YES_OPTION) return;
 
-        List<Room> rooms = TransactionFileHandler.readRoomsFromFile();
-        rooms.removeIf(r -> r.getId().equalsIgnoreCase(id));
-        // rewrite by updating each; simplest: overwrite file via updateRoom loop
-        // We'll just rebuild by writing through updateRoom on a clean file.
-        // (small dataset, OK)
-        // Direct rewrite helper isn't exposed, so we do a safe rewrite here.
-        try {
-            java.nio.file.Files.write(java.nio.file.Paths.get("data/master/rooms.txt"), new byte[0]);
-        } catch (Exception ignored) {}
-        for (Room r : rooms) {
-            TransactionFileHandler.saveRoom(r);
-        }
+        if (!TransactionFileHandler.deleteRoom(id)) showSaveError();
         refresh();
     }
 
@@ -155,15 +142,18 @@ public class AdminRoomsPanel extends JPanel {
             return;
         }
         String id = String.valueOf(model.getValueAt(row, 0));
-        Room room = TransactionFileHandler.readRoomsFromFile().stream()
-                .filter(r -> r.getId().equalsIgnoreCase(id))
-                .findFirst().orElse(null);
+        Room room = TransactionFileHandler.findRoomById(id);
         if (room == null) return;
         room.setAvailable(!room.isAvailable());
-        TransactionFileHandler.updateRoom(room);
+        if (!TransactionFileHandler.updateRoom(room)) showSaveError();
         refresh();
     }
 
+    private void showSaveError() {
+        JOptionPane.showMessageDialog(this, "Could not save the rooms. The data folder may be busy; please try again.",
+                "Rooms", JOptionPane.ERROR_MESSAGE);
+    }
+
     /** Simple editor dialog */
     private static class RoomEditorDialog extends JDialog {
         private Room result;
@@ -178,12 +168,14 @@ public class AdminRoomsPanel extends JPanel {
         private JTextField amenitiesField;
         private JTextField capacityField;
         private JTextField unitsField;
+        private JTextField latitudeField;
+        private JTextField longitudeField;
         private JCheckBox availableBox;
         private JTextField imageField;
 
         RoomEditorDialog(Window owner, Room existing) {
             super(owner, existing == null ? "Add Room" : "Edit Room", ModalityType.APPLICATION_MODAL);
-            setSize(640, 520);
+            setSize(640, 600);
             setLocationRelativeTo(owner);
             setLayout(new BorderLayout());
 
@@ -204,6 +196,8 @@ public class AdminRoomsPanel extends JPanel {
             amenitiesField = new JTextField(28);
             capacityField = new JTextField(10);
             unitsField = new JTextField(10);
+            latitudeField = new JTextField(10);
+            longitudeField = new JTextField(10);
             availableBox = new JCheckBox("Available");
             availableBox.setBackground(Color.WHITE);
             imageField = new JTextField(22);
@@ -221,6 +215,8 @@ public class AdminRoomsPanel extends JPanel {
             addRow(form, gbc, "Amenities (comma)", amenitiesField);
             addRow(form, gbc, "Capacity", capacityField);
             addRow(form, gbc, "Units", unitsField);
+            addRow(form, gbc, "Latitude (optional)", latitudeField);
+            addRow(form, gbc, "Longitude (optional)", longitudeField);
 
             // Available
             gbc.gridx = 0;
@@ -266,6 +262,10 @@ public class AdminRoomsPanel extends JPanel {
                 unitsField.setText(String.valueOf(existing.getUnits()));
                 availableBox.setSelected(existing.isAvailable());
                 imageField.setText(existing.getImagePath());
+                if (existing.hasCoordinates()) {
+                    latitudeField.setText(String.valueOf(existing.getLatitude()));
+                    longitudeField.setText(String.valueOf(existing.getLongitude()));
+                }
             } else {
                 idField.setText("R" + UUID.randomUUID().toString().substring(0, 4).toUpperCase());
                 availableBox.setSelected(true);
@@ -330,12 +330,25 @@ public class AdminRoomsPanel extends JPanel {
                 boolean available = availableBox.isSelected();
                 String image = imageField.getText().trim();
                 if (image.isEmpty()) image = "assets/images/city_center.jpg";
+                String lat = latitudeField.getText().trim();
+                String lon = longitudeField.getText().trim();
+                if (lat.isEmpty() != lon.isEmpty()) {
+                    JOptionPane.showMessageDialog(this, "Enter both latitude and longitude, or neither.", "Invalid", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                double latitude = lat.isEmpty() ? Double.NaN : Double.parseDouble(lat);
+                double longitude = lon.isEmpty() ? Double.NaN : Double.parseDouble(lon);
+                if (!lat.isEmpty() && (Math.abs(latitude) > 90 || Math.abs(longitude) > 180)) {
+                    JOptionPane.showMessageDialog(this, "Latitude must be within -90..90 and longitude within -180..180.", "Invalid", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
 
                 if (id.isEmpty() || hotel.isEmpty() || loc.isEmpty()) {
                     JOptionPane.showMessageDialog(this, "Please fill ID, Hotel, and Location.", "Invalid", JOptionPane.WARNING_MESSAGE);
                     return;
                 }
                 result = new Room(id, hotel, roomType, loc, price, rating, reviews, amenities, capacity, units, available, image);
+                result.setCoordinates(latitude, longitude);
                 dispose();
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Please check your inputs.\n" + ex.getMessage(), "Invalid", JOptionPane.ERROR_MESSAGE);
@@ -1,6 +1,7 @@
 package admin.ui;
 
 import common.util.DataBackupUtils;
+import common.util.EdtWatchdog;
 import guest.ui.UIStyles;
 
 import javax.swing.*;
@@ -8,7 +9,7 @@ import java.awt.*;
 import java.nio.file.Path;
 
 /**
- * Admin Settings page: Backup/Restore data.
+ * Admin Settings page: Backup/Restore data, and the UI responsiveness report.
  */
 public class AdminSettingsPanel extends JPanel {
 
@@ -23,7 +24,7 @@ public class AdminSettingsPanel extends JPanel {
 
         JLabel title = new JLabel("Settings");
         title.setFont(UIStyles.FONT_TITLE.deriveFont(20f));
-        JLabel sub = new JLabel("Backup and restore your local data files");
+        JLabel sub = new JLabel("Backup and restore your local data files, and see where the UI is slow");
         sub.setFont(UIStyles.FONT_PLAIN);
         sub.setForeground(UIStyles.MUTED);
 
@@ -62,12 +63,70 @@ public class AdminSettingsPanel extends JPanel {
         card.add(info, BorderLayout.CENTER);
         card.add(buttons, BorderLayout.SOUTH);
 
-        add(card, BorderLayout.CENTER);
+        JPanel body = new JPanel(new BorderLayout(16, 16));
+        body.setOpaque(false);
+        body.add(card, BorderLayout.NORTH);
+        body.add(buildResponsivenessCard(), BorderLayout.CENTER);
+        add(body, BorderLayout.CENTER);
 
         backupBtn.addActionListener(e -> doBackup());
         restoreBtn.addActionListener(e -> doRestore());
     }
 
+    /** Event latency histogram and EDT stalls from {@link EdtWatchdog}. */
+    private JPanel buildResponsivenessCard() {
+        JPanel card = new JPanel(new BorderLayout(12, 12));
+        card.setBackground(Color.WHITE);
+        card.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(new Color(235, 235, 235)),
+                BorderFactory.createEmptyBorder(16, 16, 16, 16)
+        ));
+
+        JLabel title = new JLabel("UI responsiveness");
+        title.setFont(UIStyles.FONT_BOLD);
+        card.add(title, BorderLayout.NORTH);
+
+        JTextArea report = new JTextArea(EdtWatchdog.report());
+        report.setEditable(false);
+        report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        report.setCaretPosition(0);
+        card.add(new JScrollPane(report), BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        buttons.setOpaque(false);
+        JButton refreshBtn = new JButton("Refresh");
+        JButton saveBtn = new JButton("Save Report");
+        JButton resetBtn = new JButton("Reset");
+        for (JButton b : new JButton[]{refreshBtn, saveBtn, resetBtn}) {
+            b.setFont(UIStyles.FONT_PLAIN);
+            buttons.add(b);
+        }
+        card.add(buttons, BorderLayout.SOUTH);
+
+        Runnable reload = () -> {
+            report.setText(EdtWatchdog.report());
+            report.setCaretPosition(0);
+        };
+        refreshBtn.addActionListener(e -> reload.run());
+        saveBtn.addActionListener(e -> {
+            try {
+                Path p = EdtWatchdog.writeReport();
+                JOptionPane.showMessageDialog(this, "Report saved:\n" + p.toAbsolutePath());
+            } catch (Exception ex) {
+                JOptionPane.showMessageDialog(this, "Could not save report: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        resetBtn.addActionListener(e -> {
+            EdtWatchdog.reset();
+            reload.run();
+        });
+        // Show current figures whenever the page is opened.
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & java.awt.event.HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing()) reload.run();
+        });
+        return card;
+    }
+
     private void doBackup() {
         try {
             Path zip = DataBackupUtils.createTimestampedBackupZip();
@@ -0,0 +1,291 @@
+package common.filehandler;
+
+import common.model.Booking;
+import common.model.Payment;
+import common.util.SettingsStore;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves old bookings (and their payments) out of the live data files into yearly archive segments.
+ *
+ * Layout under data/archive:
+ * <pre>
+ *   bookings-2025.gz          gzip text, "B|booking line" and "P|payment line" records
+ *   bookings-2025.summary     properties: counts by status, PAID revenue by month
+ * </pre>
+ * A segment is never edited in place: archiving more stays for a year writes a new merged segment to a
+ * temp file and renames it over the old one. The live files only lose a booking after its segment has
+ * been written, so a crash in between just archives it again (merging is keyed by id).
+ *
+ * Settings: archive.horizonDays (default 365) - bookings whose check-out is older than this are archived;
+ * archive.intervalHours (default 24) - how often the background job runs.
+ */
+public final class BookingArchiver {
+    private static final Path ARCHIVE_DIR = Paths.get("data", "archive");
+    private static final int DEFAULT_HORIZON_DAYS = 365;
+    private static final int DEFAULT_INTERVAL_HOURS = 24;
+
+    private static ScheduledExecutorService scheduler;
+
+    /** Per-segment totals, readable without decompressing the segment. */
+    public record Summary(int year, int bookings, int payments,
+                          Map<String, Integer> bookingsByStatus, Map<YearMonth, Double> revenueByMonth) {
+        public double revenue() {
+            double sum = 0;
+            for (double v : revenueByMonth.values()) sum += v;
+            return sum;
+        }
+    }
+
+    private BookingArchiver() {}
+
+    /**
+     * Starts the background archiver (daemon thread). Safe to call more than once.
+     */
+    public static synchronized void startBackground() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "booking-archiver");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        long interval = Math.max(1, (long) SettingsStore.getRawDouble("archive.intervalHours", DEFAULT_INTERVAL_HOURS));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce();
+            } catch (Exception e) {
+                System.err.println("Archiver failed: " + e.getMessage());
+            }
+        }, 1, interval * 60, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Archives every booking whose check-out is older than the horizon. Returns how many were moved.
+     */
+    public static synchronized int runOnce() throws IOException {
+        // One archiver at a time across all processes sharing the data folder.
+        DataLock lock = DataLock.named("archive");
+        lock.lock();
+        try {
+            return archiveOnce();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int archiveOnce() throws IOException {
+        int horizonDays = Math.max(1, (int) SettingsStore.getRawDouble("archive.horizonDays", DEFAULT_HORIZON_DAYS));
+        LocalDate cutoff = LocalDate.now().minusDays(horizonDays);
+
+        // Group candidates by check-out year (snapshot of their current state).
+        Map<Integer, List<Booking>> bookingsByYear = new TreeMap<>();
+        Map<String, Integer> yearByBooking = new HashMap<>();
+        Map<String, String> archivedState = new HashMap<>();
+        for (Booking b : TransactionFileHandler.readBookingsFromFile()) {
+            if (b == null || b.getCheckOutDate() == null || !b.getCheckOutDate().isBefore(cutoff)) continue;
+            int year = b.getCheckOutDate().getYear();
+            bookingsByYear.computeIfAbsent(year, y -> new ArrayList<>()).add(b);
+            yearByBooking.put(key(b.getBookingId()), year);
+            archivedState.put(b.getBookingId(), b.toString());
+        }
+        if (bookingsByYear.isEmpty()) return 0;
+
+        Map<Integer, List<Payment>> paymentsByYear = new HashMap<>();
+        for (Payment p : TransactionFileHandler.readPaymentsFromFile()) {
+            Integer year = p == null ? null : yearByBooking.get(key(p.getBookingId()));
+            if (year != null) paymentsByYear.computeIfAbsent(year, y -> new ArrayList<>()).add(p);
+        }
+
+        Files.createDirectories(ARCHIVE_DIR);
+        for (Map.Entry<Integer, List<Booking>> e : bookingsByYear.entrySet()) {
+            int year = e.getKey();
+            writeSegment(year, e.getValue(), paymentsByYear.getOrDefault(year, List.of()));
+        }
+
+        // Only now drop them from the live files.
+        return TransactionFileHandler.removeArchivedBookings(archivedState);
+    }
+
+    /**
+     * Summaries of all archive segments, oldest year first.
+     */
+    public static List<Summary> readSummaries() {
+        List<Summary> out = new ArrayList<>();
+        for (int year : segmentYears()) {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(summaryFile(year))) {
+                props.load(in);
+            } catch (IOException e) {
+                continue;
+            }
+            Map<String, Integer> byStatus = new LinkedHashMap<>();
+            Map<YearMonth, Double> revenue = new TreeMap<>();
+            for (String name : props.stringPropertyNames()) {
+                try {
+                    if (name.startsWith("status.")) {
+                        byStatus.put(name.substring(7), Integer.parseInt(props.getProperty(name)));
+                    } else if (name.startsWith("revenue.")) {
+                        revenue.put(YearMonth.parse(name.substring(8)), Double.parseDouble(props.getProperty(name)));
+                    }
+                } catch (Exception ignore) {}
+            }
+            out.add(new Summary(year,
+                    Integer.parseInt(props.getProperty("bookings", "0")),
+                    Integer.parseInt(props.getProperty("payments", "0")),
+                    byStatus, revenue));
+        }
+        return out;
+    }
+
+    /**
+     * Streams every archived booking (oldest segment first) without loading whole segments into memory.
+     */
+    public static void forEachArchivedBooking(Consumer<Booking> consumer) throws IOException {
+        RecordTokenizer tokenizer = new RecordTokenizer();
+        for (int year : segmentYears()) {
+            streamSegment(segmentFile(year), (type, payload) -> {
+                if (type == 'B') {
+                    Booking b = TransactionFileHandler.parseBookingLine(tokenizer, payload);
+                    if (b != null) consumer.accept(b);
+                }
+            });
+        }
+    }
+
+    /**
+     * Streams every archived payment (oldest segment first).
+     */
+    public static void forEachArchivedPayment(Consumer<Payment> consumer) throws IOException {
+        RecordTokenizer tokenizer = new RecordTokenizer();
+        for (int year : segmentYears()) {
+            streamSegment(segmentFile(year), (type, payload) -> {
+                if (type == 'P') {
+                    Payment p = TransactionFileHandler.parsePaymentLine(tokenizer, payload);
+                    if (p != null) consumer.accept(p);
+                }
+            });
+        }
+    }
+
+    // ---------------- segment IO ----------------
+
+    private interface RecordSink {
+        void accept(char type, String payload);
+    }
+
+    private static void writeSegment(int year, List<Booking> newBookings, List<Payment> newPayments) throws IOException {
+        // Merge with the existing segment (if any); newer state wins.
+        Map<String, String> bookings = new LinkedHashMap<>();
+        Map<String, String> payments = new LinkedHashMap<>();
+        Path segment = segmentFile(year);
+        if (Files.exists(segment)) {
+            streamSegment(segment, (type, payload) -> {
+                int bar = payload.indexOf('|');
+                if (bar <= 0) return;
+                String id = key(payload.substring(0, bar));
+                if (type == 'B') bookings.put(id, payload);
+                else if (type == 'P') payments.put(id, payload);
+            });
+        }
+        for (Booking b : newBookings) bookings.put(key(b.getBookingId()), b.toString());
+        for (Payment p : newPayments) payments.put(key(p.getPaymentId()), p.toString());
+
+        Path tmp = segment.resolveSibling(segment.getFileName() + ".tmp");
+        try (Writer w = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8)) {
+            for (String line : bookings.values()) w.write("B|" + line + "\n");
+            for (String line : payments.values()) w.write("P|" + line + "\n");
+        }
+
+        // Summary is recomputed from the merged content.
+        Properties summary = new Properties();
+        RecordTokenizer tokenizer = new RecordTokenizer();
+        Map<String, Integer> byStatus = new TreeMap<>();
+        for (String line : bookings.values()) {
+            Booking b = TransactionFileHandler.parseBookingLine(tokenizer, line);
+            if (b == null) continue;
+            String status = b.getStatus() == null ? "" : b.getStatus().toUpperCase(Locale.ROOT);
+            byStatus.merge(status, 1, Integer::sum);
+        }
+        Map<YearMonth, Double> revenue = new TreeMap<>();
+        for (String line : payments.values()) {
+            Payment p = TransactionFileHandler.parsePaymentLine(tokenizer, line);
+            if (p == null || p.getPaymentDate() == null) continue;
+            if (p.getStatus() == null || !p.getStatus().equalsIgnoreCase("PAID")) continue;
+            revenue.merge(YearMonth.from(p.getPaymentDate()), p.getAmount(), Double::sum);
+        }
+        summary.setProperty("bookings", String.valueOf(bookings.size()));
+        summary.setProperty("payments", String.valueOf(payments.size()));
+        byStatus.forEach((s, n) -> summary.setProperty("status." + s, String.valueOf(n)));
+        revenue.forEach((ym, v) -> summary.setProperty("revenue." + ym, String.valueOf(v)));
+
+        Path summaryFile = summaryFile(year);
+        Path summaryTmp = summaryFile.resolveSibling(summaryFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(summaryTmp)) {
+            summary.store(out, "Archive summary " + year);
+        }
+
+        moveAtomically(tmp, segment);
+        moveAtomically(summaryTmp, summaryFile);
+    }
+
+    private static void streamSegment(Path segment, RecordSink sink) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() < 3 || line.charAt(1) != '|') continue;
+                sink.accept(line.charAt(0), line.substring(2));
+            }
+        }
+    }
+
+    private static List<Integer> segmentYears() {
+        List<Integer> years = new ArrayList<>();
+        if (!Files.isDirectory(ARCHIVE_DIR)) return years;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(ARCHIVE_DIR, "bookings-*.gz")) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                try {
+                    years.add(Integer.parseInt(name.substring("bookings-".length(), name.length() - 3)));
+                } catch (NumberFormatException ignore) {}
+            }
+        } catch (IOException e) {
+            System.err.println("Error listing archive: " + e.getMessage());
+        }
+        Collections.sort(years);
+        return years;
+    }
+
+    private static Path segmentFile(int year) {
+        return ARCHIVE_DIR.resolve("bookings-" + year + ".gz");
+    }
+
+    private static Path summaryFile(int year) {
+        return ARCHIVE_DIR.resolve("bookings-" + year + ".summary");
+    }
+
+    private static void moveAtomically(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String key(String id) {
+        return id == null ? "" : id.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,253 @@
+package common.filehandler;
+
+import common.model.Payment;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Append-only journal of booking/payment mutations.
+ *
+ * The booking partitions (data/bookings/) and payments.txt are checkpoints; everything that happened
+ * since the last checkpoint lives here as one line per mutation:
+ * <pre>
+ *   # journal &lt;generation&gt;                                                          (first line)
+ *   BOOKING|bookingId|guest|roomId|checkIn|checkOut|guests|total|status|previousMonth   (create / full update)
+ *   STATUS|bookingId|status|month                                                      (status change)
+ *   PAYMENT|paymentId|bookingId|amount|method|status|paymentDate                       (create)
+ *   PAYMENT_AMOUNT|bookingId|amount                                                    (latest payment re-priced)
+ * </pre>
+ * The month fields name the partition (check-in month, yyyy-MM) the booking lived in before the
+ * change, or "-" for a new booking, so a checkpoint knows which partitions to rewrite. Records
+ * written before partitioning have no month; see {@link BookingStore}.
+ * Every record is idempotent, so replaying a journal over a checkpoint that already contains
+ * some of it (crash between checkpoint and truncate) gives the same result.
+ *
+ * Several processes may share the journal. Each keeps a cursor (generation + byte offset) and
+ * {@link #poll()} hands out only the records appended since, so another terminal's bookings are
+ * picked up without re-reading anything else. Every checkpoint starts a new generation, which
+ * tells the other processes to reload from the new checkpoint instead.
+ */
+final class BookingJournal {
+    static final String BOOKING = "BOOKING";
+    static final String STATUS = "STATUS";
+    static final String PAYMENT = "PAYMENT";
+    static final String PAYMENT_AMOUNT = "PAYMENT_AMOUNT";
+
+    private static final String HEADER = "# journal ";
+
+    /** Records since the last poll; if {@code restarted}, the whole (new) journal instead. */
+    record Tail(boolean restarted, List<String[]> records) {
+        static final Tail NONE = new Tail(false, List.of());
+    }
+
+    private final Path file;
+    private final DataLock lock;
+    private int records = -1;
+
+    // Cursor: how much of which journal generation has been handed out. Null before the first poll.
+    private String generation;
+    private long offset;
+    private long seenVersion;
+
+    BookingJournal(Path file, DataLock lock) {
+        this.file = file;
+        this.lock = lock;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Appends one record. Call while holding the lock and right after {@link #poll()}, so the
+     * cursor can move past the new record.
+     */
+    void append(String type, String payload) throws IOException {
+        append(List.<String[]>of(new String[]{type, payload}));
+    }
+
+    /**
+     * Appends records ({type, payload}) that belong together, e.g. a booking and its payment, in
+     * one write. Same calling rules as {@link #append(String, String)}.
+     */
+    void append(List<String[]> recs) throws IOException {
+        long size = sizeOf(file);
+        StringBuilder lines = new StringBuilder();
+        if (size <= 0) {
+            generation = newGeneration();
+            lines.append(HEADER).append(generation).append(System.lineSeparator());
+        }
+        for (String[] rec : recs) lines.append(rec[0]).append('|').append(rec[1]).append(System.lineSeparator());
+        try (Writer writer = new FileWriter(file.toFile(), StandardCharsets.UTF_8, true)) {
+            writer.write(lines.toString());
+        }
+        if (generation != null) offset = sizeOf(file);
+        if (records >= 0) records += recs.size();
+    }
+
+    /** Number of records written since the last checkpoint. */
+    int recordCount() {
+        if (records < 0) records = records().size();
+        return records;
+    }
+
+    /** Starts an empty journal with a new generation after a successful checkpoint. */
+    void truncate() throws IOException {
+        String next = newGeneration();
+        TransactionFileHandler.writeAtomically(file, List.of(HEADER + next));
+        generation = next;
+        offset = sizeOf(file);
+        records = 0;
+    }
+
+    /**
+     * Keeps the records but starts a new generation, so every process (this one included) reloads
+     * on its next {@link #poll()}. Used when the checkpoint files were replaced wholesale.
+     */
+    void renew() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER + newGeneration());
+        for (String[] rec : records()) lines.add(rec[0] + "|" + rec[1]);
+        TransactionFileHandler.writeAtomically(file, lines);
+        generation = null;
+    }
+
+    /**
+     * Records appended since the last poll (by this or any other process). Cheap when nothing
+     * changed: one look at the shared version and the file size.
+     */
+    Tail poll() {
+        long version = lock.version();
+        long size = sizeOf(file);
+        if (generation != null && version == seenVersion && size == offset) return Tail.NONE;
+        seenVersion = version;
+
+        String gen = generationOf(file);
+        if (generation == null || !gen.equals(generation) || size < offset) {
+            generation = gen;
+            offset = 0;
+            List<String[]> all = readFrom(0);
+            records = all.size();
+            return new Tail(true, all);
+        }
+        if (size == offset) return Tail.NONE;
+        List<String[]> tail = readFrom(offset);
+        if (records >= 0) records += tail.size();
+        return new Tail(false, tail);
+    }
+
+    /** Applies the payment records to {@code payments} in place. */
+    void applyPayments(List<Payment> payments, List<String[]> recs) {
+        Map<String, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < payments.size(); i++) indexById.put(key(payments.get(i).getPaymentId()), i);
+
+        RecordTokenizer t = new RecordTokenizer();
+        for (String[] rec : recs) {
+            try {
+                switch (rec[0]) {
+                    case PAYMENT -> {
+                        Payment p = TransactionFileHandler.parsePaymentLine(t, rec[1]);
+                        if (p == null) continue;
+                        Integer i = indexById.get(key(p.getPaymentId()));
+                        if (i != null) {
+                            payments.set(i, p);
+                        } else {
+                            indexById.put(key(p.getPaymentId()), payments.size());
+                            payments.add(p);
+                        }
+                    }
+                    case PAYMENT_AMOUNT -> {
+                        t.reset(rec[1]);
+                        Payment latest = TransactionFileHandler.latestPaymentFor(payments, t.nextString());
+                        if (latest != null && t.next()) latest.setAmount(t.doubleValue());
+                    }
+                    default -> { }
+                }
+            } catch (Exception e) {
+                System.err.println("Skipping bad journal record: " + rec[0] + "|" + rec[1]);
+            }
+        }
+    }
+
+    /** All journal lines split into {type, payload}. Does not move the cursor. */
+    List<String[]> records() {
+        List<String[]> out = new ArrayList<>();
+        if (!Files.exists(file)) return out;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) addRecord(out, line);
+        } catch (IOException e) {
+            System.err.println("Error reading journal: " + e.getMessage());
+        }
+        return out;
+    }
+
+    /** Complete lines from byte {@code from} on; moves the cursor past them. */
+    private List<String[]> readFrom(long from) {
+        List<String[]> out = new ArrayList<>();
+        if (!Files.exists(file)) {
+            offset = 0;
+            return out;
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size <= from) {
+                offset = size;
+                return out;
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) (size - from));
+            while (buf.hasRemaining() && ch.read(buf, from + buf.position()) > 0) { }
+            byte[] bytes = buf.array();
+            int n = buf.position();
+            // A writer may be half-way through a line; leave it for the next poll.
+            int end = n;
+            while (end > 0 && bytes[end - 1] != '\n') end--;
+            offset = from + end;
+            String text = new String(bytes, 0, end, StandardCharsets.UTF_8);
+            for (String line : text.split("\n")) addRecord(out, line);
+        } catch (IOException e) {
+            System.err.println("Error reading journal: " + e.getMessage());
+        }
+        return out;
+    }
+
+    private static void addRecord(List<String[]> out, String line) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) return;
+        int bar = line.indexOf('|');
+        if (bar <= 0) return;
+        out.add(new String[]{line.substring(0, bar), line.substring(bar + 1)});
+    }
+
+    /** Generation named in the header line; "" for a missing journal or one written before headers. */
+    private static String generationOf(Path file) {
+        if (!Files.exists(file)) return "";
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String first = reader.readLine();
+            return first != null && first.startsWith(HEADER) ? first.substring(HEADER.length()).trim() : "";
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String newGeneration() {
+        return Long.toHexString(System.currentTimeMillis()) + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static String key(String id) {
+        return id == null ? "" : id.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,539 @@
+package common.filehandler;
+
+import common.model.Booking;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Bookings stored as one file per check-in month: data/bookings/yyyy-MM.txt.
+ *
+ * Each partition is a {@link ResidentTable} that is only parsed when something needs it, so a
+ * date-range read touches just the months that can overlap the range. data/bookings/index.txt keeps
+ * the latest check-out per partition (with the partition's stamp), which lets a range read skip
+ * earlier months whose stays all ended before the range starts.
+ *
+ * Changes since the last checkpoint live in the journal. They are kept here as an overlay that is
+ * applied to every partition as it loads, and a checkpoint rewrites only the partitions they touched.
+ *
+ * CONFIRMED stays are also counted per room and night in an {@link InventoryCalendar}, built on the
+ * first availability query and kept current by every write below.
+ *
+ * A flat data/bookings.txt (older versions, or restored from an old backup) is split into
+ * partitions on first use and renamed to bookings.txt.migrated.
+ *
+ * Not thread-safe: only used by {@link TransactionFileHandler}, under its lock.
+ */
+final class BookingStore {
+    /** Month hint for a booking that did not exist before. */
+    static final String NEW = "-";
+
+    private final Path dir;
+    private final Path legacyFile;
+    private final Path indexFile;
+
+    private final TreeMap<YearMonth, ResidentTable<Booking>> partitions = new TreeMap<>();
+    // Latest check-out per partition; an upper bound, so it is only used to skip months.
+    private final Map<YearMonth, LocalDate> maxCheckOut = new HashMap<>();
+
+    // Journal effects not yet checkpointed (keys are upper-cased booking ids).
+    private final Map<String, Booking> upserts = new LinkedHashMap<>();
+    private final Map<String, String> statuses = new HashMap<>();
+    private final Map<YearMonth, Set<String>> removals = new HashMap<>();
+    private final Set<YearMonth> dirty = new HashSet<>();
+    // Set by journal records without a month hint; the next checkpoint then rewrites every partition.
+    private boolean dirtyUnknown;
+
+    private final InventoryCalendar inventory = new InventoryCalendar();
+    // Partitions parsed since the last scan; parsing one again means its file changed under us.
+    private final Set<YearMonth> loadedOnce = new HashSet<>();
+
+    BookingStore(Path dir, Path legacyFile) {
+        this.dir = dir;
+        this.legacyFile = legacyFile;
+        this.indexFile = dir.resolve("index.txt");
+    }
+
+    static String monthOf(Booking b) {
+        return YearMonth.from(b.getCheckInDate()).toString();
+    }
+
+    /** True when a flat bookings file is waiting to be split into partitions. */
+    boolean needsMigration() {
+        return Files.exists(legacyFile);
+    }
+
+    /** Forgets everything in memory, picks up the partitions on disk and applies the whole journal. */
+    void reset(List<String[]> journalRecords) {
+        scan();
+        apply(journalRecords);
+    }
+
+    // =============== reads ===============
+    List<Booking> all() {
+        List<Booking> out = new ArrayList<>();
+        for (ResidentTable<Booking> t : partitions.values()) out.addAll(t.rows());
+        return out;
+    }
+
+    /**
+     * Bookings whose stay overlaps [from, to) (null = unbounded). Only partitions with a check-in month
+     * before {@code to} and a latest check-out after {@code from} are loaded.
+     */
+    List<Booking> range(LocalDate from, LocalDate to) {
+        List<Booking> out = new ArrayList<>();
+        for (ResidentTable<Booking> t : overlapping(from, to)) {
+            for (Booking b : t.rows()) {
+                if ((to == null || b.getCheckInDate().isBefore(to)) && (from == null || b.getCheckOutDate().isAfter(from))) {
+                    out.add(b);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Most CONFIRMED bookings of a room on any night in [start, end), ignoring
+     * {@code excludeBookingId} (may be null).
+     */
+    int peakConfirmed(String roomId, LocalDate start, LocalDate end, String excludeBookingId) {
+        return calendar(start, end).peak(roomId, start, end, excludeBookingId);
+    }
+
+    /** Peak CONFIRMED bookings per room (upper-cased id) over [start, end); rooms with none are absent. */
+    Map<String, Integer> peakConfirmedByRoom(LocalDate start, LocalDate end) {
+        return calendar(start, end).peakByRoom(start, end);
+    }
+
+    /** CONFIRMED room-nights per room (upper-cased id) from a month ago up to the calendar horizon. */
+    Map<String, Integer> confirmedNightsByRoom() {
+        LocalDate today = LocalDate.now();
+        return calendar(today.minusMonths(1), today.plusYears(1)).nightsByRoom();
+    }
+
+    /** CONFIRMED bookings of a room for each night in [start, end). */
+    int[] confirmedPerNight(String roomId, LocalDate start, LocalDate end) {
+        return calendar(start, end).perNight(roomId, start, end);
+    }
+
+    Booking find(String bookingId) {
+        String k = key(bookingId);
+        Booking b = upserts.get(k);
+        if (b != null) return b;
+        // Partitions already in memory first, then the rest, newest month first.
+        for (ResidentTable<Booking> t : partitions.descendingMap().values()) {
+            if (t.isLoaded() && (b = findIn(t.rows(), k)) != null) return b;
+        }
+        for (ResidentTable<Booking> t : partitions.descendingMap().values()) {
+            if (!t.isLoaded() && (b = findIn(t.rows(), k)) != null) return b;
+        }
+        return null;
+    }
+
+    /**
+     * Partition (yyyy-MM) whose rows currently hold the booking, or {@link #NEW} if none does.
+     * Callers may already have changed the booking's dates in place, so this looks at where the row
+     * sits rather than at its check-in date.
+     */
+    String locate(String bookingId) {
+        String k = key(bookingId);
+        for (Map.Entry<YearMonth, ResidentTable<Booking>> e : partitions.entrySet()) {
+            if (e.getValue().isLoaded() && indexOf(e.getValue().rows(), k) >= 0) return e.getKey().toString();
+        }
+        // Only in the journal so far: earlier records already say where its older copy lives.
+        if (upserts.containsKey(k)) return NEW;
+        for (Map.Entry<YearMonth, ResidentTable<Booking>> e : partitions.entrySet()) {
+            if (!e.getValue().isLoaded() && indexOf(e.getValue().rows(), k) >= 0) return e.getKey().toString();
+        }
+        return NEW;
+    }
+
+    // =============== writes (after the journal record was appended) ===============
+    /**
+     * Creates or replaces a booking. {@code previousMonth} is the partition the old version lived in,
+     * {@link #NEW}, or null if unknown.
+     */
+    void put(Booking b, String previousMonth) {
+        String k = key(b.getBookingId());
+        YearMonth month = YearMonth.from(b.getCheckInDate());
+        YearMonth prev = parseMonth(previousMonth);
+        boolean unknown = prev == null && !NEW.equals(previousMonth);
+        statuses.remove(k);
+        upserts.put(k, b);
+        dirty.add(month);
+        if (unknown) {
+            dirtyUnknown = true;
+        } else if (prev != null && !prev.equals(month)) {
+            removals.computeIfAbsent(prev, m -> new HashSet<>()).add(k);
+            dirty.add(prev);
+        }
+
+        // Patch the partitions that are already in memory.
+        for (Map.Entry<YearMonth, ResidentTable<Booking>> e : candidates(prev, unknown)) {
+            if (!e.getKey().equals(month) && e.getValue().isLoaded()) {
+                e.getValue().rows().removeIf(x -> k.equals(key(x.getBookingId())));
+            }
+        }
+        ResidentTable<Booking> target = partition(month);
+        if (target.isLoaded()) {
+            List<Booking> rows = target.rows();
+            int i = indexOf(rows, k);
+            if (i >= 0) rows.set(i, b);
+            else rows.add(b);
+        }
+        maxCheckOut.merge(month, b.getCheckOutDate(), BookingStore::later);
+        if (inventory.isBuilt()) inventory.update(b);
+    }
+
+    /** Changes the status of a booking living in {@code month} (null if unknown). */
+    void setStatus(String bookingId, String status, String month) {
+        String k = key(bookingId);
+        Booking u = upserts.get(k);
+        if (u != null) u.setStatus(status);
+        else statuses.put(k, status);
+
+        YearMonth m = parseMonth(month);
+        if (m != null) dirty.add(m);
+        else dirtyUnknown = true;
+        for (Map.Entry<YearMonth, ResidentTable<Booking>> e : candidates(m, m == null)) {
+            if (!e.getValue().isLoaded()) continue;
+            for (Booking b : e.getValue().rows()) {
+                if (k.equals(key(b.getBookingId()))) b.setStatus(status);
+            }
+        }
+        if (inventory.isBuilt()) inventory.update(find(bookingId));
+    }
+
+    /** Removes matching bookings from every partition (not journaled; checkpoint right after). */
+    Set<String> removeIf(Predicate<Booking> filter) {
+        Set<String> removed = new HashSet<>();
+        for (Map.Entry<YearMonth, ResidentTable<Booking>> e : partitions.entrySet()) {
+            boolean changed = e.getValue().rows().removeIf(b -> {
+                if (!filter.test(b)) return false;
+                removed.add(key(b.getBookingId()));
+                return true;
+            });
+            if (changed) dirty.add(e.getKey());
+        }
+        upserts.keySet().removeAll(removed);
+        statuses.keySet().removeAll(removed);
+        for (String id : removed) inventory.remove(id);
+        return removed;
+    }
+
+    // =============== checkpoint ===============
+    /** Rewrites the partitions touched since the last checkpoint, plus the index. */
+    void writeCheckpoint() throws IOException {
+        Files.createDirectories(dir);
+        Collection<YearMonth> months = dirtyUnknown ? new ArrayList<>(partitions.keySet()) : new TreeSet<>(dirty);
+        for (YearMonth m : months) {
+            ResidentTable<Booking> t = partition(m);
+            List<Booking> rows = t.rows();
+            if (rows.isEmpty()) {
+                Files.deleteIfExists(partitionFile(m));
+                maxCheckOut.remove(m);
+            } else {
+                TransactionFileHandler.writeAtomically(partitionFile(m), rows);
+                maxCheckOut.put(m, latestCheckOut(rows));
+            }
+            t.touch();
+        }
+        writeIndex();
+    }
+
+    /** Called once the journal has been truncated after {@link #writeCheckpoint()}. */
+    void checkpointed() {
+        clearOverlay();
+    }
+
+    /** The calendar, built and current for [start, end). */
+    private InventoryCalendar calendar(LocalDate start, LocalDate end) {
+        // Re-reads a partition that was changed on disk, which drops the calendar.
+        for (ResidentTable<Booking> t : overlapping(start, end)) t.rows();
+        if (!inventory.isBuilt()) inventory.build(all());
+        return inventory;
+    }
+
+    // =============== loading ===============
+    private ResidentTable<Booking> partition(YearMonth month) {
+        return partitions.computeIfAbsent(month, m -> {
+            Path file = partitionFile(m);
+            return new ResidentTable<>(file, () -> loadPartition(file), "bookings/" + m, DataSnapshot.BOOKINGS)
+                    .onLoad(rows -> applyOverlay(m, rows));
+        });
+    }
+
+    private Path partitionFile(YearMonth month) {
+        return dir.resolve(month + ".txt");
+    }
+
+    private static List<Booking> loadPartition(Path file) {
+        List<Booking> bookings = new ArrayList<>();
+        if (!Files.exists(file)) return bookings;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            readBookings(reader, bookings);
+        } catch (IOException e) {
+            System.err.println("Error reading bookings file " + file + ": " + e.getMessage());
+        }
+        return bookings;
+    }
+
+    private static void readBookings(BufferedReader reader, List<Booking> out) throws IOException {
+        RecordTokenizer tokenizer = new RecordTokenizer();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            Booking booking = TransactionFileHandler.parseBookingLine(tokenizer, line);
+            if (booking != null) out.add(booking);
+        }
+    }
+
+    /** Makes a freshly loaded partition reflect the journal. Safe to run more than once. */
+    private void applyOverlay(YearMonth month, List<Booking> rows) {
+        if (!loadedOnce.add(month)) inventory.invalidate();
+        Set<String> gone = removals.getOrDefault(month, Set.of());
+        rows.removeIf(b -> {
+            String k = key(b.getBookingId());
+            return gone.contains(k) || upserts.containsKey(k);
+        });
+        for (Booking b : rows) {
+            String status = statuses.get(key(b.getBookingId()));
+            if (status != null) b.setStatus(status);
+        }
+        for (Booking b : upserts.values()) {
+            if (month.equals(YearMonth.from(b.getCheckInDate()))) rows.add(b);
+        }
+        if (!rows.isEmpty()) maxCheckOut.put(month, latestCheckOut(rows));
+    }
+
+    /** Forgets everything in memory and picks up the partitions that exist on disk. */
+    private void scan() {
+        clearOverlay();
+        partitions.clear();
+        maxCheckOut.clear();
+        loadedOnce.clear();
+        inventory.invalidate();
+        Set<YearMonth> onDisk = new TreeSet<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.txt")) {
+                for (Path f : files) {
+                    String name = f.getFileName().toString();
+                    YearMonth m = parseMonth(name.substring(0, name.length() - 4));
+                    if (m != null) onDisk.add(m);
+                }
+            } catch (IOException e) {
+                System.err.println("Error listing bookings folder: " + e.getMessage());
+            }
+        }
+        for (YearMonth m : onDisk) partition(m);
+        loadIndex(onDisk);
+    }
+
+    /** Applies journal records ({type, payload}) on top of what is in memory. */
+    void apply(List<String[]> journalRecords) {
+        RecordTokenizer t = new RecordTokenizer();
+        for (String[] rec : journalRecords) {
+            try {
+                switch (rec[0]) {
+                    case BookingJournal.BOOKING -> {
+                        Booking b = TransactionFileHandler.parseBookingLine(t, rec[1]);
+                        if (b != null) put(b, field(t, rec[1], 8));
+                    }
+                    case BookingJournal.STATUS -> {
+                        t.reset(rec[1]);
+                        String id = t.nextString();
+                        if (t.next()) setStatus(id, t.string(), field(t, rec[1], 2));
+                    }
+                    default -> { }
+                }
+            } catch (Exception e) {
+                System.err.println("Skipping bad journal record: " + rec[0] + "|" + rec[1]);
+            }
+        }
+    }
+
+    private void clearOverlay() {
+        upserts.clear();
+        statuses.clear();
+        removals.clear();
+        dirty.clear();
+        dirtyUnknown = false;
+    }
+
+    // =============== index ===============
+    // Format: month|maxCheckOut|partitionSize|partitionModified
+    private void loadIndex(Set<YearMonth> onDisk) {
+        Map<YearMonth, LocalDate> indexed = new HashMap<>();
+        if (Files.exists(indexFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(indexFile)) {
+                RecordTokenizer t = new RecordTokenizer();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    try {
+                        t.reset(line);
+                        YearMonth m = YearMonth.parse(t.nextString());
+                        LocalDate max = t.nextDate();
+                        FileStamp stamp = new FileStamp(Long.parseLong(t.nextString()), Long.parseLong(t.nextString()));
+                        if (stamp.equals(FileStamp.of(partitionFile(m)))) indexed.put(m, max);
+                    } catch (Exception ignore) {
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading bookings index: " + e.getMessage());
+            }
+        }
+
+        boolean stale = false;
+        for (YearMonth m : onDisk) {
+            LocalDate max = indexed.get(m);
+            if (max != null) {
+                maxCheckOut.put(m, max);
+            } else {
+                partition(m).rows(); // parses the partition; applyOverlay records its max
+                stale = true;
+            }
+        }
+        if (stale || indexed.size() != onDisk.size()) {
+            try {
+                writeIndex();
+            } catch (IOException e) {
+                System.err.println("Error writing bookings index: " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Files.createDirectories(dir);
+        List<String> lines = new ArrayList<>();
+        lines.add("# month|maxCheckOut|partitionSize|partitionModified");
+        for (YearMonth m : partitions.keySet()) {
+            LocalDate max = maxCheckOut.get(m);
+            FileStamp stamp = FileStamp.of(partitionFile(m));
+            if (max == null || stamp.equals(FileStamp.MISSING)) continue;
+            lines.add(m + "|" + max + "|" + stamp.size() + "|" + stamp.modifiedMillis());
+        }
+        TransactionFileHandler.writeAtomically(indexFile, lines);
+    }
+
+    // =============== migration ===============
+    /** Splits the flat bookings file into partitions, replacing any existing ones. */
+    void migrate() {
+        System.out.println("Moving " + legacyFile + " into monthly files under " + dir + "...");
+        TreeMap<YearMonth, List<Booking>> byMonth = new TreeMap<>();
+        List<Booking> bookings = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(legacyFile)) {
+            readBookings(reader, bookings);
+        } catch (IOException e) {
+            System.err.println("Error reading bookings file: " + e.getMessage());
+            return;
+        }
+        for (Booking b : bookings) {
+            byMonth.computeIfAbsent(YearMonth.from(b.getCheckInDate()), m -> new ArrayList<>()).add(b);
+        }
+
+        Path staging = dir.resolveSibling(dir.getFileName() + ".migrating");
+        try {
+            deleteFolder(staging);
+            Files.createDirectories(staging);
+            for (Map.Entry<YearMonth, List<Booking>> e : byMonth.entrySet()) {
+                TransactionFileHandler.writeAtomically(staging.resolve(e.getKey() + ".txt"), e.getValue());
+            }
+            deleteFolder(dir);
+            Files.move(staging, dir);
+
+            List<String> index = new ArrayList<>();
+            index.add("# month|maxCheckOut|partitionSize|partitionModified");
+            for (Map.Entry<YearMonth, List<Booking>> e : byMonth.entrySet()) {
+                FileStamp stamp = FileStamp.of(partitionFile(e.getKey()));
+                index.add(e.getKey() + "|" + latestCheckOut(e.getValue()) + "|" + stamp.size() + "|" + stamp.modifiedMillis());
+            }
+            TransactionFileHandler.writeAtomically(indexFile, index);
+
+            // Last step: until the flat file is renamed, a crash just means migrating again.
+            Files.move(legacyFile, legacyFile.resolveSibling(legacyFile.getFileName() + ".migrated"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Error moving bookings into monthly files: " + e.getMessage());
+        }
+    }
+
+    private static void deleteFolder(Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path f : files) Files.deleteIfExists(f);
+        }
+        Files.deleteIfExists(folder);
+    }
+
+    // =============== helpers ===============
+    /** Partitions that can hold stays overlapping [from, to) (null = unbounded). */
+    private List<ResidentTable<Booking>> overlapping(LocalDate from, LocalDate to) {
+        YearMonth last = to == null ? null : YearMonth.from(to.minusDays(1));
+        List<ResidentTable<Booking>> out = new ArrayList<>();
+        for (Map.Entry<YearMonth, ResidentTable<Booking>> e : partitions.entrySet()) {
+            if (last != null && e.getKey().isAfter(last)) break;
+            LocalDate max = maxCheckOut.get(e.getKey());
+            if (from != null && max != null && !max.isAfter(from)) continue;
+            out.add(e.getValue());
+        }
+        return out;
+    }
+
+    /** Partitions a change may already be loaded in: {@code month}, or all of them if unknown. */
+    private Collection<Map.Entry<YearMonth, ResidentTable<Booking>>> candidates(YearMonth month, boolean unknown) {
+        if (unknown) return new ArrayList<>(partitions.entrySet());
+        if (month == null || !partitions.containsKey(month)) return List.of();
+        return List.of(Map.entry(month, partitions.get(month)));
+    }
+
+    private static String field(RecordTokenizer t, String line, int index) {
+        t.reset(line);
+        if (t.fieldCount() <= index) return null;
+        t.skip(index + 1);
+        return t.string();
+    }
+
+    private static YearMonth parseMonth(String s) {
+        if (s == null || s.isEmpty() || NEW.equals(s)) return null;
+        try {
+            return YearMonth.parse(s);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Booking findIn(List<Booking> rows, String key) {
+        int i = indexOf(rows, key);
+        return i < 0 ? null : rows.get(i);
+    }
+
+    private static int indexOf(List<Booking> rows, String key) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (key.equals(key(rows.get(i).getBookingId()))) return i;
+        }
+        return -1;
+    }
+
+    private static LocalDate latestCheckOut(List<Booking> rows) {
+        LocalDate max = null;
+        for (Booking b : rows) max = later(max, b.getCheckOutDate());
+        return max;
+    }
+
+    private static LocalDate later(LocalDate a, LocalDate b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static String key(String id) {
+        return id == null ? "" : id.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,172 @@
+package common.filehandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock + version counter for one group of data files, shared by every HotelBooker process that
+ * uses the same data folder.
+ *
+ * Backed by data/locks/&lt;name&gt;.lock. Writers hold the lock only around their commit step
+ * (append to the journal, or rewrite-and-rename a file) and call {@link #changed()} before
+ * releasing it. The file's first 8 bytes hold the version. They are read and written with plain
+ * positional file I/O rather than a memory mapping, because mapped views of a file on a network
+ * share are not kept in step between machines. Readers never take the lock; {@link #version()}
+ * re-reads the bytes at most every {@link #REREAD_MS} ms (every call while the lock is held), so
+ * hot paths do not pay a file read, let alone a network round trip, per lookup. A reader that
+ * sees a different version than the one its data was loaded at knows the data is stale, even on
+ * shares whose modified-times are too coarse to notice a rewrite.
+ *
+ * Reentrant. If the lock file cannot be opened (read-only folder...) it degrades to an in-process
+ * lock and version. If it can be opened but not locked, {@link #lock()} fails rather than letting
+ * the caller write unprotected.
+ */
+public final class DataLock {
+    private static final Path DIR = Paths.get("data", "locks");
+    private static final Map<String, DataLock> LOCKS = new ConcurrentHashMap<>();
+    // The OS lock covers a byte past the version: on Windows a locked range cannot be read by others.
+    private static final long LOCK_POSITION = 8;
+    private static final int MAX_ATTEMPTS = 400;
+    private static final long REREAD_MS = 20;
+
+    private final String name;
+    private final ReentrantLock local = new ReentrantLock();
+    private FileChannel channel;
+    private FileLock fileLock;
+    private long localVersion;
+    // Last version read from (or written to) the file, and when, for version() without the lock.
+    private volatile long cachedVersion;
+    private volatile long cachedAt;
+
+    private DataLock(String name) {
+        this.name = name;
+        try {
+            Files.createDirectories(DIR);
+            channel = FileChannel.open(DIR.resolve(name + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            readVersion(System.nanoTime());
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Data lock '" + name + "' is process-local only: " + e.getMessage());
+            channel = null;
+        }
+    }
+
+    /** The lock named {@code name} (one instance per name in this process). */
+    public static DataLock named(String name) {
+        return LOCKS.computeIfAbsent(name, DataLock::new);
+    }
+
+    /**
+     * Blocks until no other thread or process holds the lock.
+     *
+     * @throws UncheckedIOException if the lock file could not be locked after retrying for a
+     *         while; nothing is held then and the caller must not write.
+     */
+    public void lock() {
+        local.lock();
+        if (local.getHoldCount() > 1 || channel == null) return;
+        // An interrupt during a channel call would close the channel for every thread; keep it for later.
+        boolean interrupted = Thread.interrupted();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    fileLock = channel.lock(LOCK_POSITION, 1, false);
+                    return;
+                } catch (IOException e) {
+                    // OS locks belong to the whole process, so two processes whose threads each hold one
+                    // lock and wait for another can be refused as a "deadlock"; back off and try again.
+                    if (attempt == MAX_ATTEMPTS) {
+                        local.unlock();
+                        throw new UncheckedIOException("Could not lock '" + name + "' for other processes", e);
+                    }
+                    try {
+                        Thread.sleep(Math.min(50, 1 + attempt));
+                    } catch (InterruptedException ie) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    public void unlock() {
+        if (local.getHoldCount() == 1 && fileLock != null) {
+            boolean interrupted = Thread.interrupted();
+            try {
+                fileLock.release();
+            } catch (IOException e) {
+                System.err.println("Could not release data lock '" + name + "': " + e.getMessage());
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+            fileLock = null;
+        }
+        local.unlock();
+    }
+
+    public boolean isHeldByCurrentThread() {
+        return local.isHeldByCurrentThread();
+    }
+
+    /**
+     * Current version; changes whenever a writer (in any process) committed under this lock.
+     * Another process's commit shows up within {@link #REREAD_MS} ms, or at once while holding the lock.
+     */
+    public long version() {
+        if (channel == null) return localVersion;
+        long now = System.nanoTime();
+        if (!local.isHeldByCurrentThread() && now - cachedAt < TimeUnit.MILLISECONDS.toNanos(REREAD_MS)) {
+            return cachedVersion;
+        }
+        return readVersion(now);
+    }
+
+    /** Announces a commit. Call while holding the lock, after the files were written. Returns the new version. */
+    public long changed() {
+        if (!local.isHeldByCurrentThread()) throw new IllegalStateException("Data lock '" + name + "' is not held");
+        if (channel == null) return ++localVersion;
+        long v = readVersion(System.nanoTime()) + 1;
+        boolean interrupted = Thread.interrupted();
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(Long.BYTES).putLong(0, v);
+            while (buf.hasRemaining()) channel.write(buf, buf.position());
+            channel.force(false);
+        } catch (IOException e) {
+            // The files are already committed; other processes notice them by FileStamp instead.
+            System.err.println("Could not update data lock '" + name + "': " + e.getMessage());
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        cachedVersion = v;
+        cachedAt = System.nanoTime();
+        return v;
+    }
+
+    private long readVersion(long now) {
+        // Same as lock(): an interrupt during the read would close the channel for every thread.
+        boolean interrupted = Thread.interrupted();
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+            while (buf.hasRemaining() && channel.read(buf, buf.position()) >= 0) { }
+            long v = buf.hasRemaining() ? 0 : buf.getLong(0); // a new lock file is empty
+            cachedVersion = v;
+            cachedAt = now;
+            return v;
+        } catch (IOException e) {
+            System.err.println("Could not read data lock '" + name + "': " + e.getMessage());
+            return cachedVersion;
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
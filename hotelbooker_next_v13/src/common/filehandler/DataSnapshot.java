@@ -0,0 +1,392 @@
+package common.filehandler;
+
+import common.model.Booking;
+import common.model.Payment;
+import common.model.Review;
+import common.model.Room;
+import common.model.User;
+
+import java.io.*;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of the resident tables (data/snapshot.bin) used to skip text parsing on cold start.
+ *
+ * Layout:
+ * <pre>
+ *   int magic, int version, int sectionCount
+ *   per section: name, int fileCount, (path, long size, long modified) * fileCount, int length, byte[length] rows
+ *   long CRC32 of everything above
+ * </pre>
+ * Each section records the {@link FileStamp}s of the text files it was built from. A table boots
+ * from its section only when those files are still exactly the same on disk; otherwise (or if the
+ * snapshot is missing, from another version, or fails the checksum) it parses the text files as usual.
+ * The snapshot is rewritten in the background after a table is parsed from text or the journal is
+ * checkpointed; it is only a cache and can be deleted at any time.
+ */
+public final class DataSnapshot {
+    private static final Path FILE = Paths.get("data", "snapshot.bin");
+    private static final int MAGIC = 0x48425331; // "HBS1"
+    private static final int VERSION = 3;
+    private static final long WRITE_DELAY_MS = 2000;
+
+    private static final Map<String, ResidentTable<?>> TABLES = new LinkedHashMap<>();
+    private static SoftReference<Image> cached = new SoftReference<>(null);
+    private static ScheduledExecutorService writer;
+    private static ScheduledFuture<?> pendingWrite;
+
+    private DataSnapshot() {}
+
+    /** Row encoding for one section. */
+    public interface Codec<T> {
+        void write(DataOutputStream out, T row) throws IOException;
+
+        T read(ByteBuffer in);
+    }
+
+    static synchronized void register(String section, ResidentTable<?> table) {
+        TABLES.put(section, table);
+    }
+
+    /**
+     * Rows of {@code section} if the snapshot holds them for exactly these source stamps, else null.
+     */
+    static <T> List<T> restore(String section, List<FileStamp> stamps, Codec<T> codec) {
+        Image image = image();
+        Section s = image == null ? null : image.sections.get(section);
+        if (s == null || !s.stamps.equals(stamps)) return null;
+        try {
+            ByteBuffer in = ByteBuffer.wrap(s.rows);
+            int count = in.getInt();
+            List<T> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) rows.add(codec.read(in));
+            return rows;
+        } catch (RuntimeException e) {
+            System.err.println("Ignoring snapshot section " + section + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Asks for a snapshot rewrite; calls within a couple of seconds are coalesced into one write. */
+    public static synchronized void scheduleWrite() {
+        if (writer == null) {
+            writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "data-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        // A write that is still waiting will see this change too; one already running might not.
+        if (pendingWrite != null && pendingWrite.getDelay(TimeUnit.MILLISECONDS) > 0) return;
+        pendingWrite = writer.schedule(DataSnapshot::writeNow, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the snapshot now. Sections of tables that were not loaded in this process are carried
+     * over as long as their source files are unchanged.
+     */
+    public static void writeNow() {
+        Map<String, ResidentTable<?>> tables;
+        synchronized (DataSnapshot.class) {
+            tables = new LinkedHashMap<>(TABLES);
+        }
+        Image previous = image();
+        Map<String, Section> sections = new LinkedHashMap<>();
+        try {
+            // Rooms, payments and bookings are changed in place under TransactionFileHandler's lock.
+            synchronized (TransactionFileHandler.class) {
+                for (Map.Entry<String, ResidentTable<?>> e : tables.entrySet()) {
+                    Section s = encode(e.getValue());
+                    if (s != null) sections.put(e.getKey(), s);
+                }
+            }
+            if (previous != null) {
+                for (Map.Entry<String, Section> e : previous.sections.entrySet()) {
+                    if (!sections.containsKey(e.getKey()) && e.getValue().isCurrent()) sections.put(e.getKey(), e.getValue());
+                }
+            }
+            write(sections);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error writing snapshot: " + e);
+        }
+    }
+
+    private static <T> Section encode(ResidentTable<T> table) throws IOException {
+        ResidentTable.State<T> state = table.state();
+        if (state == null) return null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(state.rows().size());
+            for (T row : state.rows()) table.codec().write(out, row);
+        }
+        return new Section(state.files(), state.stamps(), bytes.toByteArray());
+    }
+
+    private static void write(Map<String, Section> sections) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sections.size());
+            for (Map.Entry<String, Section> e : sections.entrySet()) {
+                Section s = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeInt(s.stamps.size());
+                for (int i = 0; i < s.stamps.size(); i++) {
+                    out.writeUTF(s.files.get(i).toString());
+                    out.writeLong(s.stamps.get(i).size());
+                    out.writeLong(s.stamps.get(i).modifiedMillis());
+                }
+                out.writeInt(s.rows.length);
+                out.write(s.rows);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+        }
+
+        Files.createDirectories(FILE.getParent());
+        // Other processes sharing the data folder write the same temp file.
+        DataLock lock = DataLock.named("snapshot");
+        lock.lock();
+        try {
+            Path tmp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            try {
+                Files.move(tmp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, FILE, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            lock.unlock();
+        }
+        synchronized (DataSnapshot.class) {
+            cached = new SoftReference<>(new Image(FileStamp.of(FILE), sections));
+        }
+    }
+
+    // ---------------- reading ----------------
+
+    private record Section(List<Path> files, List<FileStamp> stamps, byte[] rows) {
+        boolean isCurrent() {
+            for (int i = 0; i < files.size(); i++) {
+                if (!FileStamp.of(files.get(i)).equals(stamps.get(i))) return false;
+            }
+            return true;
+        }
+    }
+
+    private record Image(FileStamp stamp, Map<String, Section> sections) {}
+
+    private static synchronized Image image() {
+        FileStamp stamp = FileStamp.of(FILE);
+        Image image = cached.get();
+        if (image != null && image.stamp.equals(stamp)) return image;
+        image = read(stamp);
+        cached = new SoftReference<>(image);
+        return image;
+    }
+
+    /** Parses the snapshot file; a missing or bad file gives an empty image so it is not re-read per table. */
+    private static Image read(FileStamp stamp) {
+        Image empty = new Image(stamp, Map.of());
+        if (stamp.equals(FileStamp.MISSING)) return empty;
+        try {
+            byte[] data = Files.readAllBytes(FILE);
+            if (data.length < 20) return empty;
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length - 8);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return empty;
+            long expected = new DataInputStream(new ByteArrayInputStream(data, data.length - 8, 8)).readLong();
+            if (crc.getValue() != expected) {
+                System.err.println("Snapshot checksum mismatch; falling back to text files.");
+                return empty;
+            }
+
+            int count = in.readInt();
+            Map<String, Section> sections = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int fileCount = in.readInt();
+                List<Path> files = new ArrayList<>(fileCount);
+                List<FileStamp> stamps = new ArrayList<>(fileCount);
+                for (int j = 0; j < fileCount; j++) {
+                    files.add(Paths.get(in.readUTF()));
+                    stamps.add(new FileStamp(in.readLong(), in.readLong()));
+                }
+                byte[] rows = new byte[in.readInt()];
+                in.readFully(rows);
+                sections.put(name, new Section(files, stamps, rows));
+            }
+            return new Image(stamp, sections);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable snapshot: " + e.getMessage());
+            return empty;
+        }
+    }
+
+    // ---------------- codecs ----------------
+
+    public static final Codec<Room> ROOMS = new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, Room r) throws IOException {
+            writeString(out, r.getId());
+            writeString(out, r.getHotelName());
+            writeString(out, r.getRoomType());
+            writeString(out, r.getLocation());
+            out.writeDouble(r.getPricePerNight());
+            out.writeDouble(r.getRating());
+            out.writeInt(r.getReviewCount());
+            String[] amenities = r.getAmenities() == null ? new String[0] : r.getAmenities();
+            out.writeInt(amenities.length);
+            for (String a : amenities) writeString(out, a);
+            out.writeInt(r.getCapacity());
+            out.writeInt(r.getUnits());
+            out.writeBoolean(r.isAvailable());
+            writeString(out, r.getImagePath());
+            out.writeDouble(r.getLatitude());
+            out.writeDouble(r.getLongitude());
+        }
+
+        @Override
+        public Room read(ByteBuffer in) {
+            String id = readString(in);
+            String hotelName = readString(in);
+            String roomType = readString(in);
+            String location = readString(in);
+            double price = in.getDouble();
+            double rating = in.getDouble();
+            int reviews = in.getInt();
+            String[] amenities = new String[in.getInt()];
+            for (int i = 0; i < amenities.length; i++) amenities[i] = readString(in);
+            int capacity = in.getInt();
+            int units = in.getInt();
+            boolean available = (in.get() != 0);
+            String imagePath = readString(in);
+            Room room = new Room(id, hotelName, roomType, location, price, rating, reviews, amenities, capacity, units, available, imagePath);
+            room.setCoordinates(in.getDouble(), in.getDouble());
+            return room;
+        }
+    };
+
+    public static final Codec<Booking> BOOKINGS = new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, Booking b) throws IOException {
+            writeString(out, b.getBookingId());
+            writeString(out, b.getGuestName());
+            writeString(out, b.getRoomId());
+            writeDate(out, b.getCheckInDate());
+            writeDate(out, b.getCheckOutDate());
+            out.writeInt(b.getNumberOfGuests());
+            out.writeDouble(b.getTotalPrice());
+            writeString(out, b.getStatus());
+        }
+
+        @Override
+        public Booking read(ByteBuffer in) {
+            return new Booking(readString(in), readString(in), readString(in), readDate(in), readDate(in),
+                    in.getInt(), in.getDouble(), readString(in));
+        }
+    };
+
+    public static final Codec<Payment> PAYMENTS = new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, Payment p) throws IOException {
+            writeString(out, p.getPaymentId());
+            writeString(out, p.getBookingId());
+            out.writeDouble(p.getAmount());
+            writeString(out, p.getPaymentMethod());
+            writeString(out, p.getStatus());
+            writeDateTime(out, p.getPaymentDate());
+        }
+
+        @Override
+        public Payment read(ByteBuffer in) {
+            return new Payment(readString(in), readString(in), in.getDouble(), readString(in), readString(in),
+                    readDateTime(in));
+        }
+    };
+
+    public static final Codec<User> USERS = new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, User u) throws IOException {
+            writeString(out, u.getUserId());
+            writeString(out, u.getFullName());
+            writeString(out, u.getEmail());
+            writeString(out, u.getPassword());
+            writeDateTime(out, u.getCreatedAt());
+        }
+
+        @Override
+        public User read(ByteBuffer in) {
+            return new User(readString(in), readString(in), readString(in), readString(in), readDateTime(in));
+        }
+    };
+
+    public static final Codec<Review> REVIEWS = new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, Review r) throws IOException {
+            writeString(out, r.getRoomId());
+            writeString(out, r.getUserEmail());
+            out.writeInt(r.getRating());
+            writeString(out, r.getComment());
+            writeDate(out, r.getDate());
+        }
+
+        @Override
+        public Review read(ByteBuffer in) {
+            return new Review(readString(in), readString(in), in.getInt(), readString(in), readDate(in));
+        }
+    };
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0) return null;
+        String s = new String(in.array(), in.arrayOffset() + in.position(), n, StandardCharsets.UTF_8);
+        in.position(in.position() + n);
+        return s;
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate d) throws IOException {
+        out.writeLong(d == null ? Long.MIN_VALUE : d.toEpochDay());
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        long day = in.getLong();
+        return day == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime t) throws IOException {
+        out.writeLong(t == null ? Long.MIN_VALUE : t.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(t == null ? 0 : t.getNano());
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return seconds == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
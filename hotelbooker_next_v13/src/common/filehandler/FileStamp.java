@@ -0,0 +1,25 @@
+package common.filehandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Size + last-modified fingerprint of a data file.
+ * Two equal stamps mean the file has not been rewritten or appended to since it was read.
+ */
+public record FileStamp(long size, long modifiedMillis) {
+
+    /** Stamp used for a file that does not exist (yet). */
+    public static final FileStamp MISSING = new FileStamp(-1, -1);
+
+    public static FileStamp of(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileStamp(attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return MISSING;
+        }
+    }
+}
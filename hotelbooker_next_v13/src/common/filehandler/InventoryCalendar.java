@@ -0,0 +1,196 @@
+package common.filehandler;
+
+import common.model.Booking;
+import common.util.IntervalMaxTree;
+import common.util.SettingsStore;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Per-room count of CONFIRMED bookings per night.
+ *
+ * Nights from a month ago up to {@code inventory.horizonDays} ahead (default two years) are kept
+ * as a plain int[] per room, so checking a stay is a max over a few array slots and a month of the
+ * admin calendar is a copy. The window moves forward with the date. Nights outside it come from an
+ * {@link IntervalMaxTree} per room (O(log days)), which counts every stay.
+ *
+ * Remembers the nights each booking was counted for, so a booking whose dates were changed in place
+ * before it was saved (reschedule) is still un-counted from its old nights.
+ *
+ * Not thread-safe: owned by {@link BookingStore}, under the {@link TransactionFileHandler} lock.
+ */
+final class InventoryCalendar {
+    private static final int PAST_DAYS = 31;
+    private static final int DEFAULT_HORIZON_DAYS = 730;
+
+    private record Stay(String roomKey, long fromDay, long toDay) {}
+
+    private static final class RoomNights {
+        final IntervalMaxTree tree = new IntervalMaxTree();
+        int[] window;
+        int windowTotal; // sum of window[], kept up to date as stays are counted
+    }
+
+    private final Map<String, RoomNights> byRoom = new HashMap<>();
+    private final Map<String, Stay> byBooking = new HashMap<>();
+    private boolean built;
+
+    // Epoch days covered by the int[] windows: [windowStart, windowEnd). Placed relative to windowDay.
+    private long windowDay = Long.MIN_VALUE;
+    private long windowStart, windowEnd;
+
+    boolean isBuilt() {
+        return built;
+    }
+
+    void build(Collection<Booking> bookings) {
+        invalidate();
+        placeWindow(LocalDate.now().toEpochDay());
+        for (Booking b : bookings) update(b);
+        built = true;
+    }
+
+    /** Drops everything; the next query rebuilds from the store. */
+    void invalidate() {
+        byRoom.clear();
+        byBooking.clear();
+        built = false;
+    }
+
+    /** Re-counts one booking after it was created or changed. */
+    void update(Booking b) {
+        if (b == null) return;
+        remove(b.getBookingId());
+        if (!isConfirmed(b) || b.getCheckInDate() == null || b.getCheckOutDate() == null) return;
+        Stay stay = new Stay(key(b.getRoomId()), b.getCheckInDate().toEpochDay(), b.getCheckOutDate().toEpochDay());
+        if (stay.fromDay() >= stay.toDay()) return;
+        count(stay, 1);
+        byBooking.put(key(b.getBookingId()), stay);
+    }
+
+    void remove(String bookingId) {
+        Stay stay = byBooking.remove(key(bookingId));
+        if (stay != null) count(stay, -1);
+    }
+
+    /**
+     * Most CONFIRMED bookings of the room on any night in [start, end), not counting
+     * {@code excludeBookingId} (may be null).
+     */
+    int peak(String roomId, LocalDate start, LocalDate end, String excludeBookingId) {
+        roll();
+        RoomNights room = byRoom.get(key(roomId));
+        if (room == null) return 0;
+        Stay excluded = excludeBookingId == null ? null : byBooking.get(key(excludeBookingId));
+        if (excluded != null && !excluded.roomKey().equals(key(roomId))) excluded = null;
+        return peakOf(room, start.toEpochDay(), end.toEpochDay(), excluded);
+    }
+
+    /**
+     * {@link #peak} of every room with at least one CONFIRMED booking, in one pass over the calendar.
+     * Keys are upper-cased room ids; rooms without bookings are absent.
+     */
+    Map<String, Integer> peakByRoom(LocalDate start, LocalDate end) {
+        roll();
+        long from = start.toEpochDay(), to = end.toEpochDay();
+        Map<String, Integer> out = new HashMap<>();
+        for (Map.Entry<String, RoomNights> e : byRoom.entrySet()) {
+            int peak = peakOf(e.getValue(), from, to, null);
+            if (peak > 0) out.put(e.getKey(), peak);
+        }
+        return out;
+    }
+
+    private int peakOf(RoomNights room, long from, long to, Stay excluded) {
+        if (from >= windowStart && to <= windowEnd) {
+            int max = 0;
+            for (long d = from; d < to; d++) {
+                int n = room.window[(int) (d - windowStart)];
+                if (excluded != null && d >= excluded.fromDay() && d < excluded.toDay()) n--;
+                if (n > max) max = n;
+            }
+            return max;
+        }
+        if (excluded == null) return room.tree.max(from, to);
+        room.tree.add(excluded.fromDay(), excluded.toDay(), -1);
+        try {
+            return room.tree.max(from, to);
+        } finally {
+            room.tree.add(excluded.fromDay(), excluded.toDay(), 1);
+        }
+    }
+
+    /**
+     * CONFIRMED room-nights per room (upper-cased id) from a month ago up to the horizon, i.e. how
+     * busy each room has been and is going to be. Kept as a running total, so this is one entry
+     * per room. Rooms without any are absent.
+     */
+    Map<String, Integer> nightsByRoom() {
+        roll();
+        Map<String, Integer> out = new HashMap<>();
+        for (Map.Entry<String, RoomNights> e : byRoom.entrySet()) {
+            if (e.getValue().windowTotal > 0) out.put(e.getKey(), e.getValue().windowTotal);
+        }
+        return out;
+    }
+
+    /** CONFIRMED bookings of the room for each night in [start, end), first night at index 0. */
+    int[] perNight(String roomId, LocalDate start, LocalDate end) {
+        roll();
+        long from = start.toEpochDay(), to = end.toEpochDay();
+        int[] out = new int[(int) Math.max(0, to - from)];
+        RoomNights room = byRoom.get(key(roomId));
+        if (room == null) return out;
+        for (long d = from; d < to; d++) {
+            out[(int) (d - from)] = d >= windowStart && d < windowEnd
+                    ? room.window[(int) (d - windowStart)]
+                    : room.tree.get(d);
+        }
+        return out;
+    }
+
+    // =============== helpers ===============
+    /** Moves the window when the date has changed since it was placed. */
+    private void roll() {
+        long today = LocalDate.now().toEpochDay();
+        if (today == windowDay) return;
+        placeWindow(today);
+        for (Stay stay : byBooking.values()) countInWindow(byRoom.get(stay.roomKey()), stay, 1);
+    }
+
+    private void placeWindow(long today) {
+        int horizon = Math.max(1, (int) SettingsStore.getRawDouble("inventory.horizonDays", DEFAULT_HORIZON_DAYS));
+        windowDay = today;
+        windowStart = today - PAST_DAYS;
+        windowEnd = today + horizon;
+        for (RoomNights room : byRoom.values()) {
+            room.window = new int[(int) (windowEnd - windowStart)];
+            room.windowTotal = 0;
+        }
+    }
+
+    private void count(Stay stay, int delta) {
+        RoomNights room = byRoom.computeIfAbsent(stay.roomKey(), r -> {
+            RoomNights n = new RoomNights();
+            n.window = new int[(int) (windowEnd - windowStart)];
+            return n;
+        });
+        room.tree.add(stay.fromDay(), stay.toDay(), delta);
+        countInWindow(room, stay, delta);
+    }
+
+    private void countInWindow(RoomNights room, Stay stay, int delta) {
+        long from = Math.max(stay.fromDay(), windowStart), to = Math.min(stay.toDay(), windowEnd);
+        for (long d = from; d < to; d++) room.window[(int) (d - windowStart)] += delta;
+        if (to > from) room.windowTotal += (int) (to - from) * delta;
+    }
+
+    private static boolean isConfirmed(Booking b) {
+        return b.getStatus() != null && b.getStatus().equalsIgnoreCase("CONFIRMED");
+    }
+
+    private static String key(String id) {
+        return id == null ? "" : id.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,309 @@
+package common.filehandler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Cursor over the fields of one {@code |}-delimited record, shared by all the text file readers.
+ *
+ * Scans the line char by char (no regex, no String[] per line) and parses ints, doubles and ISO
+ * dates straight from the line; a field is only copied into a String when one is asked for.
+ * One instance is meant to be reused for every line of a file:
+ * <pre>
+ *   RecordTokenizer t = new RecordTokenizer();
+ *   t.reset(line);
+ *   String id = t.nextString();
+ *   LocalDate checkIn = t.nextDate();
+ * </pre>
+ * Unless noted otherwise, accessors look at the field with surrounding whitespace trimmed.
+ * Not thread-safe.
+ */
+public final class RecordTokenizer {
+    private static final char SEP = '|';
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Largest mantissa a double holds exactly; below it, mantissa / 10^k is correctly rounded.
+    private static final long MAX_EXACT = 1L << 53;
+
+    private String line = "";
+    private int len;
+    private int next;          // start of the next field, or len + 1 when the line is used up
+    private int rawStart, rawEnd;
+    private int start, end;    // current field, trimmed
+
+    public RecordTokenizer reset(String line) {
+        this.line = line == null ? "" : line;
+        this.len = this.line.length();
+        this.next = 0;
+        this.rawStart = rawEnd = start = end = 0;
+        return this;
+    }
+
+    /** Number of fields in the line, like {@code line.split("\\|", -1).length}. */
+    public int fieldCount() {
+        int n = 1;
+        for (int i = 0; i < len; i++) {
+            if (line.charAt(i) == SEP) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Number of fields ignoring trailing empty ones, like {@code line.split("\\|").length}.
+     * The room schema detection depends on this count.
+     */
+    public int significantFieldCount() {
+        int n = 0;
+        int fields = 1;
+        int fieldStart = 0;
+        for (int i = 0; i <= len; i++) {
+            if (i == len || line.charAt(i) == SEP) {
+                if (i > fieldStart) n = fields;
+                fields++;
+                fieldStart = i + 1;
+            }
+        }
+        return len == 0 ? 1 : n;
+    }
+
+    public boolean hasNext() {
+        return next <= len;
+    }
+
+    /** Moves to the next field. Returns false (and leaves an empty current field) when there is none. */
+    public boolean next() {
+        if (next > len) {
+            rawStart = rawEnd = start = end = len;
+            return false;
+        }
+        int i = next;
+        while (i < len && line.charAt(i) != SEP) i++;
+        rawStart = next;
+        rawEnd = i;
+        next = i + 1;
+
+        int s = rawStart, e = rawEnd;
+        while (s < e && line.charAt(s) <= ' ') s++;
+        while (e > s && line.charAt(e - 1) <= ' ') e--;
+        start = s;
+        end = e;
+        return true;
+    }
+
+    /** Skips {@code n} fields. */
+    public void skip(int n) {
+        for (int i = 0; i < n; i++) next();
+    }
+
+    // =============== current field ===============
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    public String string() {
+        return line.substring(start, end);
+    }
+
+    /** The current field exactly as written (not trimmed). */
+    public String raw() {
+        return line.substring(rawStart, rawEnd);
+    }
+
+    public boolean is(String s) {
+        return s != null && s.length() == end - start && line.regionMatches(start, s, 0, s.length());
+    }
+
+    public boolean isIgnoreCase(String s) {
+        return s != null && s.length() == end - start && line.regionMatches(true, start, s, 0, s.length());
+    }
+
+    /** True for ids such as {@code R12}: one or more ASCII letters followed by one or more digits. */
+    public boolean isLettersThenDigits() {
+        int i = start;
+        while (i < end && isAsciiLetter(line.charAt(i))) i++;
+        if (i == start || i == end) return false;
+        while (i < end && isDigit(line.charAt(i))) i++;
+        return i == end;
+    }
+
+    public int intValue() {
+        int i = start;
+        boolean neg = false;
+        if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            neg = line.charAt(i) == '-';
+            i++;
+        }
+        // Up to 9 digits cannot overflow an int.
+        if (i == end || end - i > 9) return Integer.parseInt(string());
+        int v = 0;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (!isDigit(c)) return Integer.parseInt(string());
+            v = v * 10 + (c - '0');
+        }
+        return neg ? -v : v;
+    }
+
+    /**
+     * Parses plain decimals ({@code 299}, {@code -12.50}) directly; anything else (exponents,
+     * very long mantissas, NaN...) goes through {@link Double#parseDouble}, so results are identical.
+     */
+    public double doubleValue() {
+        int i = start;
+        boolean neg = false;
+        if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            neg = line.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (isDigit(c)) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction >= 0) fraction++;
+                if (mantissa >= MAX_EXACT) return Double.parseDouble(string());
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                return Double.parseDouble(string());
+            }
+        }
+        if (digits == 0 || fraction >= POW10.length) return Double.parseDouble(string());
+        double v = fraction > 0 ? mantissa / POW10[fraction] : mantissa;
+        return neg ? -v : v;
+    }
+
+    /** Same rule as {@link Boolean#parseBoolean}: true only for "true", ignoring case. */
+    public boolean booleanValue() {
+        return isIgnoreCase("true");
+    }
+
+    /** ISO {@code yyyy-MM-dd}. */
+    public LocalDate date() {
+        if (end - start == 10 && isDateAt(start)) {
+            return LocalDate.of(digits(start, 4), digits(start + 5, 2), digits(start + 8, 2));
+        }
+        return LocalDate.parse(string());
+    }
+
+    /** ISO {@code yyyy-MM-ddTHH:mm[:ss[.fraction]]}, as written by {@link LocalDateTime#toString()}. */
+    public LocalDateTime dateTime() {
+        int n = end - start;
+        if (n >= 16 && isDateAt(start) && line.charAt(start + 10) == 'T'
+                && isDigits(start + 11, 2) && line.charAt(start + 13) == ':' && isDigits(start + 14, 2)) {
+            int second = 0;
+            int nanos = 0;
+            boolean ok = n == 16;
+            if (n >= 19 && line.charAt(start + 16) == ':' && isDigits(start + 17, 2)) {
+                second = digits(start + 17, 2);
+                ok = n == 19;
+                if (n > 20 && n <= 29 && line.charAt(start + 19) == '.' && isDigits(start + 20, n - 20)) {
+                    nanos = digits(start + 20, n - 20);
+                    for (int k = n - 20; k < 9; k++) nanos *= 10;
+                    ok = true;
+                }
+            }
+            if (ok) {
+                return LocalDateTime.of(digits(start, 4), digits(start + 5, 2), digits(start + 8, 2),
+                        digits(start + 11, 2), digits(start + 14, 2), second, nanos);
+            }
+        }
+        return LocalDateTime.parse(string());
+    }
+
+    /** Splits the current field on {@code sep}, trimming each item, like {@code string().split(",")}. */
+    public String[] list(char sep) {
+        if (start == end) return new String[]{""};
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) == sep) count++;
+        }
+        String[] items = new String[count];
+        int n = 0, itemStart = start, keep = 0;
+        for (int i = start; i <= end; i++) {
+            if (i == end || line.charAt(i) == sep) {
+                items[n++] = trimmed(itemStart, i);
+                if (i > itemStart) keep = n; // split() drops trailing empty items
+                itemStart = i + 1;
+            }
+        }
+        if (keep == count) return items;
+        String[] out = new String[keep];
+        System.arraycopy(items, 0, out, 0, keep);
+        return out;
+    }
+
+    // =============== next field ===============
+    public String nextString() {
+        next();
+        return string();
+    }
+
+    public String nextRaw() {
+        next();
+        return raw();
+    }
+
+    public int nextInt() {
+        next();
+        return intValue();
+    }
+
+    public double nextDouble() {
+        next();
+        return doubleValue();
+    }
+
+    public boolean nextBoolean() {
+        next();
+        return booleanValue();
+    }
+
+    public LocalDate nextDate() {
+        next();
+        return date();
+    }
+
+    public LocalDateTime nextDateTime() {
+        next();
+        return dateTime();
+    }
+
+    // =============== helpers ===============
+    private String trimmed(int s, int e) {
+        while (s < e && line.charAt(s) <= ' ') s++;
+        while (e > s && line.charAt(e - 1) <= ' ') e--;
+        return line.substring(s, e);
+    }
+
+    private boolean isDateAt(int i) {
+        return isDigits(i, 4) && line.charAt(i + 4) == '-' && isDigits(i + 5, 2)
+                && line.charAt(i + 7) == '-' && isDigits(i + 8, 2);
+    }
+
+    private boolean isDigits(int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            if (!isDigit(line.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private int digits(int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) v = v * 10 + (line.charAt(i) - '0');
+        return v;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+}
@@ -0,0 +1,138 @@
+package common.filehandler;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copy of one logical data set (a data file, optionally plus the journal replayed on top).
+ *
+ * Rows are parsed once and served from memory. The table reloads only when one of its files'
+ * {@link FileStamp} changes on disk (e.g. edited by hand or restored from a backup).
+ * Writers update the rows in place and then call {@link #touch()} so their own write
+ * does not trigger a reload; tables read without the writer's lock publish a new list with
+ * {@link #publish} instead. {@link DataSnapshot} copies the rows under the writers' lock.
+ *
+ * A table can also follow a {@link DataLock}'s version, so a commit by another process is noticed
+ * even when the file's size and modified-time happen to look unchanged.
+ *
+ * A table created with a snapshot section boots from {@link DataSnapshot} when the snapshot was
+ * taken from exactly the files on disk, and asks for a new snapshot whenever it had to parse text.
+ */
+public final class ResidentTable<T> {
+    private final List<Path> files;
+    private final Supplier<List<T>> loader;
+    private final String section;
+    private final DataSnapshot.Codec<T> codec;
+    private Consumer<List<T>> onLoad = rows -> { };
+    private DataLock lock;
+
+    private List<T> rows;
+    private List<FileStamp> stamps = List.of();
+    private long version;
+    private long revision;
+
+    public ResidentTable(Path file, Supplier<List<T>> loader, String section, DataSnapshot.Codec<T> codec) {
+        this(List.of(file), loader, section, codec);
+    }
+
+    public ResidentTable(List<Path> files, Supplier<List<T>> loader, String section, DataSnapshot.Codec<T> codec) {
+        this.files = List.copyOf(files);
+        this.loader = loader;
+        this.section = section;
+        this.codec = codec;
+        if (section != null) DataSnapshot.register(section, this);
+    }
+
+    /** Runs on every freshly loaded row list (from text or snapshot), before it is handed out. */
+    ResidentTable<T> onLoad(Consumer<List<T>> onLoad) {
+        this.onLoad = onLoad;
+        return this;
+    }
+
+    /** Also reload whenever {@code lock}'s version moves, i.e. after any commit under it. */
+    public ResidentTable<T> versionedBy(DataLock lock) {
+        this.lock = lock;
+        return this;
+    }
+
+    /** Live rows (reloaded first if a file changed). Callers must not hand this list out. */
+    public synchronized List<T> rows() {
+        long v = lock == null ? 0 : lock.version();
+        List<FileStamp> now = currentStamps();
+        if (rows == null || v != version || !now.equals(stamps)) {
+            // Take the stamps before parsing: a write racing the load just causes another reload.
+            stamps = now;
+            version = v;
+            List<T> restored = section == null ? null : DataSnapshot.restore(section, now, codec);
+            if (restored != null) {
+                rows = new ArrayList<>(restored);
+            } else {
+                rows = new ArrayList<>(loader.get());
+                if (section != null) DataSnapshot.scheduleWrite();
+            }
+            onLoad.accept(rows);
+            revision++;
+        }
+        return rows;
+    }
+
+    /**
+     * Counter that moves whenever the rows may have changed: on every (re)load and every
+     * {@link #touch()} after a write. Lets callers keep derived structures (indexes) until it moves.
+     */
+    public synchronized long revision() {
+        rows();
+        return revision;
+    }
+
+    public synchronized boolean isLoaded() {
+        return rows != null;
+    }
+
+    /**
+     * Re-reads the stamps after this process wrote the files itself (and, for a versioned table,
+     * announced it with {@link DataLock#changed()}).
+     */
+    public synchronized void touch() {
+        stamps = currentStamps();
+        if (lock != null) version = lock.version();
+        revision++;
+    }
+
+    /**
+     * Replaces the rows with a copy of {@code updated} after this process wrote the files itself,
+     * like {@link #touch()}. Lists handed out earlier are left as they were, so readers that do not
+     * share the writer's lock can keep iterating them.
+     */
+    public synchronized void publish(List<T> updated) {
+        rows = new ArrayList<>(updated);
+        touch();
+    }
+
+    /** Drops the in-memory rows; the next read parses the files again. */
+    public synchronized void invalidate() {
+        rows = null;
+        stamps = List.of();
+    }
+
+    /** Rows and the stamps they correspond to, or null if the table was never loaded. */
+    synchronized State<T> state() {
+        if (rows == null) return null;
+        return new State<>(files, stamps, new ArrayList<>(rows));
+    }
+
+    DataSnapshot.Codec<T> codec() {
+        return codec;
+    }
+
+    record State<T>(List<Path> files, List<FileStamp> stamps, List<T> rows) {}
+
+    private List<FileStamp> currentStamps() {
+        List<FileStamp> out = new ArrayList<>(files.size());
+        for (Path f : files) out.add(FileStamp.of(f));
+        return out;
+    }
+}
@@ -3,6 +3,7 @@ package common.filehandler;
 import common.model.Room;
 import common.model.Booking;
 import common.model.Payment;
+import common.util.SettingsStore;
 import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDate;
@@ -13,8 +14,32 @@ public class TransactionFileHandler {
     private static final String DATA_DIR = "data";
     private static final String MASTER_DIR = DATA_DIR + File.separator + "master";
     private static final String ROOMS_FILE = MASTER_DIR + File.separator + "rooms.txt";
-    private static final String BOOKINGS_FILE = DATA_DIR + File.separator + "bookings.txt";
+    private static final String BOOKINGS_DIR = DATA_DIR + File.separator + "bookings";
+    // Pre-partitioning flat file; migrated into BOOKINGS_DIR when found.
+    private static final String LEGACY_BOOKINGS_FILE = DATA_DIR + File.separator + "bookings.txt";
     private static final String PAYMENTS_FILE = DATA_DIR + File.separator + "payments.txt";
+    private static final String JOURNAL_FILE = DATA_DIR + File.separator + "journal.txt";
+
+    // Commits are serialized with the other HotelBooker processes sharing the data folder.
+    // "bookings" covers the journal, the booking partitions and payments.txt.
+    private static final DataLock ROOMS_LOCK = DataLock.named("rooms");
+    private static final DataLock BOOKINGS_LOCK = DataLock.named("bookings");
+
+    // Booking/payment mutations are appended here; the booking partitions and payments.txt are checkpoints.
+    private static final BookingJournal JOURNAL = new BookingJournal(Paths.get(JOURNAL_FILE), BOOKINGS_LOCK);
+    private static final int DEFAULT_CHECKPOINT_EVERY = 500;
+
+    // Resident copies of the data files. All reads are served from memory; a table only
+    // re-parses its file when the file's size/mtime (or its lock's version) changes.
+    private static final ResidentTable<Room> ROOMS = new ResidentTable<>(
+            Paths.get(ROOMS_FILE), TransactionFileHandler::loadRoomsFromDisk, "rooms", DataSnapshot.ROOMS)
+            .versionedBy(ROOMS_LOCK);
+    private static final BookingStore BOOKINGS =
+            new BookingStore(Paths.get(BOOKINGS_DIR), Paths.get(LEGACY_BOOKINGS_FILE));
+    // payments.txt plus the journal's payment records; later records are applied as they are polled.
+    private static final ResidentTable<Payment> PAYMENTS = new ResidentTable<>(
+            Paths.get(PAYMENTS_FILE), TransactionFileHandler::loadPaymentsFromDisk, "payments", DataSnapshot.PAYMENTS)
+            .onLoad(rows -> JOURNAL.applyPayments(rows, JOURNAL.records()));
 
     static {
         // Create directories if they don't exist
@@ -27,7 +52,59 @@ public class TransactionFileHandler {
     }
 
     // =============== ROOM OPERATIONS ===============
-    public static List<Room> readRoomsFromFile() {
+    /**
+     * Returns all rooms. The list is a fresh copy (safe to sort/filter); the Room objects are shared,
+     * so persist any change through {@link #updateRoom(Room)}.
+     */
+    public static synchronized List<Room> readRoomsFromFile() {
+        return new ArrayList<>(ROOMS.rows());
+    }
+
+    /**
+     * Changes whenever the room list may have changed (reloaded, or saved by this process), so
+     * callers can keep structures derived from the rooms until it moves.
+     */
+    public static synchronized long roomsRevision() {
+        return ROOMS.revision();
+    }
+
+    /**
+     * Changes whenever rooms were committed, by this or another process. Unlike {@link #roomsRevision()}
+     * it never waits for another reader or writer, so the EDT can ask.
+     */
+    public static long roomsVersion() {
+        return ROOMS_LOCK.version();
+    }
+
+    /**
+     * CONFIRMED room-nights per room (upper-cased id) from a month ago up to the inventory horizon;
+     * a measure of how sought-after each room is. Rooms without any are absent.
+     */
+    public static synchronized Map<String, Integer> confirmedNightsByRoom() {
+        syncJournal();
+        return BOOKINGS.confirmedNightsByRoom();
+    }
+
+    /**
+     * Changes whenever bookings or payments were committed, by this or another process, so callers
+     * can keep results derived from availability until it moves.
+     */
+    public static long bookingsRevision() {
+        return BOOKINGS_LOCK.version();
+    }
+
+    /**
+     * Looks up a single room by id (case-insensitive) without copying the catalog.
+     */
+    public static synchronized Room findRoomById(String roomId) {
+        if (roomId == null) return null;
+        for (Room r : ROOMS.rows()) {
+            if (r != null && roomId.equalsIgnoreCase(r.getId())) return r;
+        }
+        return null;
+    }
+
+    private static List<Room> loadRoomsFromDisk() {
         List<Room> rooms = new ArrayList<>();
         File file = new File(ROOMS_FILE);
 
@@ -37,13 +114,14 @@ public class TransactionFileHandler {
         }
 
         try (BufferedReader reader = new BufferedReader(new FileReader(ROOMS_FILE))) {
+            RecordTokenizer tokenizer = new RecordTokenizer();
             String line;
             int id = 1;
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
                 if (line.isEmpty() || line.startsWith("#")) continue;
 
-                Room room = parseRoomLine(line, "R" + id);
+                Room room = parseRoomLine(tokenizer, line, "R" + id);
                 if (room != null) {
                     rooms.add(room);
                     id++;
@@ -56,74 +134,91 @@ public class TransactionFileHandler {
         return rooms;
     }
 
-    private static Room parseRoomLine(String line, String fallbackRoomId) {
+    private static Room parseRoomLine(RecordTokenizer t, String line, String fallbackRoomId) {
         // Supported schemas:
         // 1) (legacy) hotel|location|price|rating|reviews|amenities|capacity|available
         // 2) (v11) id|hotel|location|price|rating|reviews|amenities|capacity|available|imagePath
         // 3) (v12) id|hotel|location|price|rating|reviews|amenities|capacity|units|available|imagePath
         // 4) (v13) id|hotel|roomType|location|price|rating|reviews|amenities|capacity|units|available|imagePath
-        String[] parts = line.split("\\|");
-        if (parts.length < 7) return null;
+        // 5) (v14) v13 + |latitude|longitude (optional)
+        int fields = t.reset(line).significantFieldCount();
+        if (fields < 7) return null;
 
         try {
             int idx = 0;
             String id;
             // If the first column looks like an id (e.g. R1), use it.
-            if (parts[0].trim().matches("[A-Za-z]+\\d+")) {
-                id = parts[0].trim();
+            t.next();
+            if (t.isLettersThenDigits()) {
+                id = t.string();
                 idx = 1;
+                t.next();
             } else {
                 id = fallbackRoomId;
             }
 
-            String hotelName = parts[idx++].trim();
+            String hotelName = t.string();
+            idx++;
 
             // v13 introduces roomType as the next column after hotelName.
             String roomType = "Standard Room";
-            if (parts.length >= idx + 10) {
-                roomType = parts[idx++].trim();
+            if (fields >= idx + 10) {
+                roomType = t.nextString();
+                idx++;
             }
 
-            String location = parts[idx++].trim();
-            double price = Double.parseDouble(parts[idx++].trim());
-            double rating = Double.parseDouble(parts[idx++].trim());
-            int reviews = Integer.parseInt(parts[idx++].trim());
-            String[] amenities = parts[idx++].trim().split(",");
-            int capacity = Integer.parseInt(parts[idx++].trim());
+            String location = t.nextString();
+            double price = t.nextDouble();
+            double rating = t.nextDouble();
+            int reviews = t.nextInt();
+            t.next();
+            String[] amenities = t.list(',');
+            int capacity = t.nextInt();
+            idx += 6;
 
             int units = 1;
             boolean available = true;
             String imagePath = "";
 
+            t.next();
             // v12 has an extra "units" column before the available flag.
-            if (parts.length >= idx + 3) {
+            if (fields >= idx + 3) {
                 // Try parse units; if it fails, fall back to v11 behavior.
                 try {
-                    units = Integer.parseInt(parts[idx].trim());
+                    units = t.intValue();
                     idx++;
+                    t.next();
                 } catch (Exception ignore) {
                     units = 1;
                 }
             }
 
             // available flag
-            if (parts.length > idx) {
-                available = Boolean.parseBoolean(parts[idx++].trim());
+            if (fields > idx) {
+                available = t.booleanValue();
+                idx++;
+                t.next();
             }
             // image path
-            if (parts.length > idx) {
-                imagePath = parts[idx].trim();
+            if (fields > idx) {
+                imagePath = t.string();
+                idx++;
             }
 
             if (imagePath == null || imagePath.isBlank()) {
                 imagePath = "assets/images/city_center.jpg";
             }
 
-            for (int i = 0; i < amenities.length; i++) {
-                amenities[i] = amenities[i].trim();
+            Room room = new Room(id, hotelName, roomType, location, price, rating, reviews, amenities, capacity, units, available, imagePath);
+            // v14 latitude/longitude; a bad pair just leaves the room without a position.
+            if (fields >= idx + 2) {
+                try {
+                    room.setCoordinates(t.nextDouble(), t.nextDouble());
+                } catch (Exception ignore) {
+                    System.err.println("Ignoring bad coordinates for room " + id);
+                }
             }
-
-            return new Room(id, hotelName, roomType, location, price, rating, reviews, amenities, capacity, units, available, imagePath);
+            return room;
         } catch (Exception e) {
             System.err.println("Error parsing room line: " + line + " - " + e.getMessage());
             return null;
@@ -150,79 +245,177 @@ public class TransactionFileHandler {
         }
     }
 
-    public static void saveRoom(Room room) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(ROOMS_FILE, true))) {
-            writer.println(room.toString());
-            writer.flush();
-        } catch (IOException e) {
-            System.err.println("Error saving room: " + e.getMessage());
+    /** Appends a room. Returns false if it could not be written. */
+    public static synchronized boolean saveRoom(Room room) {
+        if (!lockRooms()) return false;
+        try {
+            List<Room> rooms = ROOMS.rows();
+            try (PrintWriter writer = new PrintWriter(new FileWriter(ROOMS_FILE, true))) {
+                writer.println(room.toString());
+                writer.flush();
+                if (writer.checkError()) throw new IOException("write failed");
+                rooms.add(room);
+                ROOMS_LOCK.changed();
+            } catch (IOException e) {
+                System.err.println("Error saving room: " + e.getMessage());
+                ROOMS.invalidate();
+                return false;
+            }
+            ROOMS.touch();
+            return true;
+        } finally {
+            ROOMS_LOCK.unlock();
         }
     }
 
     /**
      * Update (replace) a room by id.
-     * This rewrites the rooms file to keep data consistent.
+     * This rewrites the rooms file to keep data consistent. Returns false if it could not be written.
      */
-    public static void updateRoom(Room updated) {
-        List<Room> rooms = readRoomsFromFile();
-        boolean replaced = false;
-        for (int i = 0; i < rooms.size(); i++) {
-            if (rooms.get(i).getId().equals(updated.getId())) {
-                rooms.set(i, updated);
-                replaced = true;
-                break;
+    public static synchronized boolean updateRoom(Room updated) {
+        if (!lockRooms()) {
+            // Callers may have changed the shared Room in place; forget it.
+            ROOMS.invalidate();
+            return false;
+        }
+        try {
+            List<Room> rooms = ROOMS.rows();
+            boolean replaced = false;
+            for (int i = 0; i < rooms.size(); i++) {
+                if (rooms.get(i).getId().equals(updated.getId())) {
+                    rooms.set(i, updated);
+                    replaced = true;
+                    break;
+                }
+            }
+            if (!replaced) rooms.add(updated);
+
+            try {
+                writeAtomically(Paths.get(ROOMS_FILE), rooms);
+                ROOMS_LOCK.changed();
+            } catch (IOException e) {
+                System.err.println("Error updating room: " + e.getMessage());
+                ROOMS.invalidate();
+                return false;
             }
+            ROOMS.touch();
+            return true;
+        } finally {
+            ROOMS_LOCK.unlock();
         }
-        if (!replaced) rooms.add(updated);
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(ROOMS_FILE, false))) {
-            for (Room r : rooms) {
-                writer.println(r.toString());
+    /**
+     * Deletes a room by id and rewrites the rooms file. Returns false if there is no such room or
+     * the change could not be written.
+     */
+    public static synchronized boolean deleteRoom(String roomId) {
+        if (roomId == null) return false;
+        if (!lockRooms()) return false;
+        try {
+            List<Room> rooms = ROOMS.rows();
+            if (!rooms.removeIf(r -> r != null && roomId.equalsIgnoreCase(r.getId()))) return false;
+
+            try {
+                writeAtomically(Paths.get(ROOMS_FILE), rooms);
+                ROOMS_LOCK.changed();
+            } catch (IOException e) {
+                System.err.println("Error deleting room: " + e.getMessage());
+                ROOMS.invalidate();
+                return false;
             }
-            writer.flush();
-        } catch (IOException e) {
-            System.err.println("Error updating room: " + e.getMessage());
+            ROOMS.touch();
+            return true;
+        } finally {
+            ROOMS_LOCK.unlock();
+        }
+    }
+
+    /** Takes the rooms lock; false (logged) if it could not be taken, e.g. another terminal is stuck holding it. */
+    private static boolean lockRooms() {
+        try {
+            ROOMS_LOCK.lock();
+            return true;
+        } catch (UncheckedIOException e) {
+            System.err.println("Error locking rooms file: " + e.getMessage());
+            return false;
         }
     }
 
     // =============== BOOKING OPERATIONS ===============
-    public static List<Booking> readBookingsFromFile() {
-        List<Booking> bookings = new ArrayList<>();
-        File file = new File(BOOKINGS_FILE);
+    /**
+     * Returns all bookings as a fresh list over the shared in-memory Booking objects.
+     * Persist any change through {@link #updateBooking(Booking)}.
+     */
+    public static synchronized List<Booking> readBookingsFromFile() {
+        syncJournal();
+        return BOOKINGS.all();
+    }
 
-        if (!file.exists()) return bookings;
+    /**
+     * Returns the bookings whose stay overlaps [from, to) (either bound may be null for "open").
+     * Only the monthly booking files that can contain such stays are read.
+     */
+    public static synchronized List<Booking> readBookingsForRange(LocalDate from, LocalDate to) {
+        syncJournal();
+        return BOOKINGS.range(from, to);
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(BOOKINGS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) continue;
+    /**
+     * Highest number of CONFIRMED bookings of a room on any single night in [start, end),
+     * optionally ignoring one booking (e.g. the one being rescheduled). Answered from the
+     * per-room inventory calendar, without walking any bookings.
+     */
+    public static synchronized int peakConfirmedBookings(String roomId, LocalDate start, LocalDate end, String excludeBookingId) {
+        if (roomId == null || start == null || end == null || !start.isBefore(end)) return 0;
+        syncJournal();
+        return BOOKINGS.peakConfirmed(roomId, start, end, excludeBookingId);
+    }
 
-                Booking booking = parseBookingLine(line);
-                if (booking != null) {
-                    bookings.add(booking);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading bookings file: " + e.getMessage());
-        }
+    /**
+     * {@link #peakConfirmedBookings} for every room at once, keyed by upper-cased room id.
+     * Rooms without CONFIRMED bookings in the range are absent.
+     */
+    public static synchronized Map<String, Integer> peakConfirmedBookingsByRoom(LocalDate start, LocalDate end) {
+        if (start == null || end == null || !start.isBefore(end)) return Map.of();
+        syncJournal();
+        return BOOKINGS.peakConfirmedByRoom(start, end);
+    }
 
-        return bookings;
+    /**
+     * Number of CONFIRMED bookings of a room for each night in [start, end) (index 0 = start).
+     */
+    public static synchronized int[] confirmedBookingsPerNight(String roomId, LocalDate start, LocalDate end) {
+        if (roomId == null || start == null || end == null || !start.isBefore(end)) return new int[0];
+        syncJournal();
+        return BOOKINGS.confirmedPerNight(roomId, start, end);
     }
 
-    private static Booking parseBookingLine(String line) {
-        String[] parts = line.split("\\|");
-        if (parts.length < 8) return null;
+    /**
+     * Looks up a single booking by id (case-insensitive) without copying the list.
+     */
+    public static synchronized Booking findBookingById(String bookingId) {
+        if (bookingId == null) return null;
+        syncJournal();
+        return BOOKINGS.find(bookingId);
+    }
+
+    static Booking parseBookingLine(String line) {
+        return parseBookingLine(new RecordTokenizer(), line);
+    }
+
+    static Booking parseBookingLine(RecordTokenizer t, String line) {
+        if (t.reset(line).significantFieldCount() < 8) return null;
 
         try {
-            String bookingId = parts[0].trim();
-            String guestName = parts[1].trim();
-            String roomId = parts[2].trim();
-            LocalDate checkIn = LocalDate.parse(parts[3].trim());
-            LocalDate checkOut = LocalDate.parse(parts[4].trim());
-            int guests = Integer.parseInt(parts[5].trim());
-            double totalPrice = Double.parseDouble(parts[6].trim());
-            String status = parts[7].trim();
+            String bookingId = t.nextString();
+            String guestName = t.nextString();
+            String roomId = t.nextString();
+            LocalDate checkIn = t.nextDate();
+            LocalDate checkOut = t.nextDate();
+            int guests = t.nextInt();
+            double totalPrice = t.nextDouble();
+            String status = t.nextString();
 
             return new Booking(bookingId, guestName, roomId, checkIn, checkOut, guests, totalPrice, status);
         } catch (Exception e) {
@@ -231,55 +424,114 @@ public class TransactionFileHandler {
         }
     }
 
-    public static void saveBooking(Booking booking) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(BOOKINGS_FILE, true))) {
-            writer.println(booking.toString());
-            writer.flush();
-        } catch (IOException e) {
-            System.err.println("Error saving booking: " + e.getMessage());
-        }
+    /**
+     * Records a new booking (one journal append).
+     */
+    public static synchronized void saveBooking(Booking booking) {
+        commitBooking(booking, null, true, -1);
+    }
+
+    /**
+     * Records a new booking and its payment unless one of its nights already has {@code units}
+     * CONFIRMED bookings of the room. The check and the append happen under the bookings lock after
+     * catching up with the journal, so terminals sharing the data folder cannot sell the same last
+     * unit; both records go into the journal in one write, so neither is kept without the other.
+     */
+    public static synchronized boolean saveBookingIfAvailable(Booking booking, Payment payment, int units) {
+        return commitBooking(booking, payment, true, units);
+    }
+
+    /**
+     * Update (replace) a booking by id, e.g. after a reschedule.
+     * Costs one journal append; the monthly booking files are rewritten only at the next checkpoint.
+     */
+    public static synchronized void updateBooking(Booking updated) {
+        commitBooking(updated, null, false, -1);
+    }
+
+    /**
+     * Same as {@link #updateBooking(Booking)}, but only if the stored booking is still CONFIRMED and
+     * the new stay fits in {@code units} (its own current stay not counted). Checked under the
+     * bookings lock, so a cancel from another thread or terminal is not written over.
+     */
+    public static synchronized boolean updateBookingIfAvailable(Booking updated, int units) {
+        return commitBooking(updated, null, false, units);
     }
 
     /**
-     * Update (replace) a booking by id.
-     * Rewrites the bookings file to keep data consistent.
+     * Appends a BOOKING record (plus a PAYMENT record if {@code payment} is not null); with
+     * {@code units} >= 0, only if the stay still fits the room.
      */
-    public static void updateBooking(Booking updated) {
-        List<Booking> bookings = readBookingsFromFile();
-        boolean replaced = false;
-        for (int i = 0; i < bookings.size(); i++) {
-            if (bookings.get(i).getBookingId().equalsIgnoreCase(updated.getBookingId())) {
-                bookings.set(i, updated);
-                replaced = true;
-                break;
+    private static boolean commitBooking(Booking b, Payment payment, boolean isNew, int units) {
+        boolean ok = false;
+        beginJournalWrite();
+        try {
+            if (units >= 0 && !isNew) {
+                Booking stored = BOOKINGS.find(b.getBookingId());
+                if (stored == null || !"CONFIRMED".equalsIgnoreCase(stored.getStatus())) return false;
+            }
+            if (units >= 0 && "CONFIRMED".equalsIgnoreCase(b.getStatus())
+                    && BOOKINGS.peakConfirmed(b.getRoomId(), b.getCheckInDate(), b.getCheckOutDate(),
+                            isNew ? null : b.getBookingId()) >= units) {
+                return false;
             }
+            String previousMonth = isNew ? BookingStore.NEW : BOOKINGS.locate(b.getBookingId());
+            List<String[]> recs = new ArrayList<>();
+            recs.add(new String[]{BookingJournal.BOOKING, b + "|" + previousMonth});
+            if (payment != null) recs.add(new String[]{BookingJournal.PAYMENT, payment.toString()});
+            ok = appendToJournal(recs);
+            if (ok) {
+                BOOKINGS.put(b, previousMonth);
+                if (payment != null) PAYMENTS.rows().add(payment);
+            }
+            return ok;
+        } finally {
+            endJournalWrite(ok);
         }
-        if (!replaced) bookings.add(updated);
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(BOOKINGS_FILE, false))) {
-            for (Booking b : bookings) {
-                writer.println(b.toString());
-            }
-            writer.flush();
-        } catch (IOException e) {
-            System.err.println("Error updating booking: " + e.getMessage());
+    /**
+     * Changes only the status of a booking (e.g. CANCELLED). Returns false if the booking does not exist.
+     */
+    public static synchronized boolean updateBookingStatus(String bookingId, String status) {
+        if (bookingId == null || status == null) return false;
+        boolean ok = false;
+        beginJournalWrite();
+        try {
+            Booking target = BOOKINGS.find(bookingId);
+            String month = target == null ? null : BookingStore.monthOf(target);
+            ok = target != null
+                    && appendToJournal(BookingJournal.STATUS, target.getBookingId() + "|" + status + "|" + month);
+            if (ok) BOOKINGS.setStatus(target.getBookingId(), status, month);
+            return ok;
+        } finally {
+            endJournalWrite(ok);
         }
     }
 
     // =============== PAYMENT OPERATIONS ===============
-    public static List<Payment> readPaymentsFromFile() {
+    /**
+     * Returns all payments as a fresh list over the shared in-memory Payment objects.
+     */
+    public static synchronized List<Payment> readPaymentsFromFile() {
+        syncJournal();
+        return new ArrayList<>(PAYMENTS.rows());
+    }
+
+    private static List<Payment> loadPaymentsFromDisk() {
         List<Payment> payments = new ArrayList<>();
         File file = new File(PAYMENTS_FILE);
 
         if (!file.exists()) return payments;
 
         try (BufferedReader reader = new BufferedReader(new FileReader(PAYMENTS_FILE))) {
+            RecordTokenizer tokenizer = new RecordTokenizer();
             String line;
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
                 if (line.isEmpty() || line.startsWith("#")) continue;
 
-                Payment payment = parsePaymentLine(line);
+                Payment payment = parsePaymentLine(tokenizer, line);
                 if (payment != null) {
                     payments.add(payment);
                 }
@@ -291,17 +543,20 @@ public class TransactionFileHandler {
         return payments;
     }
 
-    private static Payment parsePaymentLine(String line) {
-        String[] parts = line.split("\\|");
-        if (parts.length < 6) return null;
+    static Payment parsePaymentLine(String line) {
+        return parsePaymentLine(new RecordTokenizer(), line);
+    }
+
+    static Payment parsePaymentLine(RecordTokenizer t, String line) {
+        if (t.reset(line).significantFieldCount() < 6) return null;
 
         try {
-            String paymentId = parts[0].trim();
-            String bookingId = parts[1].trim();
-            double amount = Double.parseDouble(parts[2].trim());
-            String paymentMethod = parts[3].trim();
-            String status = parts[4].trim();
-            LocalDateTime paymentDate = LocalDateTime.parse(parts[5].trim());
+            String paymentId = t.nextString();
+            String bookingId = t.nextString();
+            double amount = t.nextDouble();
+            String paymentMethod = t.nextString();
+            String status = t.nextString();
+            LocalDateTime paymentDate = t.nextDateTime();
 
             return new Payment(paymentId, bookingId, amount, paymentMethod, status, paymentDate);
         } catch (Exception e) {
@@ -310,12 +565,15 @@ public class TransactionFileHandler {
         }
     }
 
-    public static void savePayment(Payment payment) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(PAYMENTS_FILE, true))) {
-            writer.println(payment.toString());
-            writer.flush();
-        } catch (IOException e) {
-            System.err.println("Error saving payment: " + e.getMessage());
+    public static synchronized void savePayment(Payment payment) {
+        boolean ok = false;
+        beginJournalWrite();
+        try {
+            List<Payment> payments = PAYMENTS.rows();
+            ok = appendToJournal(BookingJournal.PAYMENT, payment.toString());
+            if (ok) payments.add(payment);
+        } finally {
+            endJournalWrite(ok);
         }
     }
 
@@ -323,12 +581,21 @@ public class TransactionFileHandler {
      * Updates the latest payment record for a booking (by paymentDate) to match the new amount.
      * If no payment exists, this does nothing.
      */
-    public static void updateLatestPaymentAmountForBooking(String bookingId, double newAmount) {
+    public static synchronized void updateLatestPaymentAmountForBooking(String bookingId, double newAmount) {
         if (bookingId == null || bookingId.isBlank()) return;
 
-        List<Payment> payments = readPaymentsFromFile();
-        if (payments.isEmpty()) return;
+        boolean ok = false;
+        beginJournalWrite();
+        try {
+            Payment latest = latestPaymentFor(PAYMENTS.rows(), bookingId);
+            ok = latest != null && appendToJournal(BookingJournal.PAYMENT_AMOUNT, bookingId + "|" + newAmount);
+            if (ok) latest.setAmount(newAmount);
+        } finally {
+            endJournalWrite(ok);
+        }
+    }
 
+    static Payment latestPaymentFor(Collection<Payment> payments, String bookingId) {
         Payment latest = null;
         for (Payment p : payments) {
             if (p == null) continue;
@@ -343,17 +610,142 @@ public class TransactionFileHandler {
                 } catch (Exception ignore) {}
             }
         }
+        return latest;
+    }
+
+    // =============== JOURNAL / CHECKPOINT ===============
+    /**
+     * Applies the journal records written since the last look (by this or another process) to the
+     * bookings and, if loaded, the payments. After a checkpoint by another process both start over
+     * from the new checkpoint files.
+     */
+    private static void syncJournal() {
+        if (BOOKINGS.needsMigration()) {
+            BOOKINGS_LOCK.lock();
+            try {
+                if (BOOKINGS.needsMigration()) {
+                    BOOKINGS.migrate();
+                    // New generation: every process (this one included) reloads the new partitions.
+                    JOURNAL.renew();
+                    BOOKINGS_LOCK.changed();
+                }
+            } catch (IOException e) {
+                System.err.println("Error restarting journal after migration: " + e.getMessage());
+            } finally {
+                BOOKINGS_LOCK.unlock();
+            }
+        }
+        BookingJournal.Tail tail = JOURNAL.poll();
+        if (tail.restarted()) {
+            BOOKINGS.reset(tail.records());
+            PAYMENTS.invalidate();
+        } else if (!tail.records().isEmpty()) {
+            BOOKINGS.apply(tail.records());
+            if (PAYMENTS.isLoaded()) JOURNAL.applyPayments(PAYMENTS.rows(), tail.records());
+        }
+    }
+
+    /**
+     * Takes the bookings lock and catches up with the journal, so the next append lands on
+     * current data. Always paired with {@link #endJournalWrite(boolean)} in a finally block.
+     */
+    private static void beginJournalWrite() {
+        BOOKINGS_LOCK.lock();
+        syncJournal();
+        PAYMENTS.rows();
+    }
+
+    private static boolean appendToJournal(String type, String payload) {
+        return appendToJournal(List.<String[]>of(new String[]{type, payload}));
+    }
 
-        if (latest == null) return;
-        latest.setAmount(newAmount);
+    private static boolean appendToJournal(List<String[]> recs) {
+        try {
+            JOURNAL.append(recs);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing journal: " + e.getMessage());
+            return false;
+        }
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(PAYMENTS_FILE, false))) {
-            for (Payment p : payments) {
-                writer.println(p.toString());
+    private static void endJournalWrite(boolean appended) {
+        try {
+            if (appended) {
+                BOOKINGS_LOCK.changed();
+                int every = (int) SettingsStore.getRawDouble("journal.checkpointEvery", DEFAULT_CHECKPOINT_EVERY);
+                if (JOURNAL.recordCount() >= Math.max(1, every)) {
+                    checkpoint();
+                }
             }
-            writer.flush();
+        } finally {
+            BOOKINGS_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Folds the journal into the monthly booking files it touched and payments.txt, then empties it.
+     * Each file is written to a temp file and renamed over the old one, so a crash leaves either
+     * the old or the new checkpoint; replaying the (idempotent) journal again is harmless.
+     */
+    public static synchronized void checkpoint() {
+        BOOKINGS_LOCK.lock();
+        try {
+            syncJournal();
+            List<Payment> payments = PAYMENTS.rows();
+            BOOKINGS.writeCheckpoint();
+            writeAtomically(Paths.get(PAYMENTS_FILE), payments);
+            JOURNAL.truncate();
+            BOOKINGS.checkpointed();
+            PAYMENTS.touch();
+            BOOKINGS_LOCK.changed();
         } catch (IOException e) {
-            System.err.println("Error updating payment: " + e.getMessage());
+            System.err.println("Error writing checkpoint: " + e.getMessage());
+        } finally {
+            BOOKINGS_LOCK.unlock();
+        }
+        DataSnapshot.scheduleWrite();
+    }
+
+    /**
+     * Drops archived bookings (and their payments) from the live data and writes a fresh checkpoint.
+     * A booking is only dropped if it still matches the state that was archived ({@code bookingId -> line});
+     * one that changed in the meantime stays live and is picked up by the next archive run.
+     */
+    static synchronized int removeArchivedBookings(Map<String, String> archivedState) {
+        BOOKINGS_LOCK.lock();
+        try {
+            syncJournal();
+            Set<String> removed = BOOKINGS.removeIf(b -> {
+                String archived = archivedState.get(b.getBookingId());
+                return archived != null && archived.equals(b.toString());
+            });
+            if (removed.isEmpty()) return 0;
+            PAYMENTS.rows().removeIf(p -> p.getBookingId() != null && removed.contains(p.getBookingId().toUpperCase(Locale.ROOT)));
+            checkpoint();
+            return removed.size();
+        } finally {
+            BOOKINGS_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Writes {@code rows} (one {@code toString()} per line) to a temp file and renames it over
+     * {@code target}, so readers in any process see either the old or the new file, never half of one.
+     */
+    public static void writeAtomically(Path target, List<?> rows) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(tmp))) {
+            for (Object row : rows) {
+                writer.println(row.toString());
+            }
+            writer.flush();
+            if (writer.checkError()) throw new IOException("Could not write " + tmp);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 }
@@ -20,6 +20,9 @@ public class Room {
      */
     private boolean available;
     private String imagePath; // relative path under project root (e.g. assets/images/grand_plaza.jpg)
+    // Optional position in degrees (WGS84); NaN when the room has none.
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
 
     public Room(String id, String hotelName, String roomType, String location, double pricePerNight,
                 double rating, int reviewCount, String[] amenities, int capacity, int units,
@@ -66,12 +69,22 @@ public class Room {
     public int getUnits() { return units; }
     public boolean isAvailable() { return available; }
     public String getImagePath() { return imagePath; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public boolean hasCoordinates() { return !Double.isNaN(latitude) && !Double.isNaN(longitude); }
 
     // Setters
     public void setAvailable(boolean available) { this.available = available; }
     public void setImagePath(String imagePath) { this.imagePath = imagePath; }
     public void setUnits(int units) { this.units = Math.max(1, units); }
 
+    /** Sets the position; NaN (or anything outside -90..90 / -180..180) clears it. */
+    public void setCoordinates(double latitude, double longitude) {
+        boolean valid = latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+        this.latitude = valid ? latitude : Double.NaN;
+        this.longitude = valid ? longitude : Double.NaN;
+    }
+
     // Format price as string
     public String getPriceTag() {
         return common.util.CurrencyUtil.formatNightly(pricePerNight);
@@ -86,8 +99,10 @@ public class Room {
     public String toString() {
         // Persist in a stable schema including units.
         // Schema (v13): id|hotel|roomType|location|price|rating|reviews|amenities|capacity|units|available|imagePath
+        // Schema (v14): v13 + |latitude|longitude, written only for rooms that have a position
         return id + "|" + hotelName + "|" + roomType + "|" + location + "|" + pricePerNight + "|" + rating + "|" +
                reviewCount + "|" + String.join(",", amenities) + "|" + capacity + "|" + units + "|" +
-               available + "|" + (imagePath == null ? "" : imagePath);
+               available + "|" + (imagePath == null ? "" : imagePath) +
+               (hasCoordinates() ? "|" + latitude + "|" + longitude : "");
     }
 }
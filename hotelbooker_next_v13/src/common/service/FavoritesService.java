@@ -1,5 +1,7 @@
 package common.service;
 
+import common.filehandler.FileStamp;
+import common.filehandler.RecordTokenizer;
 import common.model.User;
 
 import java.nio.file.*;
@@ -11,8 +13,21 @@ import java.util.*;
 public final class FavoritesService {
     private static final String PATH = "data/favorites.txt";
 
+    private static FileStamp seenStamp;
+    private static long revision;
+
     private FavoritesService() {}
 
+    /** Changes whenever favorites.txt changed, by a toggle here or on disk. */
+    public static synchronized long revision() {
+        FileStamp now = FileStamp.of(Paths.get(PATH));
+        if (!now.equals(seenStamp)) {
+            seenStamp = now;
+            revision++;
+        }
+        return revision;
+    }
+
     private static String key(User u) {
         if (u == null) return null;
         String email = u.getEmail();
@@ -27,18 +42,36 @@ public final class FavoritesService {
         try {
             Path p = Paths.get(PATH);
             if (!Files.exists(p)) return Set.of();
+            RecordTokenizer t = new RecordTokenizer();
             for (String line : Files.readAllLines(p)) {
                 if (line == null) continue;
-                String[] parts = line.split("\\|");
-                if (parts.length < 2) continue;
-                if (k.equalsIgnoreCase(parts[0].trim())) {
-                    out.add(parts[1].trim());
+                if (t.reset(line).significantFieldCount() < 2) continue;
+                t.next();
+                if (t.isIgnoreCase(k)) {
+                    out.add(t.nextString());
                 }
             }
         } catch (Exception ignored) {}
         return out;
     }
 
+    /** How many users saved each room (room id upper-cased); rooms nobody saved are absent. */
+    public static synchronized Map<String, Integer> countsByRoom() {
+        Map<String, Integer> out = new HashMap<>();
+        try {
+            Path p = Paths.get(PATH);
+            if (!Files.exists(p)) return out;
+            RecordTokenizer t = new RecordTokenizer();
+            for (String line : Files.readAllLines(p)) {
+                if (line == null) continue;
+                if (t.reset(line).significantFieldCount() < 2) continue;
+                t.next();
+                out.merge(t.nextString().toUpperCase(Locale.ROOT), 1, Integer::sum);
+            }
+        } catch (Exception ignored) {}
+        return out;
+    }
+
     public static synchronized boolean isFavorite(User u, String roomId) {
         if (roomId == null) return false;
         return getFavorites(u).contains(roomId.trim());
@@ -57,6 +90,7 @@ public final class FavoritesService {
             boolean removed = lines.removeIf(s -> s != null && s.trim().equalsIgnoreCase(entry));
             if (!removed) lines.add(entry);
             Files.write(p, lines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            revision++;
             return !removed;
         } catch (Exception ignored) {
             return false;
@@ -1,5 +1,11 @@
 package common.service;
 
+import common.filehandler.DataLock;
+import common.filehandler.FileStamp;
+import common.filehandler.TransactionFileHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.util.*;
 
@@ -14,9 +20,13 @@ import java.util.*;
  *
  * - percent: 0..100
  * - active: true/false (default true when omitted)
+ *
+ * The codes are re-read when the file changes on disk or another process sharing the data
+ * folder saved them; saves happen under the "promocodes" {@link DataLock}.
  */
 public final class PromoCodeService {
     private static final String PATH = "data/promocodes.txt";
+    private static final DataLock LOCK = DataLock.named("promocodes");
 
     public static class Promo {
         public String code;
@@ -34,6 +44,9 @@ public final class PromoCodeService {
 
     private static final Map<String, Promo> codes = new LinkedHashMap<>();
     private static boolean loaded = false;
+    // What the loaded codes were read from.
+    private static FileStamp loadedStamp = FileStamp.MISSING;
+    private static long loadedVersion;
 
     private PromoCodeService() {}
 
@@ -52,13 +65,15 @@ public final class PromoCodeService {
     }
 
     public static synchronized void load() {
-        if (loaded) return;
+        if (loaded && LOCK.version() == loadedVersion && FileStamp.of(Paths.get(PATH)).equals(loadedStamp)) return;
         reload();
     }
 
     public static synchronized void reload() {
         ensureSeed();
         codes.clear();
+        loadedVersion = LOCK.version();
+        loadedStamp = FileStamp.of(Paths.get(PATH));
         try {
             List<String> lines = Files.readAllLines(Paths.get(PATH));
             for (String line : lines) {
@@ -107,39 +122,75 @@ public final class PromoCodeService {
         return new ArrayList<>(codes.values());
     }
 
-    public static synchronized void upsert(String code, double percent, boolean active, String description) {
+    /** Adds or replaces a code. Returns false if it is invalid or could not be saved. */
+    public static synchronized boolean upsert(String code, double percent, boolean active, String description) {
         load();
-        if (code == null) return;
+        if (code == null) return false;
         String c = code.trim().toUpperCase();
-        if (c.isEmpty()) return;
-        if (percent <= 0 || percent > 100) return;
-        codes.put(c, new Promo(c, percent, active, description));
-        save();
+        if (c.isEmpty()) return false;
+        if (percent <= 0 || percent > 100) return false;
+        if (!lockCodes()) return false;
+        try {
+            // Start from the latest file, so another terminal's change is not written over.
+            load();
+            codes.put(c, new Promo(c, percent, active, description));
+            return save();
+        } finally {
+            LOCK.unlock();
+        }
     }
 
-    public static synchronized void delete(String code) {
+    /** Removes a code. Returns false if the change could not be saved. */
+    public static synchronized boolean delete(String code) {
         load();
-        if (code == null) return;
+        if (code == null) return false;
         String c = code.trim().toUpperCase();
-        if (c.isEmpty()) return;
-        codes.remove(c);
-        save();
+        if (c.isEmpty()) return false;
+        if (!lockCodes()) return false;
+        try {
+            load();
+            codes.remove(c);
+            return save();
+        } finally {
+            LOCK.unlock();
+        }
     }
 
-    public static synchronized void save() {
+    /** Writes the codes in memory. Returns false (and re-reads the file next time) if that failed. */
+    public static synchronized boolean save() {
+        if (!lockCodes()) {
+            loaded = false;
+            return false;
+        }
         try {
             Files.createDirectories(Paths.get(PATH).getParent());
-            StringBuilder sb = new StringBuilder();
+            List<String> lines = new ArrayList<>();
             for (Promo p : codes.values()) {
-                sb.append(p.code).append("|")
-                  .append(trim2(p.percent)).append("|")
-                  .append(p.active).append("|")
-                  .append(p.description == null ? "" : p.description.replace("\n", " ").replace("\r", " "))
-                  .append("\n");
+                lines.add(p.code + "|" + trim2(p.percent) + "|" + p.active + "|"
+                        + (p.description == null ? "" : p.description.replace("\n", " ").replace("\r", " ")));
             }
-            Files.writeString(Paths.get(PATH), sb.toString(),
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-        } catch (Exception ignored) {}
+            TransactionFileHandler.writeAtomically(Paths.get(PATH), lines);
+            loadedVersion = LOCK.changed();
+            loadedStamp = FileStamp.of(Paths.get(PATH));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving promo codes: " + e.getMessage());
+            loaded = false;
+            return false;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /** Takes the promo codes lock; false (logged) if it could not be taken, e.g. another terminal is stuck holding it. */
+    private static boolean lockCodes() {
+        try {
+            LOCK.lock();
+            return true;
+        } catch (UncheckedIOException e) {
+            System.err.println("Error locking promo codes: " + e.getMessage());
+            return false;
+        }
     }
 
     private static String trim2(double d) {
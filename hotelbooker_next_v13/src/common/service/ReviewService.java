@@ -1,33 +1,57 @@
 package common.service;
 
+import common.filehandler.DataSnapshot;
+import common.filehandler.RecordTokenizer;
+import common.filehandler.ResidentTable;
+import common.filehandler.TransactionFileHandler;
 import common.model.Review;
 import common.util.FileUtils;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Simple file-backed reviews.
  * Format: roomId|userEmail|rating|comment|date
+ *
+ * Per-room aggregates (sum, count, stars histogram) are built in one pass over the reviews, so
+ * ratings for sorting and cards are a map lookup. They are rebuilt only when the reviews change:
+ * reviews.txt reloaded, or rewritten by {@link #upsert} or {@link #delete}.
  */
 public class ReviewService {
     private static final Path FILE = Path.of("data", "reviews.txt");
 
+    // Parsed once and kept in memory; reloaded when reviews.txt changes on disk.
+    private static final ResidentTable<Review> REVIEWS =
+            new ResidentTable<>(FILE, ReviewService::loadFromDisk, "reviews", DataSnapshot.REVIEWS);
+
+    /** Running totals for one room's reviews. */
+    private static final class Aggregate {
+        long sum;
+        int count;
+        final int[] stars = new int[6]; // stars[n] = reviews with n stars, 1..5
+
+        void add(int rating, int sign) {
+            sum += (long) sign * rating;
+            count += sign;
+            if (rating >= 1 && rating <= 5) stars[rating] += sign;
+        }
+    }
+
+    // Keyed by room id; valid for REVIEWS revision aggregatedRevision.
+    private static final Map<String, Aggregate> AGGREGATES = new HashMap<>();
+    private static long aggregatedRevision = -1;
+
     public static List<Review> getReviewsForRoom(String roomId) {
-        List<String> lines = FileUtils.readAllLinesSafe(FILE);
         List<Review> out = new ArrayList<>();
-        for (String line : lines) {
-            if (line == null || line.isBlank()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length < 5) continue;
-            if (!p[0].equals(roomId)) continue;
-            try {
-                out.add(new Review(p[0], p[1], Integer.parseInt(p[2]), p[3], LocalDate.parse(p[4])));
-            } catch (Exception ignore) {
-            }
+        for (Review r : REVIEWS.rows()) {
+            if (r.getRoomId().equals(roomId)) out.add(r);
         }
         out.sort(Comparator.comparing(Review::getDate).reversed());
         return out;
@@ -37,54 +61,69 @@ public class ReviewService {
      * Returns all reviews across rooms.
      */
     public static List<Review> getAllReviews() {
-        List<String> lines = FileUtils.readAllLinesSafe(FILE);
+        List<Review> out = new ArrayList<>(REVIEWS.rows());
+        out.sort(Comparator.comparing(Review::getDate).reversed());
+        return out;
+    }
+
+    private static List<Review> loadFromDisk() {
+        return parseLines(FileUtils.readAllLinesSafe(FILE));
+    }
+
+    private static List<Review> parseLines(List<String> lines) {
         List<Review> out = new ArrayList<>();
+        RecordTokenizer t = new RecordTokenizer();
         for (String line : lines) {
             if (line == null || line.isBlank()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length < 5) continue;
-            try {
-                out.add(new Review(p[0], p[1], Integer.parseInt(p[2]), p[3], LocalDate.parse(p[4])));
-            } catch (Exception ignore) {
-            }
+            if (t.reset(line).fieldCount() < 5) continue;
+            t.next();
+            Review r = parse(t);
+            if (r != null) out.add(r);
         }
-        out.sort(Comparator.comparing(Review::getDate).reversed());
         return out;
     }
 
     /**
-     * Deletes a review (1 per user per room).
+     * Deletes a review (1 per user per room). Returns false if there is none or it could not be written.
      */
-    public static boolean delete(String roomId, String userEmail) {
+    public static synchronized boolean delete(String roomId, String userEmail) {
         if (roomId == null || roomId.isBlank() || userEmail == null || userEmail.isBlank()) return false;
         List<String> lines = FileUtils.readAllLinesSafe(FILE);
         List<String> out = new ArrayList<>();
         boolean removed = false;
+        RecordTokenizer t = new RecordTokenizer();
         for (String line : lines) {
             if (line == null || line.isBlank()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length >= 2 && p[0].equals(roomId) && p[1].equalsIgnoreCase(userEmail)) {
+            if (isReviewBy(t.reset(line), roomId, userEmail)) {
                 removed = true;
                 continue;
             }
             out.add(line);
         }
-        if (removed) FileUtils.writeAllLines(FILE, out);
-        return removed;
+        return removed && save(out);
     }
 
-    public static Stats getStatsForRoom(String roomId) {
-        List<Review> reviews = getReviewsForRoom(roomId);
-        if (reviews.isEmpty()) return new Stats(0, 0);
-        double sum = 0;
-        for (Review r : reviews) sum += r.getRating();
-        return new Stats(sum / reviews.size(), reviews.size());
+    public static synchronized Stats getStatsForRoom(String roomId) {
+        Aggregate a = aggregates().get(roomId);
+        if (a == null || a.count <= 0) return new Stats(0, 0);
+        return new Stats((double) a.sum / a.count, a.count);
+    }
+
+    /** Changes whenever the reviews may have changed (reloaded, or written by this process). */
+    public static synchronized long revision() {
+        return REVIEWS.revision();
+    }
+
+    /** How many reviews of the room gave 1..5 stars: index n holds the n-star count (index 0 unused). */
+    public static synchronized int[] getStarCounts(String roomId) {
+        Aggregate a = aggregates().get(roomId);
+        return a == null ? new int[6] : a.stars.clone();
     }
 
     /**
-     * Upserts one review per user per room.
+     * Upserts one review per user per room. Returns false if it could not be written.
      */
-    public static void upsert(String roomId, String userEmail, int rating, String comment) {
+    public static synchronized boolean upsert(String roomId, String userEmail, int rating, String comment) {
         FileUtils.ensureParentDir(FILE);
         List<String> lines = FileUtils.readAllLinesSafe(FILE);
         List<String> out = new ArrayList<>();
@@ -93,20 +132,22 @@ public class ReviewService {
         String safeComment = (comment == null ? "" : comment)
                 .replace("\n", " ")
                 .replace("\r", " ")
+                .replace("|", "/") // field separator; the line would not parse back
                 .trim();
 
+        Review review = new Review(roomId, userEmail, Math.max(1, Math.min(5, rating)), safeComment, LocalDate.now());
         String newLine = String.join("|",
                 roomId,
                 userEmail,
-                String.valueOf(Math.max(1, Math.min(5, rating))),
+                String.valueOf(review.getRating()),
                 safeComment,
-                LocalDate.now().toString()
+                review.getDate().toString()
         );
 
+        RecordTokenizer t = new RecordTokenizer();
         for (String line : lines) {
             if (line == null || line.isBlank()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length >= 2 && p[0].equals(roomId) && p[1].equalsIgnoreCase(userEmail)) {
+            if (isReviewBy(t.reset(line), roomId, userEmail)) {
                 out.add(newLine);
                 replaced = true;
             } else {
@@ -114,7 +155,58 @@ public class ReviewService {
             }
         }
         if (!replaced) out.add(newLine);
-        FileUtils.writeAllLines(FILE, out);
+        return save(out);
+    }
+
+    /** Per-room aggregates, rebuilt in one pass if the reviews were reloaded since. */
+    private static Map<String, Aggregate> aggregates() {
+        long revision = REVIEWS.revision();
+        if (revision != aggregatedRevision) {
+            AGGREGATES.clear();
+            for (Review r : REVIEWS.rows()) {
+                AGGREGATES.computeIfAbsent(r.getRoomId(), k -> new Aggregate()).add(r.getRating(), 1);
+            }
+            aggregatedRevision = revision;
+        }
+        return AGGREGATES;
+    }
+
+    /**
+     * Rewrites reviews.txt with {@code lines} and, only if that worked, publishes the reviews parsed
+     * from those same lines as the resident rows. They are the file's current content, including
+     * reviews another process added since the last load. Readers iterate the rows without this
+     * class's lock, so the list they hold is never changed.
+     */
+    private static boolean save(List<String> lines) {
+        try {
+            TransactionFileHandler.writeAtomically(FILE, lines);
+        } catch (IOException e) {
+            System.err.println("Error writing reviews: " + e.getMessage());
+            return false;
+        }
+        REVIEWS.publish(parseLines(lines));
+        return true;
+    }
+
+    /** Parses roomId|userEmail|rating|comment|date; {@code t} is positioned on the roomId field. */
+    private static Review parse(RecordTokenizer t) {
+        try {
+            String roomId = t.raw();
+            String userEmail = t.nextRaw();
+            int rating = t.nextInt();
+            String comment = t.nextRaw();
+            return new Review(roomId, userEmail, rating, comment, t.nextDate());
+        } catch (Exception ignore) {
+            return null;
+        }
+    }
+
+    private static boolean isReviewBy(RecordTokenizer t, String roomId, String userEmail) {
+        if (t.fieldCount() < 2) return false;
+        t.next();
+        if (!t.is(roomId)) return false;
+        t.next();
+        return t.isIgnoreCase(userEmail);
     }
 
     public record Stats(double avg, int count) {
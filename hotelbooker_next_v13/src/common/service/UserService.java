@@ -1,5 +1,10 @@
 package common.service;
 
+import common.filehandler.DataLock;
+import common.filehandler.DataSnapshot;
+import common.filehandler.RecordTokenizer;
+import common.filehandler.ResidentTable;
+import common.filehandler.TransactionFileHandler;
 import common.model.User;
 
 import java.io.*;
@@ -15,8 +20,18 @@ import java.util.*;
 public class UserService {
     private static final String USERS_FILE = "data/users.txt";
 
+    // Shared with other HotelBooker processes using the same data folder; held only while writing.
+    private static final DataLock LOCK = DataLock.named("users");
+
     private static UserService instance;
 
+    // Reused by parse(); every caller holds the instance lock.
+    private final RecordTokenizer tokenizer = new RecordTokenizer();
+    // Parsed once and kept in memory; reloaded when users.txt changes on disk or another process wrote it.
+    private final ResidentTable<User> users =
+            new ResidentTable<>(Paths.get(USERS_FILE), this::loadFromDisk, "users", DataSnapshot.USERS)
+                    .versionedBy(LOCK);
+
     public static synchronized UserService getInstance() {
         if (instance == null) instance = new UserService();
         return instance;
@@ -37,6 +52,10 @@ public class UserService {
 
     public synchronized List<User> getAllUsers() {
         ensureFile();
+        return new ArrayList<>(users.rows());
+    }
+
+    private List<User> loadFromDisk() {
         List<User> out = new ArrayList<>();
         try (BufferedReader br = Files.newBufferedReader(Paths.get(USERS_FILE))) {
             String line;
@@ -75,93 +94,125 @@ public class UserService {
         if (fullName == null || fullName.trim().isEmpty()) return null;
         if (email == null || email.trim().isEmpty()) return null;
         if (password == null || password.isEmpty()) return null;
-        if (emailExists(email)) return null;
+        if (!lockUsers()) return null;
+        try {
+            // Checked under the lock, so two terminals cannot register the same email.
+            if (emailExists(email)) return null;
 
-        String userId = "U" + System.currentTimeMillis();
-        User u = new User(userId, fullName.trim(), email.trim(), password, LocalDateTime.now());
+            String userId = "U" + System.currentTimeMillis();
+            User u = new User(userId, fullName.trim(), email.trim(), password, LocalDateTime.now());
 
-        try {
             Files.write(Paths.get(USERS_FILE), Collections.singletonList(u.toString()), StandardOpenOption.APPEND);
+            LOCK.changed();
+            users.invalidate();
             return u;
         } catch (IOException e) {
             return null;
+        } finally {
+            LOCK.unlock();
         }
     }
 
     public synchronized boolean updateProfile(String userId, String newFullName, String newPasswordOrNull) {
         ensureFile();
-        List<String> lines;
+        if (!lockUsers()) return false;
         try {
-            lines = Files.readAllLines(Paths.get(USERS_FILE));
-        } catch (IOException e) {
-            return false;
-        }
-
-        boolean updated = false;
-        List<String> out = new ArrayList<>();
-        for (String line : lines) {
-            String t = line.trim();
-            if (t.isEmpty() || t.startsWith("#")) {
-                out.add(line);
-                continue;
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(Paths.get(USERS_FILE));
+            } catch (IOException e) {
+                return false;
             }
-            User u = parse(t);
-            if (u != null && u.getUserId().equals(userId)) {
-                if (newFullName != null && !newFullName.trim().isEmpty()) u.setFullName(newFullName.trim());
-                if (newPasswordOrNull != null && !newPasswordOrNull.isEmpty()) u.setPassword(newPasswordOrNull);
-                out.add(u.toString());
-                updated = true;
-            } else {
-                out.add(line);
+
+            boolean updated = false;
+            List<String> out = new ArrayList<>();
+            for (String line : lines) {
+                String t = line.trim();
+                if (t.isEmpty() || t.startsWith("#")) {
+                    out.add(line);
+                    continue;
+                }
+                User u = parse(t);
+                if (u != null && u.getUserId().equals(userId)) {
+                    if (newFullName != null && !newFullName.trim().isEmpty()) u.setFullName(newFullName.trim());
+                    if (newPasswordOrNull != null && !newPasswordOrNull.isEmpty()) u.setPassword(newPasswordOrNull);
+                    out.add(u.toString());
+                    updated = true;
+                } else {
+                    out.add(line);
+                }
             }
-        }
 
-        if (!updated) return false;
-        try {
-            Files.write(Paths.get(USERS_FILE), out);
-            return true;
-        } catch (IOException e) {
-            return false;
+            if (!updated) return false;
+            try {
+                TransactionFileHandler.writeAtomically(Paths.get(USERS_FILE), out);
+                LOCK.changed();
+                users.invalidate();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        } finally {
+            LOCK.unlock();
         }
     }
 
     public synchronized boolean deleteUser(String userId) {
         ensureFile();
-        List<String> lines;
+        if (!lockUsers()) return false;
         try {
-            lines = Files.readAllLines(Paths.get(USERS_FILE));
-        } catch (IOException e) {
-            return false;
-        }
-        boolean removed = false;
-        List<String> out = new ArrayList<>();
-        for (String line : lines) {
-            String t = line.trim();
-            if (t.isEmpty() || t.startsWith("#")) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(Paths.get(USERS_FILE));
+            } catch (IOException e) {
+                return false;
+            }
+            boolean removed = false;
+            List<String> out = new ArrayList<>();
+            for (String line : lines) {
+                String t = line.trim();
+                if (t.isEmpty() || t.startsWith("#")) {
+                    out.add(line);
+                    continue;
+                }
+                User u = parse(t);
+                if (u != null && u.getUserId().equals(userId)) {
+                    removed = true;
+                    continue;
+                }
                 out.add(line);
-                continue;
             }
-            User u = parse(t);
-            if (u != null && u.getUserId().equals(userId)) {
-                removed = true;
-                continue;
+            if (!removed) return false;
+            try {
+                TransactionFileHandler.writeAtomically(Paths.get(USERS_FILE), out);
+                LOCK.changed();
+                users.invalidate();
+                return true;
+            } catch (IOException e) {
+                return false;
             }
-            out.add(line);
+        } finally {
+            LOCK.unlock();
         }
-        if (!removed) return false;
+    }
+
+    /** Takes the users lock; false (logged) if it could not be taken, e.g. another terminal is stuck holding it. */
+    private static boolean lockUsers() {
         try {
-            Files.write(Paths.get(USERS_FILE), out);
+            LOCK.lock();
             return true;
-        } catch (IOException e) {
+        } catch (UncheckedIOException e) {
+            System.err.println("Error locking users file: " + e.getMessage());
             return false;
         }
     }
 
     private User parse(String line) {
         try {
-            String[] p = line.split("\\|");
-            if (p.length < 5) return null;
-            return new User(p[0], p[1], p[2], p[3], LocalDateTime.parse(p[4]));
+            RecordTokenizer t = tokenizer.reset(line);
+            if (t.significantFieldCount() < 5) return null;
+            // Names and passwords are kept exactly as written (not trimmed).
+            return new User(t.nextRaw(), t.nextRaw(), t.nextRaw(), t.nextRaw(), t.nextDateTime());
         } catch (Exception e) {
             return null;
         }
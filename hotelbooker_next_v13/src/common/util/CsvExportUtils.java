@@ -1,17 +1,23 @@
 package common.util;
 
+import common.filehandler.BookingArchiver;
 import common.model.Booking;
 import common.model.Room;
 import common.model.User;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Simple CSV exports for Admin.
@@ -29,37 +35,69 @@ public class CsvExportUtils {
     }
 
     public static Path exportBookings(List<Booking> bookings, List<Room> rooms) throws Exception {
+        return exportBookings(bookings, rooms, false);
+    }
+
+    /**
+     * Exports bookings; with {@code includeArchived} the archived (past) stays are streamed from the
+     * archive segments first, so they never have to be loaded into memory as a list.
+     */
+    public static Path exportBookings(List<Booking> bookings, List<Room> rooms, boolean includeArchived) throws Exception {
         Files.createDirectories(Paths.get(EXPORT_DIR));
         String name = "bookings_" + java.time.LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv";
         Path out = Paths.get(EXPORT_DIR + File.separator + name);
 
+        Map<String, Room> roomById = new HashMap<>();
+        if (rooms != null) {
+            for (Room r : rooms) {
+                if (r != null) roomById.putIfAbsent(r.getId().toUpperCase(Locale.ROOT), r);
+            }
+        }
+
         try (BufferedWriter w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
             w.write("booking_id,guest,room_id,hotel,location,check_in,check_out,guests,total,status");
             w.newLine();
+            if (includeArchived) {
+                try {
+                    BookingArchiver.forEachArchivedBooking(b -> {
+                        try {
+                            writeBookingRow(w, b, roomById);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException uio) {
+                    throw uio.getCause();
+                }
+            }
             for (Booking b : bookings) {
                 if (b == null) continue;
-                Room r = rooms == null ? null : rooms.stream().filter(x -> x != null && x.getId().equalsIgnoreCase(b.getRoomId())).findFirst().orElse(null);
-                String hotel = r != null ? r.getHotelName() : "";
-                String loc = r != null ? r.getLocation() : "";
-                w.write(
-                        esc(b.getBookingId()) + "," +
-                        esc(b.getGuestName()) + "," +
-                        esc(b.getRoomId()) + "," +
-                        esc(hotel) + "," +
-                        esc(loc) + "," +
-                        esc(b.getCheckInDate() != null ? b.getCheckInDate().toString() : "") + "," +
-                        esc(b.getCheckOutDate() != null ? b.getCheckOutDate().toString() : "") + "," +
-                        b.getNumberOfGuests() + "," +
-                        b.getTotalPrice() + "," +
-                        esc(b.getStatus())
-                );
-                w.newLine();
+                writeBookingRow(w, b, roomById);
             }
             w.flush();
         }
         return out;
     }
 
+    private static void writeBookingRow(BufferedWriter w, Booking b, Map<String, Room> roomById) throws IOException {
+        Room r = b.getRoomId() == null ? null : roomById.get(b.getRoomId().toUpperCase(Locale.ROOT));
+        String hotel = r != null ? r.getHotelName() : "";
+        String loc = r != null ? r.getLocation() : "";
+        w.write(
+                esc(b.getBookingId()) + "," +
+                esc(b.getGuestName()) + "," +
+                esc(b.getRoomId()) + "," +
+                esc(hotel) + "," +
+                esc(loc) + "," +
+                esc(b.getCheckInDate() != null ? b.getCheckInDate().toString() : "") + "," +
+                esc(b.getCheckOutDate() != null ? b.getCheckOutDate().toString() : "") + "," +
+                b.getNumberOfGuests() + "," +
+                b.getTotalPrice() + "," +
+                esc(b.getStatus())
+        );
+        w.newLine();
+    }
+
     public static Path exportGuests(List<User> users) throws Exception {
         Files.createDirectories(Paths.get(EXPORT_DIR));
         String name = "guests_" + java.time.LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv";
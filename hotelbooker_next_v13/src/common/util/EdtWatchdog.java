@@ -0,0 +1,371 @@
+package common.util;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Watches the Event Dispatch Thread for stalls and keeps UI responsiveness figures.
+ *
+ * A timing {@link EventQueue} is pushed in front of the system queue; it times every event it
+ * dispatches into a latency histogram. A daemon thread polls the event in progress, and once one
+ * has run longer than the threshold it takes the EDT's stack at that moment. When the event
+ * finishes, the stall is added to a group named after the application frames on top of that stack
+ * (e.g. {@code BookingStore.load < AdminBookingsPanel.refresh}) with its count, total and longest
+ * time and one sample stack. Events that pump a modal dialog are not counted as stalls for the
+ * time the dialog is open, but the work they did before opening it and after it closed is.
+ *
+ * Every minute the report is rewritten to {@code diagnostics/edt-report.txt}, and each stall is
+ * appended to {@code diagnostics/edt-stalls.log} (rolled over to {@code .1} at 512 KB). The admin
+ * settings page shows the same report.
+ *
+ * Settings: ui.stallThresholdMs (default 200; 0 turns the watchdog off).
+ */
+public final class EdtWatchdog {
+    private static final Path DIR = Paths.get("diagnostics");
+    private static final Path REPORT = DIR.resolve("edt-report.txt");
+    private static final Path LOG = DIR.resolve("edt-stalls.log");
+    private static final long LOG_ROLL_BYTES = 512 * 1024;
+    private static final int DEFAULT_THRESHOLD_MS = 200;
+    private static final long REPORT_INTERVAL_SECONDS = 60;
+    private static final int SAMPLE_FRAMES = 15;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** Upper bounds (ms) of the latency buckets; the last bucket is everything above. */
+    private static final long[] BUCKET_MS = {1, 4, 16, 33, 50, 100, 200, 500, 1000, 2000};
+
+    private static final AtomicLongArray HISTOGRAM = new AtomicLongArray(BUCKET_MS.length + 1);
+
+    // Event in progress, published by the EDT for the watchdog thread; 0 when idle.
+    private static volatile Thread edt;
+    private static volatile long dispatchStart;
+    private static volatile long dispatchSeq;
+
+    /** A stall seen by the watchdog but not finished yet. */
+    private record Sample(long seq, String group, List<StackTraceElement> stack) {}
+
+    /** Stalls with the same {@link #group}. */
+    private static final class Group {
+        int count;
+        long totalMs;
+        long maxMs;
+        LocalDateTime last;
+        List<StackTraceElement> sample = List.of();
+    }
+
+    private static final Map<String, Group> GROUPS = new HashMap<>();
+    private static Sample pending;
+    private static volatile long thresholdMs;
+    private static LocalDateTime since;
+    private static boolean changed;
+    private static ScheduledExecutorService watcher;
+    private static final Object WRITE_LOCK = new Object();
+
+    private EdtWatchdog() {}
+
+    /**
+     * Starts timing events and watching for stalls. Safe to call more than once; does nothing if
+     * ui.stallThresholdMs is 0.
+     */
+    public static synchronized void start() {
+        if (watcher != null) return;
+        thresholdMs = Math.max(0, (long) SettingsStore.getRawDouble("ui.stallThresholdMs", DEFAULT_THRESHOLD_MS));
+        if (thresholdMs == 0) return;
+        since = LocalDateTime.now();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new TimingQueue());
+
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "edt-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        long poll = Math.max(10, thresholdMs / 4);
+        watcher.scheduleWithFixedDelay(EdtWatchdog::poll, poll, poll, TimeUnit.MILLISECONDS);
+        watcher.scheduleWithFixedDelay(EdtWatchdog::writeReportIfChanged,
+                REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized boolean isRunning() {
+        return watcher != null;
+    }
+
+    /** Forgets the figures gathered so far. */
+    public static synchronized void reset() {
+        for (int i = 0; i < HISTOGRAM.length(); i++) HISTOGRAM.set(i, 0);
+        GROUPS.clear();
+        pending = null;
+        since = LocalDateTime.now();
+        changed = true;
+    }
+
+    /** Writes the report now and returns where it went. */
+    public static Path writeReport() throws IOException {
+        String text = report();
+        synchronized (WRITE_LOCK) {
+            Files.createDirectories(DIR);
+            Path tmp = REPORT.resolveSibling(REPORT.getFileName() + ".tmp");
+            Files.writeString(tmp, text, StandardCharsets.UTF_8);
+            Files.move(tmp, REPORT, StandardCopyOption.REPLACE_EXISTING);
+            return REPORT;
+        }
+    }
+
+    /** Human-readable report: latency histogram, then stall groups by total time. */
+    public static synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("UI responsiveness report - ").append(LocalDateTime.now().format(TIME)).append('\n');
+        if (watcher == null) {
+            sb.append("Watchdog is off (ui.stallThresholdMs = 0).\n");
+            return sb.toString();
+        }
+        sb.append("Since ").append(since.format(TIME)).append(", stall threshold ").append(thresholdMs).append(" ms\n\n");
+
+        long[] counts = new long[HISTOGRAM.length()];
+        long events = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = HISTOGRAM.get(i);
+            events += counts[i];
+        }
+        sb.append("Event handling latency (").append(events).append(" events)\n");
+        for (int i = 0; i < counts.length; i++) {
+            double pct = events == 0 ? 0 : 100.0 * counts[i] / events;
+            sb.append(String.format("  %-12s %9d  %5.1f%%  %s%n", bucketLabel(i), counts[i], pct, bar(pct)));
+        }
+        if (events > 0) {
+            sb.append(String.format("  p50 %s   p95 %s   p99 %s%n",
+                    percentile(counts, events, 0.50), percentile(counts, events, 0.95), percentile(counts, events, 0.99)));
+        }
+
+        List<Map.Entry<String, Group>> groups = new ArrayList<>(GROUPS.entrySet());
+        groups.sort((a, b) -> Long.compare(b.getValue().totalMs, a.getValue().totalMs));
+        sb.append("\nStalls over ").append(thresholdMs).append(" ms by where the EDT was (").append(groups.size()).append(")\n");
+        if (groups.isEmpty()) sb.append("  none\n");
+        for (Map.Entry<String, Group> e : groups) {
+            Group g = e.getValue();
+            sb.append(String.format("  %-50s %5d x  total %7d ms  avg %6d ms  max %6d ms  last %s%n",
+                    e.getKey(), g.count, g.totalMs, g.totalMs / g.count, g.maxMs, g.last.format(TIME)));
+        }
+        for (Map.Entry<String, Group> e : groups) {
+            sb.append("\n").append(e.getKey()).append(" - sample stack (longest stall):\n");
+            for (StackTraceElement f : e.getValue().sample) sb.append("    at ").append(f).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Watchdog thread: samples the EDT once the event in progress runs past the threshold. */
+    private static void poll() {
+        Thread thread = edt;
+        long seq = dispatchSeq;
+        long start = dispatchStart;
+        if (thread == null || start == 0) return;
+        if (System.nanoTime() - start < thresholdMs * 1_000_000L) return;
+        synchronized (EdtWatchdog.class) {
+            if (pending != null && pending.seq() == seq) return;
+        }
+        StackTraceElement[] stack = thread.getStackTrace();
+        if (dispatchSeq != seq) return; // finished while we looked
+        List<StackTraceElement> frames = trim(stack);
+        String group = group(frames);
+        List<StackTraceElement> sample = List.copyOf(frames.subList(0, Math.min(SAMPLE_FRAMES, frames.size())));
+        synchronized (EdtWatchdog.class) {
+            pending = new Sample(seq, group, sample);
+        }
+    }
+
+    /** EDT: an event that ran for {@code ms} finished; record it if the watchdog sampled it. */
+    private static synchronized void stalled(long seq, long ms) {
+        Sample s = pending;
+        if (s == null || s.seq() != seq) return;
+        pending = null;
+        Group g = GROUPS.computeIfAbsent(s.group(), k -> new Group());
+        g.count++;
+        g.totalMs += ms;
+        g.last = LocalDateTime.now();
+        if (ms >= g.maxMs) {
+            g.maxMs = ms;
+            g.sample = s.stack();
+        }
+        changed = true;
+        String line = g.last.format(TIME) + "  " + ms + " ms  " + s.group() + "\n";
+        watcher.execute(() -> appendLog(line));
+    }
+
+    private static void writeReportIfChanged() {
+        synchronized (EdtWatchdog.class) {
+            if (!changed) return;
+            changed = false;
+        }
+        try {
+            writeReport();
+        } catch (IOException e) {
+            System.err.println("Error writing UI report: " + e.getMessage());
+        }
+    }
+
+    private static void appendLog(String line) {
+        try {
+            Files.createDirectories(DIR);
+            if (Files.exists(LOG) && Files.size(LOG) > LOG_ROLL_BYTES) {
+                Files.move(LOG, LOG.resolveSibling(LOG.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.writeString(LOG, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error writing UI stall log: " + e.getMessage());
+        }
+    }
+
+    /** The EDT frames above the timing queue, innermost first. */
+    private static List<StackTraceElement> trim(StackTraceElement[] stack) {
+        List<StackTraceElement> out = new ArrayList<>();
+        for (StackTraceElement f : stack) {
+            if (f.getClassName().startsWith(EdtWatchdog.class.getName())) break;
+            out.add(f);
+        }
+        return out;
+    }
+
+    /**
+     * Where the EDT was: the innermost application frame, then (if different) the outermost one,
+     * i.e. the handler that led there, e.g. {@code BookingStore.load < AdminBookingsPanel.refresh}.
+     * Falls back to the top frame when no application code is on the stack (painting, layout).
+     */
+    private static String group(List<StackTraceElement> frames) {
+        String inner = null, outer = null;
+        for (StackTraceElement f : frames) {
+            // Lambda bridge classes (Foo$$Lambda$13/0x...) are renamed on every run.
+            if (isPlatform(f.getClassName()) || f.getClassName().contains("$$Lambda")) continue;
+            if (inner == null) inner = name(f);
+            outer = name(f);
+        }
+        if (inner == null) return frames.isEmpty() ? "(unknown)" : name(frames.get(0));
+        return inner.equals(outer) ? inner : inner + " < " + outer;
+    }
+
+    private static boolean isPlatform(String cls) {
+        return cls.startsWith("java.") || cls.startsWith("javax.") || cls.startsWith("sun.")
+                || cls.startsWith("jdk.") || cls.startsWith("com.sun.") || cls.startsWith("apple.");
+    }
+
+    /** {@code Class.method}, with lambdas and anonymous classes named after their enclosing method / class. */
+    private static String name(StackTraceElement f) {
+        String cls = f.getClassName();
+        String simple = cls.substring(cls.lastIndexOf('.') + 1);
+        int inner = simple.indexOf('$');
+        if (inner > 0 && Character.isDigit(simple.charAt(inner + 1))) simple = simple.substring(0, inner);
+        String method = f.getMethodName();
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', 7);
+            method = method.substring(7, end > 7 ? end : method.length());
+        }
+        return simple + "." + method;
+    }
+
+    private static void record(long nanos) {
+        long ms = nanos / 1_000_000L;
+        int i = 0;
+        while (i < BUCKET_MS.length && ms >= BUCKET_MS[i]) i++;
+        HISTOGRAM.incrementAndGet(i);
+    }
+
+    private static String bucketLabel(int i) {
+        if (i == 0) return "< " + BUCKET_MS[0] + " ms";
+        if (i == BUCKET_MS.length) return ">= " + BUCKET_MS[i - 1] + " ms";
+        return BUCKET_MS[i - 1] + "-" + BUCKET_MS[i] + " ms";
+    }
+
+    /** Upper bound of the bucket holding the {@code q} quantile. */
+    private static String percentile(long[] counts, long events, double q) {
+        long rank = (long) Math.ceil(q * events);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i < BUCKET_MS.length ? "< " + BUCKET_MS[i] + " ms" : ">= " + BUCKET_MS[i - 1] + " ms";
+        }
+        return "-";
+    }
+
+    private static String bar(double pct) {
+        return "#".repeat((int) Math.round(pct / 2));
+    }
+
+    /**
+     * Times each event. When a handler starts pumping nested events (a modal dialog), the time up to
+     * then is recorded as if the event ended there; nested dispatches restart the outer event's clock
+     * when they return, so an open dialog does not count as a stall.
+     */
+    private static final class TimingQueue extends EventQueue {
+        private long[] starts = new long[8];
+        private boolean[] nested = new boolean[8];
+        private long[] seqs = new long[8];
+        private int depth;
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            if (depth == starts.length) {
+                starts = Arrays.copyOf(starts, depth * 2);
+                nested = Arrays.copyOf(nested, depth * 2);
+                seqs = Arrays.copyOf(seqs, depth * 2);
+            }
+            long start = System.nanoTime();
+            if (depth > 0) pumping(start);
+            int level = depth++;
+            starts[level] = start;
+            nested[level] = false;
+            seqs[level] = ++dispatchSeq;
+            edt = Thread.currentThread();
+            dispatchStart = start;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long end = System.nanoTime();
+                depth = level;
+                long nanos = end - starts[level];
+                if (!nested[level]) record(nanos); // else recorded when nesting began
+                if (nanos >= thresholdMs * 1_000_000L) stalled(seqs[level], nanos / 1_000_000L);
+                if (level > 0) {
+                    // The outer event resumes; time it from here.
+                    starts[level - 1] = end;
+                    seqs[level - 1] = ++dispatchSeq;
+                    dispatchStart = end;
+                } else {
+                    dispatchStart = 0;
+                    dispatchSeq++;
+                }
+            }
+        }
+
+        /** Called by the EDT's pump, including one a handler runs for a modal dialog. */
+        @Override
+        public AWTEvent getNextEvent() throws InterruptedException {
+            if (depth > 0) {
+                pumping(System.nanoTime());
+                dispatchStart = 0; // waiting for input, not stalled
+            }
+            return super.getNextEvent();
+        }
+
+        /**
+         * The handler of the innermost event is pumping events (opened a modal dialog). The first time,
+         * what it did up to here, such as a slow save before a confirmation, is recorded as if the
+         * event ended now.
+         */
+        private void pumping(long now) {
+            int outer = depth - 1;
+            if (nested[outer]) return;
+            nested[outer] = true;
+            long nanos = now - starts[outer];
+            record(nanos);
+            if (nanos >= thresholdMs * 1_000_000L) stalled(seqs[outer], nanos / 1_000_000L);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package common.util;
+
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Loads scaled images on a small background pool and hands them to the EDT.
+ *
+ * Requests for the same file and size share one decode. A request that is cancelled before its
+ * image is ready is not called back, and a decode nobody waits for any more is dropped if it has
+ * not started yet, so cards that scroll away quickly cost nothing.
+ */
+public final class ImageLoader {
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private record Key(String path, int width, int height) {}
+
+    /** A pending request; {@link #cancel()} stops the callback. */
+    public static final class Request {
+        private final Key key;
+        private final Consumer<BufferedImage> onReady;
+        private volatile boolean cancelled;
+
+        private Request(Key key, Consumer<BufferedImage> onReady) {
+            this.key = key;
+            this.onReady = onReady;
+        }
+
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            ImageLoader.cancel(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Pending {
+        final List<Request> waiters = new ArrayList<>(2);
+        Future<?> task;
+    }
+
+    private static final Map<Key, Pending> PENDING = new HashMap<>();
+    private static ThreadPoolExecutor pool;
+
+    private ImageLoader() {}
+
+    /**
+     * Loads {@code path} at {@code width} x {@code height} and calls {@code onReady} on the EDT
+     * with the image (null if it could not be read), unless the request is cancelled first.
+     */
+    public static synchronized Request load(String path, int width, int height, Consumer<BufferedImage> onReady) {
+        Key key = new Key(path, width, height);
+        Request request = new Request(key, onReady);
+        Pending p = PENDING.get(key);
+        if (p == null) {
+            p = new Pending();
+            PENDING.put(key, p);
+            p.task = pool().submit(() -> decode(key));
+        }
+        p.waiters.add(request);
+        return request;
+    }
+
+    private static synchronized void cancel(Request request) {
+        Pending p = PENDING.get(request.key);
+        if (p == null || !p.waiters.remove(request) || !p.waiters.isEmpty()) return;
+        // Nobody wants it any more; skip the decode if it has not started.
+        if (p.task.cancel(false)) PENDING.remove(request.key);
+    }
+
+    private static void decode(Key key) {
+        BufferedImage img = null;
+        try {
+            img = ThumbnailCache.get(key.path(), key.width(), key.height());
+        } catch (RuntimeException e) {
+            System.err.println("Error loading image " + key.path() + ": " + e.getMessage());
+        }
+        List<Request> waiters;
+        synchronized (ImageLoader.class) {
+            Pending p = PENDING.remove(key);
+            waiters = p == null ? List.of() : p.waiters;
+        }
+        if (waiters.isEmpty()) return;
+        BufferedImage result = img;
+        SwingUtilities.invokeLater(() -> {
+            for (Request r : waiters) {
+                if (!r.cancelled) r.onReady.accept(result);
+            }
+        });
+    }
+
+    private static synchronized ThreadPoolExecutor pool() {
+        if (pool == null) {
+            AtomicInteger n = new AtomicInteger();
+            pool = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "image-decode-" + n.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY - 1);
+                return t;
+            });
+            pool.allowCoreThreadTimeOut(true);
+        }
+        return pool;
+    }
+}
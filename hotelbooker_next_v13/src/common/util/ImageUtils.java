@@ -2,8 +2,11 @@ package common.util;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Objects;
 
 /**
  * Small helper for loading and scaling local images for Swing.
@@ -14,23 +17,131 @@ public class ImageUtils {
 
     private ImageUtils() {}
 
+    /** The image at {@code path} at exactly this size, served from {@link ThumbnailCache}. */
     public static ImageIcon loadAndScale(String path, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return new ImageIcon(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        }
         try {
-            File f = new File(path);
-            if (!f.exists()) {
+            if (path == null || !new File(path).exists()) {
                 return placeholder(width, height, "No Image");
             }
-            ImageIcon raw = new ImageIcon(path);
-            Image scaled = raw.getImage().getScaledInstance(width, height, Image.SCALE_SMOOTH);
-            return new ImageIcon(scaled);
+            BufferedImage scaled = ThumbnailCache.get(path, width, height);
+            return scaled == null ? placeholder(width, height, "Image Error") : new ImageIcon(scaled);
         } catch (Exception e) {
             return placeholder(width, height, "Image Error");
         }
     }
 
+    /**
+     * Shows the image at {@code path} in {@code label} without blocking the EDT: an image already in
+     * memory is set right away, otherwise a placeholder is shown and the image is swapped in once
+     * {@link ImageLoader} has it. A newer call for the same label replaces the older one, and the
+     * load is cancelled while the label is not on screen (e.g. its card scrolled away) and resumed
+     * when it shows again.
+     */
+    public static void loadInto(JLabel label, String path, int width, int height) {
+        AsyncIcon previous = (AsyncIcon) label.getClientProperty(AsyncIcon.class);
+        if (previous != null) {
+            if (previous.matches(path, width, height)) return;
+            previous.cancel();
+        }
+        if (width <= 0 || height <= 0) return;
+        if (path == null || !new File(path).exists()) {
+            label.putClientProperty(AsyncIcon.class, null);
+            label.setIcon(placeholder(width, height, "No Image"));
+            return;
+        }
+        BufferedImage ready = ThumbnailCache.peek(path, width, height);
+        if (ready != null) {
+            label.putClientProperty(AsyncIcon.class, new AsyncIcon(label, path, width, height, true));
+            label.setIcon(new ImageIcon(ready));
+            return;
+        }
+        label.setIcon(new LoadingIcon(width, height));
+        AsyncIcon icon = new AsyncIcon(label, path, width, height, false);
+        label.putClientProperty(AsyncIcon.class, icon);
+        if (label.getClientProperty(HierarchyListener.class) == null) {
+            HierarchyListener onShowing = e -> {
+                if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) return;
+                AsyncIcon current = (AsyncIcon) label.getClientProperty(AsyncIcon.class);
+                if (current == null) return;
+                if (label.isShowing()) current.start();
+                else current.cancel();
+            };
+            label.putClientProperty(HierarchyListener.class, onShowing);
+            label.addHierarchyListener(onShowing);
+        }
+        icon.start();
+    }
+
+    /** The image a label asked {@link #loadInto} for, and its outstanding request. */
+    private static final class AsyncIcon {
+        private final JLabel label;
+        private final String path;
+        private final int width;
+        private final int height;
+        private boolean done;
+        private ImageLoader.Request request;
+
+        AsyncIcon(JLabel label, String path, int width, int height, boolean done) {
+            this.label = label;
+            this.path = path;
+            this.width = width;
+            this.height = height;
+            this.done = done;
+        }
+
+        boolean matches(String path, int width, int height) {
+            return Objects.equals(path, this.path) && width == this.width && height == this.height;
+        }
+
+        void start() {
+            if (done || request != null) return;
+            request = ImageLoader.load(path, width, height, img -> {
+                request = null;
+                if (label.getClientProperty(AsyncIcon.class) != this) return;
+                done = true;
+                label.setIcon(img == null ? placeholder(width, height, "Image Error") : new ImageIcon(img));
+            });
+        }
+
+        void cancel() {
+            if (request != null) request.cancel();
+            request = null;
+        }
+    }
+
+    /** Same look as {@link #placeholder}, but painted directly, so showing one allocates no image. */
+    private record LoadingIcon(int width, int height) implements Icon {
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.translate(x, y);
+            paintPlaceholder(g2, width, height, "Loading...");
+            g2.dispose();
+        }
+
+        @Override
+        public int getIconWidth() {
+            return width;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return height;
+        }
+    }
+
     public static ImageIcon placeholder(int width, int height, String label) {
         BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         Graphics2D g2 = img.createGraphics();
+        paintPlaceholder(g2, width, height, label);
+        g2.dispose();
+        return new ImageIcon(img);
+    }
+
+    private static void paintPlaceholder(Graphics2D g2, int width, int height, String label) {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2.setColor(new Color(210, 210, 210));
         g2.fillRect(0, 0, width, height);
@@ -41,7 +152,5 @@ public class ImageUtils {
         int x = Math.max(10, (width - fm.stringWidth(label)) / 2);
         int y = (height + fm.getAscent()) / 2;
         g2.drawString(label, x, y);
-        g2.dispose();
-        return new ImageIcon(img);
     }
 }
@@ -0,0 +1,104 @@
+package common.util;
+
+import java.util.Arrays;
+
+/**
+ * Counts per day with "add to a range of days" and "highest count in a range of days",
+ * both in O(log days).
+ *
+ * Days are epoch days (LocalDate.toEpochDay()); ranges are half-open [from, to), like a stay's
+ * nights. The tree covers 1970-01-01 .. 2328 and only allocates nodes for the parts of that span
+ * that were actually touched. Days outside the span are clamped.
+ *
+ * Not thread-safe.
+ */
+public final class IntervalMaxTree {
+    private static final int DEPTH = 17;
+    private static final int SPAN = 1 << DEPTH;
+    private static final int NONE = 0; // node 0 is the root, so it never appears as a child
+
+    // Node i covers a power-of-two range of days. add[i] applies to all of it;
+    // max[i] = add[i] + the larger max of its two halves (a missing half counts as 0).
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    private int[] add = new int[64];
+    private int[] max = new int[64];
+    private int size = 1;
+
+    /** Adds {@code delta} to every day in [fromDay, toDay). */
+    public void add(long fromDay, long toDay, int delta) {
+        int from = clamp(fromDay), to = clamp(toDay);
+        if (from < to && delta != 0) add(0, 0, SPAN, from, to, delta);
+    }
+
+    /** Highest count of any day in [fromDay, toDay), or 0 for an empty range. */
+    public int max(long fromDay, long toDay) {
+        int from = clamp(fromDay), to = clamp(toDay);
+        return from < to ? max(0, 0, SPAN, from, to) : 0;
+    }
+
+    /** Count on a single day. */
+    public int get(long day) {
+        return max(day, day + 1);
+    }
+
+    public void clear() {
+        Arrays.fill(left, 0, size, NONE);
+        Arrays.fill(right, 0, size, NONE);
+        Arrays.fill(add, 0, size, 0);
+        Arrays.fill(max, 0, size, 0);
+        size = 1;
+    }
+
+    private void add(int node, int lo, int hi, int from, int to, int delta) {
+        if (from <= lo && hi <= to) {
+            add[node] += delta;
+            max[node] += delta;
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (from < mid) {
+            if (left[node] == NONE) {
+                int child = allocate(); // may replace the arrays, so not "left[node] = allocate()"
+                left[node] = child;
+            }
+            add(left[node], lo, mid, from, to, delta);
+        }
+        if (to > mid) {
+            if (right[node] == NONE) {
+                int child = allocate();
+                right[node] = child;
+            }
+            add(right[node], mid, hi, from, to, delta);
+        }
+        max[node] = add[node] + Math.max(maxOf(left[node]), maxOf(right[node]));
+    }
+
+    private int max(int node, int lo, int hi, int from, int to) {
+        if (from <= lo && hi <= to) return max[node];
+        int mid = (lo + hi) >>> 1;
+        int best = Integer.MIN_VALUE;
+        if (from < mid) best = left[node] == NONE ? 0 : max(left[node], lo, mid, from, to);
+        if (to > mid) best = Math.max(best, right[node] == NONE ? 0 : max(right[node], mid, hi, from, to));
+        return add[node] + best;
+    }
+
+    private int maxOf(int node) {
+        return node == NONE ? 0 : max[node];
+    }
+
+    private int allocate() {
+        if (size == left.length) {
+            int n = size * 2;
+            left = Arrays.copyOf(left, n);
+            right = Arrays.copyOf(right, n);
+            add = Arrays.copyOf(add, n);
+            max = Arrays.copyOf(max, n);
+        }
+        return size++;
+    }
+
+    private static int clamp(long day) {
+        return (int) Math.max(0, Math.min(SPAN, day));
+    }
+}
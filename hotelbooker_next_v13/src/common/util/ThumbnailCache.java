@@ -0,0 +1,277 @@
+package common.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pre-scaled room images.
+ *
+ * Requested sizes are rounded up to a {@link #BUCKET} px step, so a card that is resized by a few
+ * pixels reuses the same thumbnail and only needs a cheap final resample (whose result is cached
+ * too). Thumbnails are kept:
+ * <ul>
+ *   <li>in memory: an LRU bounded to {@link #MEMORY_BUDGET_BYTES} of pixels, holding soft references
+ *       so the JVM can still reclaim them under memory pressure</li>
+ *   <li>on disk under {@code cache/thumbnails/}, named by the SHA-1 of the source file's bytes and
+ *       the bucket size. The hash is remembered per file size and modification time, so an
+ *       unchanged file is not re-read; rooms sharing one picture share its thumbnails.</li>
+ * </ul>
+ * On a miss the source is decoded with subsampling (never below twice the target size) and
+ * downscaled by repeated bilinear halving instead of {@code getScaledInstance}. The disk copy is
+ * written in the background; the folder is only a cache and can be deleted at any time.
+ */
+public final class ThumbnailCache {
+    private static final Path DIR = Paths.get("cache", "thumbnails");
+    private static final int BUCKET = 32;
+    private static final long MEMORY_BUDGET_BYTES = 48L * 1024 * 1024;
+    private static final float JPEG_QUALITY = 0.9f;
+
+    private record Key(String hash, int width, int height) {}
+
+    private record Stamp(long size, long modified, String hash) {}
+
+    private static final Map<Key, SoftReference<BufferedImage>> MEMORY = new LinkedHashMap<>(64, 0.75f, true);
+    private static long memoryBytes;
+    private static final Map<String, Stamp> HASHES = new LinkedHashMap<>();
+    private static ExecutorService writer;
+
+    private ThumbnailCache() {}
+
+    /**
+     * {@code path} scaled to exactly {@code width} x {@code height}, or null if the file is missing
+     * or cannot be decoded.
+     */
+    public static BufferedImage get(String path, int width, int height) {
+        if (path == null || width <= 0 || height <= 0) return null;
+        Stamp stamp = stamp(Paths.get(path));
+        if (stamp == null) return null;
+        Key exact = new Key(stamp.hash(), width, height);
+        BufferedImage img = fromMemory(exact);
+        if (img != null) return img;
+        BufferedImage thumb = bucket(Paths.get(path), stamp, bucketSize(width), bucketSize(height));
+        if (thumb == null || (thumb.getWidth() == width && thumb.getHeight() == height)) return thumb;
+        img = resample(thumb, width, height);
+        remember(exact, img);
+        return img;
+    }
+
+    /**
+     * The image if it is already in memory at exactly this size, else null. Does no file access,
+     * so it is safe to call on the EDT before falling back to {@link ImageLoader}.
+     */
+    public static BufferedImage peek(String path, int width, int height) {
+        if (path == null) return null;
+        Stamp stamp;
+        synchronized (ThumbnailCache.class) {
+            stamp = HASHES.get(id(Paths.get(path)));
+        }
+        return stamp == null ? null : fromMemory(new Key(stamp.hash(), width, height));
+    }
+
+    /** Drops the in-memory thumbnails (the disk cache is kept). */
+    public static synchronized void clearMemory() {
+        MEMORY.clear();
+        memoryBytes = 0;
+    }
+
+    /** The thumbnail for a bucket size: from memory, then disk, then the source file. */
+    private static BufferedImage bucket(Path source, Stamp stamp, int width, int height) {
+        Key key = new Key(stamp.hash(), width, height);
+        BufferedImage thumb = fromMemory(key);
+        if (thumb != null) return thumb;
+
+        Path file = DIR.resolve(stamp.hash() + "_" + width + "x" + height + ".jpg");
+        thumb = readDisk(file);
+        if (thumb == null) {
+            thumb = decodeScaled(source, width, height);
+            if (thumb == null) return null;
+            writeDiskLater(file, thumb);
+        }
+        remember(key, thumb);
+        return thumb;
+    }
+
+    private static synchronized BufferedImage fromMemory(Key key) {
+        SoftReference<BufferedImage> ref = MEMORY.get(key);
+        BufferedImage img = ref == null ? null : ref.get();
+        if (ref != null && img == null) {
+            MEMORY.remove(key); // reclaimed by the GC; its bytes are no longer held
+            memoryBytes -= bytes(key);
+        }
+        return img;
+    }
+
+    private static synchronized void remember(Key key, BufferedImage img) {
+        SoftReference<BufferedImage> old = MEMORY.put(key, new SoftReference<>(img));
+        if (old == null) memoryBytes += bytes(key);
+        Iterator<Map.Entry<Key, SoftReference<BufferedImage>>> it = MEMORY.entrySet().iterator();
+        while (memoryBytes > MEMORY_BUDGET_BYTES && it.hasNext()) {
+            Key eldest = it.next().getKey();
+            if (eldest.equals(key)) break;
+            it.remove();
+            memoryBytes -= bytes(eldest);
+        }
+    }
+
+    /** Size, mtime and content hash of the file; the hash is reused while size and mtime match. */
+    private static Stamp stamp(Path source) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(source, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        if (!attrs.isRegularFile()) return null;
+        String id = id(source);
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        synchronized (ThumbnailCache.class) {
+            Stamp known = HASHES.get(id);
+            if (known != null && known.size() == size && known.modified() == modified) return known;
+        }
+        try (InputStream in = Files.newInputStream(source)) {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] buf = new byte[16384];
+            for (int n; (n = in.read(buf)) > 0; ) sha1.update(buf, 0, n);
+            Stamp stamp = new Stamp(size, modified, HexFormat.of().formatHex(sha1.digest()));
+            synchronized (ThumbnailCache.class) {
+                HASHES.put(id, stamp);
+            }
+            return stamp;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static String id(Path source) {
+        return source.toAbsolutePath().normalize().toString();
+    }
+
+    private static BufferedImage readDisk(Path file) {
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            return ImageIO.read(file.toFile());
+        } catch (IOException e) {
+            System.err.println("Ignoring cached thumbnail " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static synchronized void writeDiskLater(Path file, BufferedImage thumb) {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "thumbnail-cache");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        writer.execute(() -> writeDisk(file, thumb));
+    }
+
+    private static void writeDisk(Path file, BufferedImage thumb) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(DIR);
+            ImageWriter jpeg = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                ImageWriteParam param = jpeg.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                jpeg.setOutput(out);
+                jpeg.write(null, new javax.imageio.IIOImage(thumb, null, null), param);
+            } finally {
+                jpeg.dispose();
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error writing thumbnail " + file + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Decodes {@code source} skipping pixels it can afford to (keeping at least twice the target
+     * size for a clean downscale), then scales it to the target.
+     */
+    private static BufferedImage decodeScaled(Path source, int width, int height) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0) / (2 * width), reader.getHeight(0) / (2 * height)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error decoding image " + source + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Halves with bilinear filtering while the image is more than twice the target, then one last step. */
+    private static BufferedImage scale(BufferedImage src, int width, int height) {
+        BufferedImage img = src;
+        int w = img.getWidth(), h = img.getHeight();
+        while (w / 2 >= width && h / 2 >= height) {
+            w /= 2;
+            h /= 2;
+            img = resample(img, w, h);
+        }
+        return img.getWidth() == width && img.getHeight() == height ? toRgb(img) : resample(img, width, height);
+    }
+
+    private static BufferedImage resample(BufferedImage src, int width, int height) {
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(src, 0, 0, width, height, null);
+        g.dispose();
+        return out;
+    }
+
+    private static BufferedImage toRgb(BufferedImage img) {
+        return img.getType() == BufferedImage.TYPE_INT_RGB ? img : resample(img, img.getWidth(), img.getHeight());
+    }
+
+    private static int bucketSize(int px) {
+        return (px + BUCKET - 1) / BUCKET * BUCKET;
+    }
+
+    private static long bytes(Key key) {
+        return 4L * key.width() * key.height();
+    }
+}
@@ -1,10 +1,12 @@
 package guest.controller;
 
 import guest.service.GuestBookingService;
+import guest.service.RoomSearchEngine;
 import common.model.Room;
 import common.service.FavoritesService;
 import common.model.User;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,6 +27,17 @@ public class GuestController {
      */
     public List<Room> fetchRooms(boolean showingFavorites, boolean onlyFavoritesFilter,
                                  boolean onlyAvailable, String destinationQuery, User currentUser) {
+        return fetchRooms(showingFavorites, onlyFavoritesFilter, onlyAvailable, destinationQuery,
+                null, null, 0, currentUser);
+    }
+
+    /**
+     * Same as above, but with a stay: only rooms with a unit free for [checkIn, checkOut) and
+     * room for {@code guests} are returned (null dates / guests <= 0 skip those checks).
+     */
+    public List<Room> fetchRooms(boolean showingFavorites, boolean onlyFavoritesFilter,
+                                 boolean onlyAvailable, String destinationQuery,
+                                 LocalDate checkIn, LocalDate checkOut, int guests, User currentUser) {
         List<Room> base;
         if (showingFavorites && currentUser != null) {
             var favIds = FavoritesService.getFavorites(currentUser);
@@ -40,13 +53,7 @@ public class GuestController {
             base = base.stream().filter(r -> favIds.contains(r.getId())).collect(Collectors.toList());
         }
 
-        String q = destinationQuery == null ? "" : destinationQuery.trim().toLowerCase();
-        if (!q.isEmpty()) {
-            base = base.stream()
-                    .filter(r -> (r.getHotelName() != null && r.getHotelName().toLowerCase().contains(q))
-                            || (r.getLocation() != null && r.getLocation().toLowerCase().contains(q)))
-                    .collect(Collectors.toList());
-        }
+        base = RoomSearchEngine.search(base, destinationQuery, checkIn, checkOut, guests);
 
         if (onlyAvailable) {
             base = base.stream().filter(Room::isAvailable).collect(Collectors.toList());
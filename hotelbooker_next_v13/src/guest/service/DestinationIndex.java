@@ -0,0 +1,224 @@
+package guest.service;
+
+import common.model.Room;
+
+import java.util.*;
+
+/**
+ * Token index over the room catalog for destination search and typeahead.
+ *
+ * Hotel name, room type, location (city and country) and amenities are split into lower-case
+ * tokens. Each token has a posting set of the rooms (by position in the catalog) that contain it,
+ * and all tokens sit in a prefix trie. A query token matches every indexed token it is a prefix
+ * of, so "new yo" finds New York without scanning the catalog.
+ *
+ * Every distinct hotel, location, country, room type and amenity is also a suggestion, ranked
+ * by how many rooms have it. Each trie node keeps the best few suggestions of its subtree, so
+ * typeahead is a walk down the trie.
+ *
+ * Immutable once built, apart from the per-node room sets, which are filled on first use (one per
+ * trie node up front would cost far more memory than the queries touch). Each is complete before it
+ * is published through a volatile field, so threads sharing an index can race to fill a node and
+ * both get the same set. {@link RoomSearchEngine} builds a new index when the rooms change.
+ */
+final class DestinationIndex {
+    private static final int TOP_PER_NODE = 16;
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>();
+        String token;                                 // set if a token ends here
+        final List<Phrase> phrases = new ArrayList<>(); // phrases containing that token
+        List<Phrase> top = List.of();
+        volatile BitSet rooms;                        // union over the subtree, built on first use; never changed after
+    }
+
+    /** One suggestible value and the rooms that have it. */
+    private static final class Phrase {
+        final String text;
+        final String kind;
+        final List<String> tokens;
+        final BitSet rooms = new BitSet();
+        int count; // rooms.cardinality(), fixed after the build
+
+        Phrase(String text, String kind, List<String> tokens) {
+            this.text = text;
+            this.kind = kind;
+            this.tokens = tokens;
+        }
+
+        RoomSearchEngine.Suggestion toSuggestion() {
+            return new RoomSearchEngine.Suggestion(text, kind, count);
+        }
+    }
+
+    private static final Comparator<Phrase> BY_RANK = Comparator
+            .comparingInt((Phrase p) -> -p.count)
+            .thenComparing(p -> p.text, String.CASE_INSENSITIVE_ORDER);
+
+    private final List<Room> rooms;
+    private final Map<String, Integer> positionById = new HashMap<>();
+    private final Map<String, BitSet> postings = new HashMap<>();
+    private final Node root = new Node();
+
+    DestinationIndex(List<Room> catalog) {
+        this.rooms = List.copyOf(catalog);
+        Map<String, Phrase> phrases = new LinkedHashMap<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            Room r = rooms.get(i);
+            if (r.getId() != null) positionById.putIfAbsent(r.getId().toUpperCase(Locale.ROOT), i);
+            addField(phrases, i, r.getHotelName(), "Hotel");
+            addField(phrases, i, r.getRoomType(), "Room type");
+            String location = r.getLocation();
+            addField(phrases, i, location, "Location");
+            if (location != null && location.contains(",")) {
+                addField(phrases, i, location.substring(location.lastIndexOf(',') + 1), "Country");
+            }
+            if (r.getAmenities() != null) {
+                for (String a : r.getAmenities()) addField(phrases, i, a, "Amenity");
+            }
+        }
+        for (Phrase p : phrases.values()) {
+            p.count = p.rooms.cardinality();
+            for (String t : new HashSet<>(p.tokens)) insert(t).phrases.add(p);
+        }
+        rankSubtree(root);
+    }
+
+    /** Catalog position of a room, or -1 if it is not in the index. */
+    int positionOf(String roomId) {
+        Integer i = roomId == null ? null : positionById.get(roomId.toUpperCase(Locale.ROOT));
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Rooms matching every token of {@code query} (each as a prefix of some indexed token),
+     * as catalog positions. Null for a query without tokens, i.e. "no destination filter".
+     */
+    BitSet match(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) return null;
+        BitSet out = null;
+        for (String t : tokens) {
+            Node n = find(t);
+            if (n == null) return new BitSet();
+            BitSet hits = roomsUnder(n);
+            if (out == null) {
+                out = (BitSet) hits.clone();
+            } else {
+                out.and(hits);
+            }
+            if (out.isEmpty()) break;
+        }
+        return out;
+    }
+
+    Room roomAt(int position) {
+        return rooms.get(position);
+    }
+
+    /** Rooms at the given catalog positions, in catalog order. */
+    List<Room> rooms(BitSet positions) {
+        List<Room> out = new ArrayList<>(positions.cardinality());
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) out.add(rooms.get(i));
+        return out;
+    }
+
+    /**
+     * Up to {@code limit} suggestions for what has been typed so far, most rooms first.
+     * The last word is completed; earlier words must each start some word of the suggestion.
+     */
+    List<RoomSearchEngine.Suggestion> suggest(String typed, int limit) {
+        List<String> tokens = tokenize(typed);
+        if (tokens.isEmpty() || limit <= 0) return List.of();
+        Node n = find(tokens.get(tokens.size() - 1));
+        if (n == null) return List.of();
+        List<String> earlier = tokens.subList(0, tokens.size() - 1);
+        List<RoomSearchEngine.Suggestion> out = new ArrayList<>();
+        for (Phrase p : n.top) {
+            if (!startsWords(p, earlier)) continue;
+            out.add(p.toSuggestion());
+            if (out.size() == limit) break;
+        }
+        return out;
+    }
+
+    /** Lower-case words of {@code text} (letters and digits). */
+    static List<String> tokenize(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+        String s = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(s.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    // =============== build ===============
+    private void addField(Map<String, Phrase> phrases, int position, String value, String kind) {
+        if (value == null || value.isBlank()) return;
+        String text = value.trim();
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) return;
+        for (String t : tokens) postings.computeIfAbsent(t, k -> new BitSet()).set(position);
+        phrases.computeIfAbsent(kind + "|" + text.toLowerCase(Locale.ROOT), k -> new Phrase(text, kind, tokens))
+                .rooms.set(position);
+    }
+
+    private Node insert(String token) {
+        Node n = root;
+        for (int i = 0; i < token.length(); i++) {
+            n = n.children.computeIfAbsent(token.charAt(i), c -> new Node());
+        }
+        n.token = token;
+        return n;
+    }
+
+    /** Fills {@code top} bottom-up: the node's own phrases merged with its children's best. */
+    private static List<Phrase> rankSubtree(Node n) {
+        Set<Phrase> candidates = new LinkedHashSet<>(n.phrases);
+        for (Node child : n.children.values()) candidates.addAll(rankSubtree(child));
+        List<Phrase> ranked = new ArrayList<>(candidates);
+        ranked.sort(BY_RANK);
+        n.top = ranked.size() > TOP_PER_NODE ? List.copyOf(ranked.subList(0, TOP_PER_NODE)) : List.copyOf(ranked);
+        return n.top;
+    }
+
+    // =============== lookup ===============
+    private Node find(String prefix) {
+        Node n = root;
+        for (int i = 0; i < prefix.length() && n != null; i++) n = n.children.get(prefix.charAt(i));
+        return n;
+    }
+
+    /** Union of the postings under {@code n}. Shared: callers must not modify it. */
+    private BitSet roomsUnder(Node n) {
+        BitSet cached = n.rooms;
+        if (cached != null) return cached;
+        BitSet out = new BitSet();
+        if (n.token != null) out.or(postings.get(n.token));
+        for (Node child : n.children.values()) out.or(roomsUnder(child));
+        n.rooms = out;
+        return out;
+    }
+
+    private static boolean startsWords(Phrase p, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            boolean found = false;
+            for (String t : p.tokens) {
+                if (t.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+}
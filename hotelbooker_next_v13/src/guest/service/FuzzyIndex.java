@@ -0,0 +1,175 @@
+package guest.service;
+
+import common.model.Room;
+
+import java.util.*;
+
+/**
+ * Typo-tolerant lookup over the words of hotel names, room types and locations.
+ *
+ * Every distinct word is split into trigrams of "$word$" ("$mi", "mia", ..., "mi$"). A misspelt
+ * query word collects the vocabulary words sharing at least one trigram with it, scores them by
+ * trigram overlap (Dice) and by edit distance (adjacent swaps count as one edit, so "mimai" is
+ * one edit from "miami"), and keeps the close ones. Only words are compared, never rooms, so a
+ * lookup costs the same for 200 or 20,000 rooms with the same vocabulary.
+ *
+ * Used by {@link RoomSearchEngine} only when the exact index finds nothing.
+ * Immutable once built.
+ */
+final class FuzzyIndex {
+    private static final double MIN_DICE = 0.5;
+    private static final int WORDS_PER_QUERY_WORD = 5;
+
+    /** A vocabulary word close to a query word; score in (0, 1], 1 = identical. */
+    record Match(String word, double score) {}
+
+    /** A room (catalog position) found for a misspelt query and how close it is; higher is closer. */
+    record Hit(int position, double score) {}
+
+    private final int size;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> vocabulary = new ArrayList<>();
+    private final List<BitSet> wordRooms = new ArrayList<>();
+    private final int[] gramCounts;
+    private final Map<String, int[]> wordsByGram = new HashMap<>();
+
+    FuzzyIndex(List<Room> catalog) {
+        size = catalog.size();
+        for (int i = 0; i < catalog.size(); i++) {
+            Room r = catalog.get(i);
+            for (String field : new String[]{r.getHotelName(), r.getRoomType(), r.getLocation()}) {
+                for (String w : DestinationIndex.tokenize(field)) {
+                    Integer id = ids.get(w);
+                    if (id == null) {
+                        id = vocabulary.size();
+                        ids.put(w, id);
+                        vocabulary.add(w);
+                        wordRooms.add(new BitSet());
+                    }
+                    wordRooms.get(id).set(i);
+                }
+            }
+        }
+
+        gramCounts = new int[vocabulary.size()];
+        Map<String, List<Integer>> grams = new HashMap<>();
+        for (int id = 0; id < vocabulary.size(); id++) {
+            Set<String> own = trigrams(vocabulary.get(id));
+            gramCounts[id] = own.size();
+            for (String g : own) grams.computeIfAbsent(g, k -> new ArrayList<>()).add(id);
+        }
+        for (Map.Entry<String, List<Integer>> e : grams.entrySet()) {
+            wordsByGram.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /** Vocabulary words close to {@code word}, best first, at most {@code limit}. */
+    List<Match> similarWords(String word, int limit) {
+        Set<String> grams = trigrams(word);
+        int[] shared = new int[vocabulary.size()];
+        List<Integer> touched = new ArrayList<>();
+        for (String g : grams) {
+            int[] words = wordsByGram.get(g);
+            if (words == null) continue;
+            for (int id : words) {
+                if (shared[id]++ == 0) touched.add(id);
+            }
+        }
+
+        int maxEdits = word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+        List<Match> out = new ArrayList<>();
+        for (int id : touched) {
+            String candidate = vocabulary.get(id);
+            double dice = 2.0 * shared[id] / (grams.size() + gramCounts[id]);
+            int edits = editDistance(word, candidate, maxEdits + 1);
+            if (edits > maxEdits && dice < MIN_DICE) continue;
+            double byEdits = 1.0 - (double) edits / Math.max(word.length(), candidate.length());
+            out.add(new Match(candidate, Math.max(dice, byEdits)));
+        }
+        out.sort(Comparator.comparingDouble(Match::score).reversed().thenComparing(Match::word));
+        return out.size() > limit ? out.subList(0, limit) : out;
+    }
+
+    /**
+     * Up to {@code limit} rooms (catalog positions) for a query whose words may be misspelt,
+     * best first. A room scores the best match of each query word among its own words.
+     */
+    List<Hit> rooms(String query, int limit) {
+        double[] scores = new double[size];
+        BitSet scored = new BitSet(size);
+        BitSet seen = new BitSet(size);
+        for (String w : DestinationIndex.tokenize(query)) {
+            seen.clear();
+            // Best match first, so the first score a room gets for this word is its best.
+            for (Match m : similarWords(w, WORDS_PER_QUERY_WORD)) {
+                BitSet rooms = wordRooms.get(ids.get(m.word()));
+                for (int i = rooms.nextSetBit(0); i >= 0; i = rooms.nextSetBit(i + 1)) {
+                    if (seen.get(i)) continue;
+                    seen.set(i);
+                    scores[i] += m.score();
+                }
+            }
+            scored.or(seen);
+        }
+
+        // Keep the best `limit` (earlier position wins a tie); the heap's head is the weakest kept.
+        PriorityQueue<Integer> best = new PriorityQueue<>(
+                Comparator.comparingDouble((Integer i) -> scores[i]).thenComparing(i -> -i));
+        for (int i = scored.nextSetBit(0); i >= 0; i = scored.nextSetBit(i + 1)) {
+            if (best.size() < limit) {
+                best.add(i);
+            } else if (limit > 0 && scores[i] > scores[best.peek()]) {
+                best.poll();
+                best.add(i);
+            }
+        }
+        List<Integer> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble((Integer i) -> -scores[i]).thenComparingInt(i -> i));
+        List<Hit> out = new ArrayList<>(ranked.size());
+        for (int i : ranked) out.add(new Hit(i, scores[i]));
+        return out;
+    }
+
+    /** The query with each word replaced by its closest vocabulary word (unchanged if none). */
+    String correct(String query) {
+        StringBuilder sb = new StringBuilder();
+        for (String w : DestinationIndex.tokenize(query)) {
+            List<Match> best = similarWords(w, 1);
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(best.isEmpty() ? w : best.get(0).word());
+        }
+        return sb.toString();
+    }
+
+    private static Set<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) out.add(padded.substring(i, i + 3));
+        return out;
+    }
+
+    /**
+     * Edits (insert, delete, replace, swap of neighbours) between {@code a} and {@code b};
+     * stops counting at {@code cap}.
+     */
+    private static int editDistance(String a, String b, int cap) {
+        if (Math.abs(a.length() - b.length()) >= cap) return cap;
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            int rowMin = Integer.MAX_VALUE;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int v = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    v = Math.min(v, d[i - 2][j - 2] + 1);
+                }
+                d[i][j] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin >= cap) return cap;
+        }
+        return Math.min(d[a.length()][b.length()], cap);
+    }
+}
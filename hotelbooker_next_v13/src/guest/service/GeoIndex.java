@@ -0,0 +1,135 @@
+package guest.service;
+
+import common.model.Room;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid over latitude/longitude for radius and bounding-box queries.
+ *
+ * Rooms with coordinates are bucketed into cells of {@link #CELL_DEGREES} (about 5.5 km north to
+ * south). A query visits the cells its area covers and tests only the rooms in them. When the
+ * area spans more cells than there are occupied cells (a continent-wide box), it walks the
+ * occupied cells instead, so no query is worse than one pass over the rooms with a position.
+ * Positions are catalog positions, as in {@link DestinationIndex}.
+ *
+ * Immutable once built; {@link RoomSearchEngine} builds a new one when the rooms change.
+ */
+final class GeoIndex {
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double CELL_DEGREES = 0.05;
+    private static final int LON_CELLS = (int) Math.round(360 / CELL_DEGREES);
+
+    /** A room position and its distance from the query point. */
+    record Hit(int position, double km) {}
+
+    private final double[] lat;
+    private final double[] lon;
+    private final Map<Long, int[]> cells = new HashMap<>();
+
+    GeoIndex(List<Room> catalog) {
+        lat = new double[catalog.size()];
+        lon = new double[catalog.size()];
+        Map<Long, List<Integer>> build = new HashMap<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            Room r = catalog.get(i);
+            lat[i] = r.getLatitude();
+            lon[i] = r.getLongitude();
+            if (!r.hasCoordinates()) continue;
+            build.computeIfAbsent(cell(latCell(lat[i]), lonCell(lon[i])), k -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<Long, List<Integer>> e : build.entrySet()) {
+            cells.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /** Rooms within {@code radiusKm} of the point, nearest first. */
+    List<Hit> near(double latitude, double longitude, double radiusKm) {
+        List<Hit> out = new ArrayList<>();
+        if (radiusKm < 0 || Double.isNaN(latitude) || Double.isNaN(longitude)) return out;
+        // Box around the circle; near the poles (or for huge radii) it is every longitude.
+        double dLat = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double cos = Math.cos(Math.toRadians(latitude));
+        double dLon = cos <= 1e-9 ? 180 : Math.toDegrees(radiusKm / (EARTH_RADIUS_KM * cos));
+        double minLon = dLon >= 180 ? -180 : longitude - dLon;
+        double maxLon = dLon >= 180 ? 180 : longitude + dLon;
+        visit(latitude - dLat, minLon, latitude + dLat, maxLon, i -> {
+            double km = distanceKm(latitude, longitude, lat[i], lon[i]);
+            if (km <= radiusKm) out.add(new Hit(i, km));
+        });
+        out.sort(Comparator.comparingDouble(Hit::km).thenComparingInt(Hit::position));
+        return out;
+    }
+
+    /**
+     * Rooms inside the box. A box whose west edge is east of its east edge crosses the
+     * 180th meridian (e.g. 170 to -170).
+     */
+    BitSet within(double minLat, double minLon, double maxLat, double maxLon) {
+        BitSet out = new BitSet(lat.length);
+        boolean wraps = minLon > maxLon;
+        visit(minLat, minLon, maxLat, maxLon, i -> {
+            boolean lonInside = wraps ? lon[i] >= minLon || lon[i] <= maxLon : lon[i] >= minLon && lon[i] <= maxLon;
+            if (lat[i] >= minLat && lat[i] <= maxLat && lonInside) out.set(i);
+        });
+        return out;
+    }
+
+    /** Great-circle distance in km (haversine). */
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /** Calls {@code test} with every room in the cells covering the box (a superset of the box). */
+    private void visit(double minLat, double minLon, double maxLat, double maxLon, IntConsumer test) {
+        int lat0 = latCell(Math.max(-90, minLat)), lat1 = latCell(Math.min(90, maxLat));
+        if (lat0 > lat1) return;
+        // Longitude cells, possibly wrapping past the 180th meridian.
+        int lon0, lonSpan;
+        if (maxLon - minLon >= 360 || (minLon <= -180 && maxLon >= 180)) {
+            lon0 = 0;
+            lonSpan = LON_CELLS;
+        } else {
+            lon0 = lonCell(wrap(minLon));
+            int lon1 = lonCell(wrap(maxLon));
+            lonSpan = Math.floorMod(lon1 - lon0, LON_CELLS) + 1;
+        }
+
+        long covered = (long) (lat1 - lat0 + 1) * lonSpan;
+        if (covered > cells.size()) {
+            // Cheaper to look at the occupied cells than at every covered one.
+            for (int[] rooms : cells.values()) {
+                for (int i : rooms) test.accept(i);
+            }
+            return;
+        }
+        for (int la = lat0; la <= lat1; la++) {
+            for (int k = 0; k < lonSpan; k++) {
+                int[] rooms = cells.get(cell(la, (lon0 + k) % LON_CELLS));
+                if (rooms == null) continue;
+                for (int i : rooms) test.accept(i);
+            }
+        }
+    }
+
+    private static int latCell(double latitude) {
+        return (int) Math.floor((latitude + 90) / CELL_DEGREES);
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / CELL_DEGREES), LON_CELLS);
+    }
+
+    private static double wrap(double longitude) {
+        return ((longitude + 180) % 360 + 360) % 360 - 180;
+    }
+
+    private static long cell(int latCell, int lonCell) {
+        return (long) latCell * LON_CELLS + lonCell;
+    }
+}
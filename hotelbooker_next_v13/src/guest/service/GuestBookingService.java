@@ -5,14 +5,17 @@ import common.model.Booking;
 import common.model.Payment;
 import common.filehandler.TransactionFileHandler;
 import java.time.LocalDate;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class GuestBookingService {
 
     private static final ThreadLocal<String> LAST_ERROR = new ThreadLocal<>();
+    private static final String DATA_BUSY = "Could not save: the data folder is locked by another terminal. Please try again.";
     
     public GuestBookingService() {
     }
@@ -38,24 +41,17 @@ public class GuestBookingService {
      * Search rooms by destination (hotel name or location)
      */
     public List<Room> searchRoomsByDestination(String destination) {
-        String searchTerm = destination.toLowerCase().trim();
-        
-        return TransactionFileHandler.readRoomsFromFile()
-                .stream()
-                .filter(room -> room.getHotelName().toLowerCase().contains(searchTerm) ||
-                               room.getLocation().toLowerCase().contains(searchTerm))
-                .collect(Collectors.toList());
+        return RoomSearchEngine.search(destination, null, null, 0);
     }
 
     /**
      * Search rooms by price range
      */
     public List<Room> searchRoomsByPrice(double minPrice, double maxPrice) {
-        return TransactionFileHandler.readRoomsFromFile()
+        RoomSearchEngine.Filters filters = new RoomSearchEngine.Filters(minPrice, maxPrice, 0, Set.of());
+        return RoomSearchEngine.search(null, null, null, 0, filters)
                 .stream()
                 .filter(Room::isAvailable)
-                .filter(room -> room.getPricePerNight() >= minPrice && 
-                               room.getPricePerNight() <= maxPrice)
                 .collect(Collectors.toList());
     }
 
@@ -63,10 +59,10 @@ public class GuestBookingService {
      * Search rooms by rating
      */
     public List<Room> searchRoomsByRating(double minRating) {
-        return TransactionFileHandler.readRoomsFromFile()
+        RoomSearchEngine.Filters filters = new RoomSearchEngine.Filters(0, Double.MAX_VALUE, minRating, Set.of());
+        return RoomSearchEngine.search(null, null, null, 0, filters)
                 .stream()
                 .filter(Room::isAvailable)
-                .filter(room -> room.getRating() >= minRating)
                 .collect(Collectors.toList());
     }
 
@@ -74,11 +70,7 @@ public class GuestBookingService {
      * Get a specific room by ID
      */
     public Room getRoomById(String roomId) {
-        return TransactionFileHandler.readRoomsFromFile()
-                .stream()
-                .filter(room -> room.getId().equals(roomId))
-                .findFirst()
-                .orElse(null);
+        return TransactionFileHandler.findRoomById(roomId);
     }
 
     /**
@@ -138,12 +130,6 @@ public class GuestBookingService {
             return null;
         }
 
-        // Booking conflict prevention (date overlap)
-        if (!isRoomAvailableForDates(roomId, checkIn, checkOut)) {
-            LAST_ERROR.set("Room is already booked for the selected dates.");
-            return null;
-        }
-
         long nights = java.time.temporal.ChronoUnit.DAYS.between(checkIn, checkOut);
         if (nights <= 0) {
             LAST_ERROR.set("Invalid stay length.");
@@ -157,67 +143,47 @@ public class GuestBookingService {
             total = total * (1.0 - (pct / 100.0));
         }
 
-        String bookingId = "B" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        Booking booking = new Booking(bookingId, guestName, roomId, checkIn, checkOut, guests, total, "CONFIRMED");
-        TransactionFileHandler.saveBooking(booking);
-
-        String paymentId = "P" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        Payment payment = new Payment(paymentId, bookingId, total, paymentMethod, "PAID", LocalDateTime.now());
-        TransactionFileHandler.savePayment(payment);
+        // The store checks availability and writes under the data-folder lock, so concurrent
+        // bookings (threads or terminals) cannot both take the last unit.
+        try {
+            String bookingId = "B" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            Booking booking = new Booking(bookingId, guestName, roomId, checkIn, checkOut, guests, total, "CONFIRMED");
+            String paymentId = "P" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            Payment payment = new Payment(paymentId, bookingId, total, paymentMethod, "PAID", LocalDateTime.now());
+            // Booking and payment are committed together: neither is kept without the other.
+            if (!TransactionFileHandler.saveBookingIfAvailable(booking, payment, unitsOf(roomId))) {
+                LAST_ERROR.set("Room is already booked for the selected dates.");
+                return null;
+            }
 
-        // NOTE: We no longer permanently mark the room as unavailable.
-        // Availability is computed from bookings (date overlap prevention).
+            // NOTE: We no longer permanently mark the room as unavailable.
+            // Availability is computed from bookings (date overlap prevention).
 
-        return booking;
+            return booking;
+        } catch (UncheckedIOException e) {
+            // The data folder could not be locked (another terminal stuck?); nothing was written.
+            System.err.println("Error saving booking: " + e.getMessage());
+            LAST_ERROR.set(DATA_BUSY);
+            return null;
+        }
     }
 
     /**
-     * Checks whether a room has capacity (units) left for the requested date range.
-     * Overlap rule: start < existingEnd AND end > existingStart.
+     * Checks whether a room has capacity (units) left for the requested date range,
+     * i.e. fewer CONFIRMED bookings than units on every night of [start, end).
      */
     public boolean isRoomAvailableForDates(String roomId, LocalDate start, LocalDate end) {
-        if (roomId == null || start == null || end == null) return false;
-
-        // Determine how many units exist for this room listing.
-        int units = TransactionFileHandler.readRoomsFromFile().stream()
-                .filter(r -> r != null && roomId.equalsIgnoreCase(r.getId()))
-                .map(r -> r.getUnits())
-                .findFirst()
-                .orElse(1);
-        units = Math.max(1, units);
-
-        long overlappingConfirmed = TransactionFileHandler.readBookingsFromFile().stream()
-                .filter(b -> b != null)
-                .filter(b -> roomId.equalsIgnoreCase(b.getRoomId()))
-                .filter(b -> b.getStatus() != null && b.getStatus().equalsIgnoreCase("CONFIRMED"))
-                .filter(b -> start.isBefore(b.getCheckOutDate()) && end.isAfter(b.getCheckInDate()))
-                .count();
-
-        return overlappingConfirmed < units;
+        return isRoomAvailableForDatesExcludingBooking(roomId, null, start, end);
     }
 
     /**
-     * Returns how many units are still available for the given date range (CONFIRMED bookings only).
+     * Returns how many units are still free on the busiest night of the given date range (CONFIRMED bookings only).
      */
     public int getRemainingUnitsForDates(String roomId, LocalDate start, LocalDate end) {
         if (roomId == null || start == null || end == null) return 0;
 
-        int units = TransactionFileHandler.readRoomsFromFile().stream()
-                .filter(r -> r != null && roomId.equalsIgnoreCase(r.getId()))
-                .map(r -> r.getUnits())
-                .findFirst()
-                .orElse(1);
-        units = Math.max(1, units);
-
-        long overlappingConfirmed = TransactionFileHandler.readBookingsFromFile().stream()
-                .filter(b -> b != null)
-                .filter(b -> roomId.equalsIgnoreCase(b.getRoomId()))
-                .filter(b -> b.getStatus() != null && b.getStatus().equalsIgnoreCase("CONFIRMED"))
-                .filter(b -> start.isBefore(b.getCheckOutDate()) && end.isAfter(b.getCheckInDate()))
-                .count();
-
-        int remaining = (int) (units - overlappingConfirmed);
-        return Math.max(0, remaining);
+        int taken = TransactionFileHandler.peakConfirmedBookings(roomId, start, end, null);
+        return Math.max(0, unitsOf(roomId) - taken);
     }
 
 
@@ -227,22 +193,13 @@ public class GuestBookingService {
     public boolean isRoomAvailableForDatesExcludingBooking(String roomId, String excludeBookingId, LocalDate start, LocalDate end) {
         if (roomId == null || start == null || end == null) return false;
 
-        int units = TransactionFileHandler.readRoomsFromFile().stream()
-                .filter(r -> r != null && roomId.equalsIgnoreCase(r.getId()))
-                .map(r -> r.getUnits())
-                .findFirst()
-                .orElse(1);
-        units = Math.max(1, units);
-
-        long overlappingConfirmed = TransactionFileHandler.readBookingsFromFile().stream()
-                .filter(b -> b != null)
-                .filter(b -> excludeBookingId == null || !excludeBookingId.equalsIgnoreCase(b.getBookingId()))
-                .filter(b -> roomId.equalsIgnoreCase(b.getRoomId()))
-                .filter(b -> b.getStatus() != null && b.getStatus().equalsIgnoreCase("CONFIRMED"))
-                .filter(b -> start.isBefore(b.getCheckOutDate()) && end.isAfter(b.getCheckInDate()))
-                .count();
-
-        return overlappingConfirmed < units;
+        return TransactionFileHandler.peakConfirmedBookings(roomId, start, end, excludeBookingId) < unitsOf(roomId);
+    }
+
+    /** How many units exist for this room listing (at least 1). */
+    private static int unitsOf(String roomId) {
+        Room room = TransactionFileHandler.findRoomById(roomId);
+        return Math.max(1, room == null ? 1 : room.getUnits());
     }
 
     public String getLastError() {
@@ -264,37 +221,51 @@ public class GuestBookingService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Same as {@link #getBookingsByGuestName(String)}, limited to check-in dates in [from, to]
+     * (either may be null). Only the booking months that can match are read.
+     */
+    public List<Booking> getBookingsByGuestName(String guestName, LocalDate from, LocalDate to) {
+        if (from == null && to == null) return getBookingsByGuestName(guestName);
+        if (guestName == null) return List.of();
+        String q = guestName.trim().toLowerCase();
+        if (q.isEmpty()) return List.of();
+
+        return TransactionFileHandler.readBookingsForRange(from, to == null ? null : to.plusDays(1))
+                .stream()
+                .filter(b -> b.getGuestName() != null && b.getGuestName().toLowerCase().contains(q))
+                .filter(b -> from == null || !b.getCheckInDate().isBefore(from))
+                .filter(b -> to == null || !b.getCheckInDate().isAfter(to))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get a booking by its ID.
      */
     public Booking getBookingById(String bookingId) {
         if (bookingId == null) return null;
-        return TransactionFileHandler.readBookingsFromFile()
-                .stream()
-                .filter(b -> bookingId.equalsIgnoreCase(b.getBookingId()))
-                .findFirst()
-                .orElse(null);
+        return TransactionFileHandler.findBookingById(bookingId);
     }
 
     /**
      * Cancel a booking and make its room available again.
      */
     public boolean cancelBooking(String bookingId) {
+        LAST_ERROR.set("Booking not found.");
         if (bookingId == null || bookingId.isBlank()) return false;
 
-        List<Booking> all = TransactionFileHandler.readBookingsFromFile();
-        Booking target = null;
-        for (Booking b : all) {
-            if (bookingId.equalsIgnoreCase(b.getBookingId())) {
-                target = b;
-                break;
-            }
-        }
+        Booking target = getBookingById(bookingId);
         if (target == null) return false;
-
-        target.setStatus("CANCELLED");
-        TransactionFileHandler.updateBooking(target);
-        return true;
+        try {
+            boolean cancelled = TransactionFileHandler.updateBookingStatus(bookingId, "CANCELLED");
+            if (cancelled) LAST_ERROR.set(null);
+            return cancelled;
+        } catch (UncheckedIOException e) {
+            // The data folder could not be locked (another terminal stuck?); nothing was written.
+            System.err.println("Error saving booking: " + e.getMessage());
+            LAST_ERROR.set(DATA_BUSY);
+            return false;
+        }
     }
 
     /**
@@ -302,6 +273,7 @@ public class GuestBookingService {
      * Recomputes total price and updates the latest payment amount for this booking.
      */
     public boolean rescheduleBooking(String bookingId, LocalDate newCheckIn, LocalDate newCheckOut, int newGuests) {
+        LAST_ERROR.set(null);
         if (bookingId == null || bookingId.isBlank()) {
             LAST_ERROR.set("Missing booking ID.");
             return false;
@@ -312,52 +284,61 @@ public class GuestBookingService {
             LAST_ERROR.set("Booking not found.");
             return false;
         }
-        if (target.getStatus() == null || !target.getStatus().equalsIgnoreCase("CONFIRMED")) {
-            LAST_ERROR.set("Only CONFIRMED bookings can be rescheduled.");
-            return false;
-        }
-        if (newCheckIn == null || newCheckOut == null || !newCheckOut.isAfter(newCheckIn)) {
-            LAST_ERROR.set("Invalid dates. Check-out must be after check-in.");
-            return false;
-        }
-        if (newCheckIn.isBefore(LocalDate.now())) {
-            LAST_ERROR.set("Check-in date cannot be in the past.");
-            return false;
-        }
+        // The store re-checks the status and the new dates under the data-folder lock, so a
+        // concurrent booking or cancel (here or on another terminal) cannot slip in between.
+        try {
+            if (target.getStatus() == null || !target.getStatus().equalsIgnoreCase("CONFIRMED")) {
+                LAST_ERROR.set("Only CONFIRMED bookings can be rescheduled.");
+                return false;
+            }
+            if (newCheckIn == null || newCheckOut == null || !newCheckOut.isAfter(newCheckIn)) {
+                LAST_ERROR.set("Invalid dates. Check-out must be after check-in.");
+                return false;
+            }
+            if (newCheckIn.isBefore(LocalDate.now())) {
+                LAST_ERROR.set("Check-in date cannot be in the past.");
+                return false;
+            }
 
-        Room room = getRoomById(target.getRoomId());
-        if (room == null) {
-            LAST_ERROR.set("Room not found.");
-            return false;
-        }
-        if (!room.isAvailable()) {
-            LAST_ERROR.set("This room is currently unavailable.");
-            return false;
-        }
-        if (newGuests <= 0 || newGuests > room.getCapacity()) {
-            LAST_ERROR.set("Guest count must be between 1 and " + room.getCapacity() + ".");
-            return false;
-        }
+            Room room = getRoomById(target.getRoomId());
+            if (room == null) {
+                LAST_ERROR.set("Room not found.");
+                return false;
+            }
+            if (!room.isAvailable()) {
+                LAST_ERROR.set("This room is currently unavailable.");
+                return false;
+            }
+            if (newGuests <= 0 || newGuests > room.getCapacity()) {
+                LAST_ERROR.set("Guest count must be between 1 and " + room.getCapacity() + ".");
+                return false;
+            }
 
-        if (!isRoomAvailableForDatesExcludingBooking(room.getId(), target.getBookingId(), newCheckIn, newCheckOut)) {
-            LAST_ERROR.set("Room is already booked for the selected dates.");
-            return false;
-        }
+            long nights = java.time.temporal.ChronoUnit.DAYS.between(newCheckIn, newCheckOut);
+            if (nights <= 0) {
+                LAST_ERROR.set("Invalid stay length.");
+                return false;
+            }
+            double total = room.getPricePerNight() * nights;
+
+            // Changed copy: the stored booking stays as it is if the new dates no longer fit.
+            Booking updated = new Booking(target.getBookingId(), target.getGuestName(), target.getRoomId(),
+                    newCheckIn, newCheckOut, newGuests, total, target.getStatus());
+            if (!TransactionFileHandler.updateBookingIfAvailable(updated, Math.max(1, room.getUnits()))) {
+                Booking now = getBookingById(bookingId);
+                LAST_ERROR.set(now == null || !"CONFIRMED".equalsIgnoreCase(now.getStatus())
+                        ? "Only CONFIRMED bookings can be rescheduled."
+                        : "Room is already booked for the selected dates.");
+                return false;
+            }
+            TransactionFileHandler.updateLatestPaymentAmountForBooking(target.getBookingId(), total);
 
-        long nights = java.time.temporal.ChronoUnit.DAYS.between(newCheckIn, newCheckOut);
-        if (nights <= 0) {
-            LAST_ERROR.set("Invalid stay length.");
+            return true;
+        } catch (UncheckedIOException e) {
+            // The data folder could not be locked (another terminal stuck?); nothing was written.
+            System.err.println("Error saving booking: " + e.getMessage());
+            LAST_ERROR.set(DATA_BUSY);
             return false;
         }
-        double total = room.getPricePerNight() * nights;
-
-        target.setCheckInDate(newCheckIn);
-        target.setCheckOutDate(newCheckOut);
-        target.setNumberOfGuests(newGuests);
-        target.setTotalPrice(total);
-        TransactionFileHandler.updateBooking(target);
-        TransactionFileHandler.updateLatestPaymentAmountForBooking(target.getBookingId(), total);
-
-        return true;
     }
 }
@@ -0,0 +1,127 @@
+package guest.service;
+
+import common.filehandler.TransactionFileHandler;
+import common.model.Review;
+import common.model.Room;
+import common.service.ReviewService;
+import common.util.ThumbnailCache;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms what the room details dialog needs while the guest is still pointing at a card.
+ *
+ * When a card is hovered or focused for {@link #HOVER_DELAY_MS}, the room's reviews, its free units
+ * for the searched dates and its large picture are loaded on a background thread. Sweeping the
+ * mouse across the grid only ever leaves the last card's load pending. The dialog then asks
+ * {@link #reviews} and {@link #remainingUnits}, which answer from the prefetched values while the
+ * reviews / bookings they came from are unchanged, and compute them as before otherwise.
+ */
+public final class RoomDetailsPrefetcher {
+    public static final int IMAGE_WIDTH = 420;
+    public static final int IMAGE_HEIGHT = 250;
+    private static final long HOVER_DELAY_MS = 150;
+    private static final int CACHED_ROOMS = 32;
+
+    private record Reviews(List<Review> reviews, long revision) {}
+
+    private record Units(LocalDate checkIn, LocalDate checkOut, int remaining, long bookingsRevision, long roomsRevision) {}
+
+    private static final Map<String, Reviews> REVIEWS = lru();
+    private static final Map<String, Units> UNITS = lru();
+    private static final GuestBookingService BOOKINGS = new GuestBookingService();
+
+    private static ScheduledExecutorService worker;
+    private static ScheduledFuture<?> pending;
+    private static String pendingRoom;
+
+    private RoomDetailsPrefetcher() {}
+
+    /**
+     * The guest is pointing at {@code room}; warm its details for these dates (either may be null)
+     * unless they point elsewhere within {@link #HOVER_DELAY_MS}.
+     */
+    public static synchronized void prefetch(Room room, LocalDate checkIn, LocalDate checkOut) {
+        if (room == null || room.getId() == null) return;
+        String id = room.getId();
+        if (pending != null && !pending.isDone()) {
+            if (id.equals(pendingRoom)) return;
+            pending.cancel(false);
+        }
+        if (worker == null) {
+            worker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "details-prefetch");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        pendingRoom = id;
+        pending = worker.schedule(() -> load(room, checkIn, checkOut), HOVER_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** The pointer left {@code room} before its prefetch started; skip it. */
+    public static synchronized void cancel(Room room) {
+        if (room == null || room.getId() == null || pending == null) return;
+        if (room.getId().equals(pendingRoom)) pending.cancel(false);
+    }
+
+    /** Reviews of the room, newest first; see {@link ReviewService#getReviewsForRoom}. */
+    public static List<Review> reviews(String roomId) {
+        long revision = ReviewService.revision();
+        synchronized (RoomDetailsPrefetcher.class) {
+            Reviews cached = REVIEWS.get(roomId);
+            if (cached != null && cached.revision() == revision) return cached.reviews();
+        }
+        List<Review> reviews = List.copyOf(ReviewService.getReviewsForRoom(roomId));
+        synchronized (RoomDetailsPrefetcher.class) {
+            REVIEWS.put(roomId, new Reviews(reviews, revision));
+        }
+        return reviews;
+    }
+
+    /** Units of the room still free for the stay; see {@link GuestBookingService#getRemainingUnitsForDates}. */
+    public static int remainingUnits(String roomId, LocalDate checkIn, LocalDate checkOut) {
+        long bookings = TransactionFileHandler.bookingsRevision();
+        long rooms = TransactionFileHandler.roomsRevision();
+        synchronized (RoomDetailsPrefetcher.class) {
+            Units cached = UNITS.get(roomId);
+            if (cached != null && cached.checkIn().equals(checkIn) && cached.checkOut().equals(checkOut)
+                    && cached.bookingsRevision() == bookings && cached.roomsRevision() == rooms) {
+                return cached.remaining();
+            }
+        }
+        int remaining = BOOKINGS.getRemainingUnitsForDates(roomId, checkIn, checkOut);
+        synchronized (RoomDetailsPrefetcher.class) {
+            UNITS.put(roomId, new Units(checkIn, checkOut, remaining, bookings, rooms));
+        }
+        return remaining;
+    }
+
+    private static void load(Room room, LocalDate checkIn, LocalDate checkOut) {
+        try {
+            reviews(room.getId());
+            if (checkIn != null && checkOut != null && checkOut.isAfter(checkIn)) {
+                remainingUnits(room.getId(), checkIn, checkOut);
+            }
+            if (room.getImagePath() != null) ThumbnailCache.get(room.getImagePath(), IMAGE_WIDTH, IMAGE_HEIGHT);
+        } catch (RuntimeException e) {
+            System.err.println("Error prefetching room " + room.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private static <V> Map<String, V> lru() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > CACHED_ROOMS;
+            }
+        };
+    }
+}
@@ -0,0 +1,141 @@
+package guest.service;
+
+import common.model.Room;
+
+import java.util.*;
+
+/**
+ * Facets of the room catalog as bitsets over catalog positions (the same positions as
+ * {@link DestinationIndex}), so combined filters are bitset intersections.
+ *
+ * <ul>
+ *   <li>price: positions sorted by nightly price; a price range is two binary searches</li>
+ *   <li>rating: one cumulative set per tenth of a star ("4.5 and up")</li>
+ *   <li>capacity: one cumulative set per guest count ("sleeps 3 or more")</li>
+ *   <li>amenities: one set per amenity, matched case-insensitively</li>
+ * </ul>
+ *
+ * Immutable once built; {@link RoomSearchEngine} builds a new one when the rooms change.
+ */
+final class RoomFacetIndex {
+    private static final int RATING_STEPS = 50; // tenths of a star, 0.0 .. 5.0
+
+    private final int size;
+    private final int[] byPrice;          // catalog positions, cheapest first
+    private final double[] sortedPrices;  // price of byPrice[i]
+    private final BitSet[] ratingAtLeast = new BitSet[RATING_STEPS + 1];
+    private final BitSet[] capacityAtLeast;
+    private final Map<String, BitSet> amenities = new HashMap<>();
+    private final Map<String, String> amenityNames = new TreeMap<>(); // key -> display name, sorted
+
+    RoomFacetIndex(List<Room> catalog) {
+        size = catalog.size();
+
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> catalog.get(i).getPricePerNight()));
+        byPrice = new int[size];
+        sortedPrices = new double[size];
+        for (int i = 0; i < size; i++) {
+            byPrice[i] = order[i];
+            sortedPrices[i] = catalog.get(order[i]).getPricePerNight();
+        }
+
+        int maxCapacity = 1;
+        for (Room r : catalog) maxCapacity = Math.max(maxCapacity, r.getCapacity());
+        capacityAtLeast = new BitSet[maxCapacity + 1];
+        for (int c = 0; c <= maxCapacity; c++) capacityAtLeast[c] = new BitSet(size);
+        for (int t = 0; t <= RATING_STEPS; t++) ratingAtLeast[t] = new BitSet(size);
+
+        for (int i = 0; i < size; i++) {
+            Room r = catalog.get(i);
+            int tenths = (int) Math.floor(Math.max(0, Math.min(5, r.getRating())) * 10 + 1e-9);
+            for (int t = 0; t <= tenths; t++) ratingAtLeast[t].set(i);
+            for (int c = 0; c <= Math.max(0, r.getCapacity()); c++) capacityAtLeast[c].set(i);
+            if (r.getAmenities() != null) {
+                for (String a : r.getAmenities()) {
+                    if (a == null || a.isBlank()) continue;
+                    String k = key(a);
+                    amenities.computeIfAbsent(k, x -> new BitSet(size)).set(i);
+                    amenityNames.putIfAbsent(k, a.trim());
+                }
+            }
+        }
+    }
+
+    /** Every catalog position. */
+    BitSet all() {
+        BitSet out = new BitSet(size);
+        out.set(0, size);
+        return out;
+    }
+
+    /** Narrows {@code positions} (in place) to rooms matching {@code filters} and sleeping {@code guests}. */
+    void retain(BitSet positions, RoomSearchEngine.Filters filters, int guests) {
+        if (guests > 0) {
+            if (guests >= capacityAtLeast.length) {
+                positions.clear();
+                return;
+            }
+            positions.and(capacityAtLeast[guests]);
+        }
+        if (filters == null) return;
+        if (filters.minPrice() > 0 || filters.maxPrice() < Double.MAX_VALUE) {
+            positions.and(priceBetween(filters.minPrice(), filters.maxPrice()));
+        }
+        if (filters.minRating() > 0) {
+            int tenths = (int) Math.ceil(filters.minRating() * 10 - 1e-9);
+            if (tenths > RATING_STEPS) {
+                positions.clear();
+            } else {
+                positions.and(ratingAtLeast[tenths]);
+            }
+        }
+        for (String a : filters.amenities()) {
+            BitSet set = amenities.get(key(a));
+            if (set == null) {
+                positions.clear();
+                return;
+            }
+            positions.and(set);
+        }
+    }
+
+    /**
+     * For each amenity (display name, A-Z), how many of {@code positions} have it.
+     * Amenities no room in {@code positions} has are left out.
+     */
+    Map<String, Integer> amenityCounts(BitSet positions) {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        BitSet scratch = new BitSet(size);
+        for (Map.Entry<String, String> e : amenityNames.entrySet()) {
+            scratch.clear();
+            scratch.or(amenities.get(e.getKey()));
+            scratch.and(positions);
+            int n = scratch.cardinality();
+            if (n > 0) out.put(e.getValue(), n);
+        }
+        return out;
+    }
+
+    /** Rooms priced within [min, max]. */
+    private BitSet priceBetween(double min, double max) {
+        BitSet out = new BitSet(size);
+        for (int i = lowerBound(min); i < size && sortedPrices[i] <= max; i++) out.set(byPrice[i]);
+        return out;
+    }
+
+    /** First index in sortedPrices with a price >= {@code price}. */
+    private int lowerBound(double price) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedPrices[mid] < price) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static String key(String amenity) {
+        return amenity.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,202 @@
+package guest.service;
+
+import common.filehandler.TransactionFileHandler;
+import common.model.Room;
+import common.service.FavoritesService;
+import common.service.ReviewService;
+import common.util.SettingsStore;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * "Recommended" order for room lists.
+ *
+ * Every room has a precomputed score, a weighted sum of signals scaled to 0..1:
+ * <ul>
+ *   <li>reviews: guest reviews averaged with a prior, so 5 stars from one review does not beat 4.7
+ *       from fifty; the catalog rating stands in for rooms without reviews</li>
+ *   <li>popularity: CONFIRMED room-nights from a month ago up to the inventory horizon</li>
+ *   <li>favorites: how many guests saved the room</li>
+ *   <li>price: how far below (or above) the median nightly price of its location the room is</li>
+ * </ul>
+ * Each signal is recomputed only when its data changes, e.g. a new booking only refreshes
+ * popularity. At query time the only new signal is availability for the searched dates (share of
+ * units still free), so ranking is a score lookup per room and a sort.
+ *
+ * Weights can be tuned in settings.properties ({@code ranking.weight.reviews} etc.).
+ */
+public final class RoomRanker {
+    private static final double REVIEW_PRIOR_COUNT = 5;
+    private static final double DEFAULT_MEAN_RATING = 4.0;
+
+    // Signals by upper-cased room id, each with the revision of the data it came from.
+    private static Map<String, Double> reviews = Map.of();
+    private static Map<String, Double> popularity = Map.of();
+    private static Map<String, Double> favorites = Map.of();
+    private static Map<String, Double> price = Map.of();
+    private static long roomsAt = -1, reviewsAt = -1, bookingsAt = -1, favoritesAt = -1;
+
+    // Weighted sum of the signals above; rebuilt when any of them changed.
+    private static Map<String, Double> base = Map.of();
+
+    private RoomRanker() {}
+
+    /**
+     * {@code rooms} best first. With stay dates, rooms with more units free for the stay rank
+     * higher; ties keep the incoming order.
+     */
+    public static List<Room> rank(List<Room> rooms, LocalDate checkIn, LocalDate checkOut) {
+        Map<String, Double> scores = baseScores();
+        boolean dated = checkIn != null && checkOut != null && checkOut.isAfter(checkIn);
+        Map<String, Integer> taken = dated ? TransactionFileHandler.peakConfirmedBookingsByRoom(checkIn, checkOut) : Map.of();
+        double wAvailability = weight("availability", 0.10);
+
+        double[] score = new double[rooms.size()];
+        Integer[] order = new Integer[rooms.size()];
+        for (int i = 0; i < rooms.size(); i++) {
+            Room r = rooms.get(i);
+            String k = key(r.getId());
+            double free;
+            if (!r.isAvailable()) {
+                free = 0;
+            } else if (dated) {
+                int units = Math.max(1, r.getUnits());
+                free = Math.max(0, units - taken.getOrDefault(k, 0)) / (double) units;
+            } else {
+                free = 1;
+            }
+            score[i] = scores.getOrDefault(k, 0.0) + wAvailability * free;
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(score[b], score[a]));
+        List<Room> out = new ArrayList<>(rooms.size());
+        for (Integer i : order) out.add(rooms.get(i));
+        return out;
+    }
+
+    /** Per-room score without availability, refreshing the signals whose data changed. */
+    private static synchronized Map<String, Double> baseScores() {
+        boolean changed = false;
+        long roomsNow = TransactionFileHandler.roomsRevision();
+        List<Room> catalog = null;
+        if (roomsNow != roomsAt) {
+            catalog = TransactionFileHandler.readRoomsFromFile();
+            price = priceSignal(catalog);
+            roomsAt = roomsNow;
+            reviewsAt = -1; // the catalog ratings feed the review signal
+            changed = true;
+        }
+        long reviewsNow = ReviewService.revision();
+        if (reviewsNow != reviewsAt) {
+            if (catalog == null) catalog = TransactionFileHandler.readRoomsFromFile();
+            reviews = reviewSignal(catalog);
+            reviewsAt = reviewsNow;
+            changed = true;
+        }
+        long bookingsNow = TransactionFileHandler.bookingsRevision();
+        if (bookingsNow != bookingsAt) {
+            popularity = logScaled(TransactionFileHandler.confirmedNightsByRoom());
+            bookingsAt = bookingsNow;
+            changed = true;
+        }
+        long favoritesNow = FavoritesService.revision();
+        if (favoritesNow != favoritesAt) {
+            favorites = logScaled(FavoritesService.countsByRoom());
+            favoritesAt = favoritesNow;
+            changed = true;
+        }
+        if (changed) base = combine();
+        return base;
+    }
+
+    private static Map<String, Double> combine() {
+        double wReviews = weight("reviews", 0.35);
+        double wPopularity = weight("popularity", 0.25);
+        double wFavorites = weight("favorites", 0.10);
+        double wPrice = weight("price", 0.20);
+        Map<String, Double> out = new HashMap<>(price.size() * 2);
+        for (String k : price.keySet()) {
+            out.put(k, wReviews * reviews.getOrDefault(k, 0.0)
+                    + wPopularity * popularity.getOrDefault(k, 0.0)
+                    + wFavorites * favorites.getOrDefault(k, 0.0)
+                    + wPrice * price.getOrDefault(k, 0.0));
+        }
+        return out;
+    }
+
+    /** Review average pulled towards the catalog-wide mean by {@link #REVIEW_PRIOR_COUNT} reviews, over 5. */
+    private static Map<String, Double> reviewSignal(List<Room> catalog) {
+        double sum = 0;
+        int n = 0;
+        double[] avg = new double[catalog.size()];
+        int[] count = new int[catalog.size()];
+        for (int i = 0; i < catalog.size(); i++) {
+            Room r = catalog.get(i);
+            ReviewService.Stats stats = ReviewService.getStatsForRoom(r.getId());
+            if (stats.count() > 0) {
+                avg[i] = stats.avg();
+                count[i] = stats.count();
+            } else {
+                avg[i] = r.getRating();
+                count[i] = r.getRating() > 0 ? Math.max(0, r.getReviewCount()) : 0;
+            }
+            if (count[i] > 0) {
+                sum += avg[i];
+                n++;
+            }
+        }
+        double mean = n == 0 ? DEFAULT_MEAN_RATING : sum / n;
+        Map<String, Double> out = new HashMap<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            double blended = (avg[i] * count[i] + mean * REVIEW_PRIOR_COUNT) / (count[i] + REVIEW_PRIOR_COUNT);
+            out.put(key(catalog.get(i).getId()), Math.max(0, Math.min(1, blended / 5)));
+        }
+        return out;
+    }
+
+    /** 0.5 at the location's median price, towards 1 when cheaper and 0 when twice the median or more. */
+    private static Map<String, Double> priceSignal(List<Room> catalog) {
+        Map<String, List<Double>> byLocation = new HashMap<>();
+        for (Room r : catalog) {
+            if (r.getPricePerNight() > 0) byLocation.computeIfAbsent(location(r), x -> new ArrayList<>()).add(r.getPricePerNight());
+        }
+        Map<String, Double> median = new HashMap<>();
+        for (Map.Entry<String, List<Double>> e : byLocation.entrySet()) {
+            List<Double> prices = e.getValue();
+            Collections.sort(prices);
+            int m = prices.size() / 2;
+            median.put(e.getKey(), prices.size() % 2 == 1 ? prices.get(m) : (prices.get(m - 1) + prices.get(m)) / 2);
+        }
+        Map<String, Double> out = new HashMap<>();
+        for (Room r : catalog) {
+            Double med = median.get(location(r));
+            double s = med == null || med <= 0 ? 0.5 : 0.5 + 0.5 * (med - r.getPricePerNight()) / med;
+            out.put(key(r.getId()), Math.max(0, Math.min(1, s)));
+        }
+        return out;
+    }
+
+    /** log(1 + n) scaled so the largest count is 1. */
+    private static Map<String, Double> logScaled(Map<String, Integer> counts) {
+        int max = 0;
+        for (int c : counts.values()) max = Math.max(max, c);
+        Map<String, Double> out = new HashMap<>();
+        if (max <= 0) return out;
+        double top = Math.log1p(max);
+        for (Map.Entry<String, Integer> e : counts.entrySet()) out.put(e.getKey(), Math.log1p(e.getValue()) / top);
+        return out;
+    }
+
+    private static double weight(String signal, double fallback) {
+        return Math.max(0, SettingsStore.getRawDouble("ranking.weight." + signal, fallback));
+    }
+
+    private static String location(Room r) {
+        return r.getLocation() == null ? "" : r.getLocation().trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(String id) {
+        return id == null ? "" : id.toUpperCase(Locale.ROOT);
+    }
+}
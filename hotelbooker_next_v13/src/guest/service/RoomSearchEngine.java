@@ -0,0 +1,259 @@
+package guest.service;
+
+import common.filehandler.TransactionFileHandler;
+import common.model.Room;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Room search by destination, stay dates, party size and filters.
+ *
+ * The destination is resolved against a {@link DestinationIndex} of the catalog, and price,
+ * rating, capacity and amenity filters against a {@link RoomFacetIndex}; both are rebuilt when
+ * the rooms change. A query is a few bitset intersections, not a scan of every room's fields.
+ * The destination index also feeds typeahead, the facet index the live amenity counts.
+ * When the destination matches nothing as typed ("Mimai", "Aspn"), a {@link FuzzyIndex} of
+ * hotel, room type and location words supplies the closest rooms instead, closest first (see
+ * {@link #closeness}). Rooms with coordinates
+ * are also in a {@link GeoIndex} for "near a point" and map-area queries.
+ *
+ * With dates, only rooms that are listed and have a unit free on every night of the stay are
+ * returned. Occupancy for all candidates comes from one pass over the inventory calendar
+ * ({@link TransactionFileHandler#peakConfirmedBookingsByRoom}), not one lookup per room.
+ *
+ * The indexes are built together and published as one {@link Indexes} snapshot, which queries
+ * read without a lock: its contents never change after the build, and the only lazily filled
+ * cache (DestinationIndex's per-node room sets) is safely published. Only rebuilding is synchronized, and the availability step runs
+ * outside it, so typeahead and amenity counts on the EDT never wait for a search on another thread.
+ */
+public final class RoomSearchEngine {
+
+    /** Typeahead entry: a hotel, location, country, room type or amenity, and how many rooms have it. */
+    public record Suggestion(String text, String kind, int rooms) {}
+
+    /** A room and how far it is from the point searched around. */
+    public record Nearby(Room room, double km) {}
+
+    /**
+     * Filter panel selections: nightly price within [minPrice, maxPrice], catalog rating of at
+     * least {@code minRating} (0 = any) and every one of {@code amenities}.
+     */
+    public record Filters(double minPrice, double maxPrice, double minRating, Set<String> amenities) {
+        public static final Filters NONE = new Filters(0, Double.MAX_VALUE, 0, Set.of());
+
+        public Filters {
+            amenities = amenities == null ? Set.of() : Set.copyOf(amenities);
+        }
+    }
+
+    /**
+     * Indexes of one catalog. {@code version} / {@code revision} are the rooms'
+     * {@link TransactionFileHandler#roomsVersion() version} and
+     * {@link TransactionFileHandler#roomsRevision() revision} they were built at.
+     */
+    private record Indexes(long version, long revision, DestinationIndex destinations, RoomFacetIndex facets,
+                           FuzzyIndex fuzzy, GeoIndex geo) {}
+
+    private static volatile Indexes current;
+
+    /**
+     * Catalog positions passing the query. For a destination that matched nothing as typed,
+     * {@code ranked} holds the fuzzy matches closest first (some may have been filtered out of
+     * {@code matching} since); null otherwise.
+     */
+    private record Candidates(BitSet matching, List<FuzzyIndex.Hit> ranked) {}
+
+    private static final int FUZZY_LIMIT = 50;
+
+    private RoomSearchEngine() {}
+
+    /**
+     * Up to {@code limit} completions for the destination typed so far, most rooms first.
+     * If nothing completes what was typed, completions of its closest spelling.
+     */
+    public static List<Suggestion> suggest(String typed, int limit) {
+        Indexes idx = indexes();
+        List<Suggestion> out = idx.destinations().suggest(typed, limit);
+        if (!out.isEmpty() || !misses(idx, typed)) return out;
+        return idx.destinations().suggest(idx.fuzzy().correct(typed), limit);
+    }
+
+    /**
+     * The closest spelling of {@code destination} when it matches no room as typed, e.g.
+     * "miami" for "Mimai"; null when it matches, is blank or has no close spelling either.
+     */
+    public static String didYouMean(String destination) {
+        Indexes idx = indexes();
+        if (!misses(idx, destination)) return null;
+        String corrected = idx.fuzzy().correct(destination);
+        return corrected.equals(String.join(" ", DestinationIndex.tokenize(destination))) ? null : corrected;
+    }
+
+    /** Searches all rooms; see {@link #search(List, String, LocalDate, LocalDate, int, Filters)}. */
+    public static List<Room> search(String destination, LocalDate checkIn, LocalDate checkOut, int guests) {
+        return search(destination, checkIn, checkOut, guests, Filters.NONE);
+    }
+
+    /** Searches all rooms; see {@link #search(List, String, LocalDate, LocalDate, int, Filters)}. */
+    public static List<Room> search(String destination, LocalDate checkIn, LocalDate checkOut,
+                                    int guests, Filters filters) {
+        Indexes idx = checkedIndexes();
+        Candidates c = candidates(idx, destination, guests, filters);
+        if (c.ranked() == null) return available(idx.destinations().rooms(c.matching()), checkIn, checkOut);
+        List<Room> out = new ArrayList<>();
+        for (FuzzyIndex.Hit h : c.ranked()) {
+            if (c.matching().get(h.position())) out.add(idx.destinations().roomAt(h.position()));
+        }
+        return available(out, checkIn, checkOut);
+    }
+
+    /** Same as below, without filters. */
+    public static List<Room> search(List<Room> rooms, String destination, LocalDate checkIn, LocalDate checkOut, int guests) {
+        return search(rooms, destination, checkIn, checkOut, guests, Filters.NONE);
+    }
+
+    /**
+     * Rooms from {@code rooms} matching the query, in their original order.
+     * Every word of the destination must start a word of the room's hotel name, room type,
+     * location or amenities; if no room has them all, the closest fuzzy matches are used
+     * instead, closest first rather than in the original order. A blank destination matches
+     * every room, missing or inverted dates skip the availability check, and
+     * {@code guests <= 0} skips the capacity check.
+     */
+    public static List<Room> search(List<Room> rooms, String destination, LocalDate checkIn,
+                                    LocalDate checkOut, int guests, Filters filters) {
+        Indexes idx = checkedIndexes();
+        Candidates c = candidates(idx, destination, guests, filters);
+        List<Room> out = new ArrayList<>();
+        for (Room r : rooms) {
+            if (r == null) continue;
+            int position = idx.destinations().positionOf(r.getId());
+            if (position >= 0 && c.matching().get(position)) out.add(r);
+        }
+        if (c.ranked() != null) {
+            Map<Integer, Integer> rank = new HashMap<>();
+            for (FuzzyIndex.Hit h : c.ranked()) rank.put(h.position(), rank.size());
+            out.sort(Comparator.comparingInt(r -> rank.get(idx.destinations().positionOf(r.getId()))));
+        }
+        return available(out, checkIn, checkOut);
+    }
+
+    /**
+     * How many rooms matching the destination, guests and filters have each amenity, e.g.
+     * {@code Pool -> 132}, for the filter panel. Stay dates are not applied.
+     */
+    public static Map<String, Integer> amenityCounts(String destination, int guests, Filters filters) {
+        Indexes idx = indexes();
+        return idx.facets().amenityCounts(candidates(idx, destination, guests, filters).matching());
+    }
+
+    /**
+     * For a destination that matches no room as typed, how close each room found for it instead
+     * is, by room id (higher is closer; rooms matching the same corrected words tie). Empty when
+     * the destination matches as typed or is blank. Lets a list sorted some other way put the
+     * closest rooms first.
+     */
+    public static Map<String, Double> closeness(String destination) {
+        Indexes idx = checkedIndexes();
+        if (!misses(idx, destination)) return Map.of();
+        Map<String, Double> out = new HashMap<>();
+        for (FuzzyIndex.Hit h : idx.fuzzy().rooms(destination, FUZZY_LIMIT)) {
+            out.put(idx.destinations().roomAt(h.position()).getId(), h.score());
+        }
+        return out;
+    }
+
+    /** Rooms within {@code radiusKm} of the point, nearest first. Rooms without coordinates never match. */
+    public static List<Nearby> near(double latitude, double longitude, double radiusKm) {
+        Indexes idx = indexes();
+        List<Nearby> out = new ArrayList<>();
+        for (GeoIndex.Hit h : idx.geo().near(latitude, longitude, radiusKm)) {
+            out.add(new Nearby(idx.destinations().roomAt(h.position()), h.km()));
+        }
+        return out;
+    }
+
+    /**
+     * Rooms inside the latitude/longitude box (e.g. the visible part of a map), in catalog order.
+     * {@code minLon > maxLon} means the box crosses the 180th meridian.
+     */
+    public static List<Room> within(double minLat, double minLon, double maxLat, double maxLon) {
+        Indexes idx = indexes();
+        return idx.destinations().rooms(idx.geo().within(minLat, minLon, maxLat, maxLon));
+    }
+
+    // =============== helpers ===============
+    /** Catalog positions passing the destination, capacity and filter facets. */
+    private static Candidates candidates(Indexes idx, String destination, int guests, Filters filters) {
+        BitSet matching = idx.destinations().match(destination);
+        List<FuzzyIndex.Hit> ranked = null;
+        if (matching == null) {
+            matching = idx.facets().all();
+        } else if (matching.isEmpty()) {
+            ranked = idx.fuzzy().rooms(destination, FUZZY_LIMIT);
+            for (FuzzyIndex.Hit h : ranked) matching.set(h.position());
+        }
+        idx.facets().retain(matching, filters, guests);
+        return new Candidates(matching, ranked);
+    }
+
+    /** True if {@code destination} has words but no room matches them as typed. */
+    private static boolean misses(Indexes idx, String destination) {
+        BitSet matching = idx.destinations().match(destination);
+        return matching != null && matching.isEmpty();
+    }
+
+    /** Keeps rooms that are listed and have a unit free for the stay (all of them without dates). */
+    private static List<Room> available(List<Room> rooms, LocalDate checkIn, LocalDate checkOut) {
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) return rooms;
+        Map<String, Integer> taken = TransactionFileHandler.peakConfirmedBookingsByRoom(checkIn, checkOut);
+        List<Room> out = new ArrayList<>(rooms.size());
+        for (Room r : rooms) {
+            if (!r.isAvailable()) continue;
+            int booked = r.getId() == null ? 0 : taken.getOrDefault(r.getId().toUpperCase(Locale.ROOT), 0);
+            if (booked < Math.max(1, r.getUnits())) out.add(r);
+        }
+        return out;
+    }
+
+    /**
+     * The published indexes, rebuilt first if rooms were committed since. Checking costs no lock,
+     * so the lookups the EDT makes only wait when the catalog really changed.
+     */
+    private static Indexes indexes() {
+        Indexes idx = current;
+        if (idx != null && idx.version() == TransactionFileHandler.roomsVersion()) return idx;
+        return rebuild(false);
+    }
+
+    /** Like {@link #indexes()}, but also notices rooms.txt replaced by hand; for searches, which run off the EDT. */
+    private static Indexes checkedIndexes() {
+        Indexes idx = current;
+        if (idx != null && idx.version() == TransactionFileHandler.roomsVersion()
+                && idx.revision() == TransactionFileHandler.roomsRevision()) {
+            return idx;
+        }
+        return rebuild(true);
+    }
+
+    private static synchronized Indexes rebuild(boolean checkFiles) {
+        // Versions first: a change while building is picked up by the next call.
+        long version = TransactionFileHandler.roomsVersion();
+        long revision = TransactionFileHandler.roomsRevision();
+        Indexes idx = current;
+        if (idx != null && idx.version() == version && (!checkFiles || idx.revision() == revision)) return idx;
+        List<Room> catalog = TransactionFileHandler.readRoomsFromFile();
+        idx = new Indexes(version, revision, new DestinationIndex(catalog), new RoomFacetIndex(catalog),
+                new FuzzyIndex(catalog), new GeoIndex(catalog));
+        current = idx;
+        return idx;
+    }
+}
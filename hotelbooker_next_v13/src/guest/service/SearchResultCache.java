@@ -0,0 +1,102 @@
+package guest.service;
+
+import common.filehandler.TransactionFileHandler;
+import common.service.FavoritesService;
+import common.service.ReviewService;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of search results.
+ *
+ * Each entry records the revision of every data set it was computed from (rooms, bookings,
+ * reviews, favorites), taken before the computation started. A lookup whose recorded revisions
+ * no longer match is a miss, so a booking drops only the results that depended on availability
+ * and a review only those sorted by rating; the rest stay cached.
+ *
+ * Hit and miss counters are kept for tuning the capacity.
+ */
+public final class SearchResultCache<K, V> {
+
+    /** Data a cached result can depend on. */
+    public enum Source { ROOMS, BOOKINGS, REVIEWS, FAVORITES }
+
+    private record Entry<V>(V value, long[] revisions) {}
+
+    private static final long UNUSED = Long.MIN_VALUE;
+
+    private final Map<K, Entry<V>> entries;
+    private long hits;
+    private long misses;
+
+    public SearchResultCache(int capacity) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The cached value for {@code key}, or {@code compute}'s result (then cached) if there is none
+     * or the data in {@code dependsOn} changed since. {@code compute} runs outside the cache lock.
+     */
+    public V computeIfAbsent(K key, Set<Source> dependsOn, Supplier<V> compute) {
+        long[] now = revisions(dependsOn);
+        synchronized (this) {
+            Entry<V> e = entries.get(key);
+            if (e != null && Arrays.equals(e.revisions(), now)) {
+                hits++;
+                return e.value();
+            }
+            misses++;
+        }
+        V value = compute.get();
+        synchronized (this) {
+            entries.put(key, new Entry<>(value, now));
+        }
+        return value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return "SearchResultCache[size=" + entries.size() + ", hits=" + hits + ", misses=" + misses
+                + ", hitRate=" + (total == 0 ? "-" : String.format("%.0f%%", 100.0 * hits / total)) + "]";
+    }
+
+    /** Current revision of each source in {@code dependsOn}; {@link #UNUSED} for the others. */
+    private static long[] revisions(Set<Source> dependsOn) {
+        long[] out = new long[Source.values().length];
+        for (Source s : Source.values()) {
+            out[s.ordinal()] = !dependsOn.contains(s) ? UNUSED : switch (s) {
+                case ROOMS -> TransactionFileHandler.roomsRevision();
+                case BOOKINGS -> TransactionFileHandler.bookingsRevision();
+                case REVIEWS -> ReviewService.revision();
+                case FAVORITES -> FavoritesService.revision();
+            };
+        }
+        return out;
+    }
+}
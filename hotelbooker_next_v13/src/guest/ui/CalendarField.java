@@ -156,7 +156,7 @@ public class CalendarField extends JPanel {
 
             dayBtn.addActionListener(e -> {
                 selectedDay = day;
-                textField.setText(String.format("%02d/%02d/%d", selectedDay, month+1, year));
+                textField.setText(String.format("%02d/%02d/%d", month+1, selectedDay, year)); // mm/dd/yyyy, as the placeholder says
                 calendarDialog.setVisible(false);
                 refreshDays();
             });
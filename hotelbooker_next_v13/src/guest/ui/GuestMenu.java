@@ -3,6 +3,10 @@ package guest.ui;
 
 import common.model.Room;
 import guest.service.GuestBookingService;
+import guest.service.RoomDetailsPrefetcher;
+import guest.service.RoomRanker;
+import guest.service.RoomSearchEngine;
+import guest.service.SearchResultCache;
 import javax.swing.*;
 //import javax.swing.border.*;
 import java.awt.*;
@@ -16,12 +20,23 @@ import common.filehandler.TransactionFileHandler;
 import common.ui.Toast;
 import common.service.ReviewService;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GuestMenu extends JFrame {
     private GuestBookingService bookingService;
-    private JPanel hotelGridPanel;
+    private RoomCardGrid hotelGridPanel;
     private JPanel gridSection;
     private JPanel mainPanel;
     private List<Room> currentRooms;
@@ -29,10 +44,25 @@ public class GuestMenu extends JFrame {
     private boolean onlyFavoritesFilter = false;
     private boolean onlyAvailable = true;
     private String destinationQuery = "";
+    // Stay from the search bar; null dates = no date filter.
+    private LocalDate searchCheckIn;
+    private LocalDate searchCheckOut;
+    private int searchGuests = 1;
+    private RoomSearchEngine.Filters searchFilters = RoomSearchEngine.Filters.NONE;
     private GuestSearchBar searchBar;
     private Navbar navbar;
     private JComboBox<String> sortCombo;
 
+    // Grid refresh pipeline: debounce timer, the query in flight and a sequence number to spot stale results
+    private static final int SEARCH_DEBOUNCE_MS = 120;
+    private static ExecutorService searchExecutor;
+    // Recent grid results; guests tend to flip between the same few searches and toggles
+    private static final SearchResultCache<GridKey, List<Room>> RESULTS = new SearchResultCache<>(32);
+    private Timer refreshTimer;
+    private SwingWorker<GridResult, Void> runningSearch;
+    private long searchSeq;
+    private boolean announceCorrection;
+
     // CardLayout for in-panel navigation
     private CardLayout cardLayout;
     private JPanel contentCards;
@@ -193,11 +223,10 @@ public class GuestMenu extends JFrame {
 
         // Set search listener with null checks
         if (searchBar != null) {
-            searchBar.setSearchListener((destination, checkIn, checkOut, guests) -> {
-                if (destination != null && !destination.trim().isEmpty()) {
-                    handleSearch(destination);
-                }
-            });
+            searchBar.setSearchListener(this::handleSearch);
+            searchBar.setSuggestionProvider(typed -> RoomSearchEngine.suggest(typed, 8));
+            searchBar.setAmenityCountProvider(() -> RoomSearchEngine.amenityCounts(
+                    destinationQuery, searchGuests, filtersFromSearchBar()));
         }
 
         headerPanel.add(searchBar, BorderLayout.SOUTH);
@@ -205,11 +234,69 @@ public class GuestMenu extends JFrame {
         return headerPanel;
     }
 
-    private void handleSearch(String destination) {
+    private void handleSearch(String destination, String checkIn, String checkOut, String guests) {
+        LocalDate in = parseSearchDate(checkIn);
+        LocalDate out = parseSearchDate(checkOut);
+        if (in != null && out != null && !out.isAfter(in)) {
+            Toast.show(this, "Check-out must be after check-in.", Toast.Type.INFO);
+            return;
+        }
+        if (in != null && in.isBefore(LocalDate.now())) {
+            Toast.show(this, "Check-in date cannot be in the past.", Toast.Type.INFO);
+            return;
+        }
         destinationQuery = destination == null ? "" : destination.trim();
+        // A single date means a one-night stay.
+        if (in != null && out == null) out = in.plusDays(1);
+        searchCheckIn = out == null ? null : in;
+        searchCheckOut = in == null ? null : out;
+        searchGuests = parseGuests(guests);
+        searchFilters = filtersFromSearchBar();
+        announceCorrection = true;
         refreshHotelGrid();
     }
 
+    /** Price range, minimum rating ("4.5+") and amenities currently picked in the search bar's filter popup. */
+    private RoomSearchEngine.Filters filtersFromSearchBar() {
+        if (searchBar == null) return RoomSearchEngine.Filters.NONE;
+        double min = parseAmount(searchBar.getMinPrice(), 0);
+        double max = parseAmount(searchBar.getMaxPrice(), Double.MAX_VALUE);
+        double rating = parseAmount(searchBar.getMinRating(), 0);
+        return new RoomSearchEngine.Filters(min, max, rating, searchBar.getAmenities());
+    }
+
+    private static double parseAmount(String text, double fallback) {
+        String number = text == null ? "" : text.replaceAll("[^0-9.]", "");
+        try {
+            return number.isEmpty() ? fallback : Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static final DateTimeFormatter SEARCH_DATE =
+            DateTimeFormatter.ofPattern("MM/dd/uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    /** Search bar date (mm/dd/yyyy); null for the placeholder or anything unparsable. */
+    private static LocalDate parseSearchDate(String text) {
+        if (text == null || text.isBlank()) return null;
+        try {
+            return LocalDate.parse(text.trim(), SEARCH_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /** "1 Guest", "3 Guests", "5+ Guests" -> 1, 3, 5. */
+    private static int parseGuests(String text) {
+        String digits = text == null ? "" : text.replaceAll("[^0-9]", "");
+        try {
+            return digits.isEmpty() ? 1 : Math.max(1, Integer.parseInt(digits));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
     private JPanel createHotelGridSection() {
         gridSection = new JPanel();
         gridSection.setLayout(new BorderLayout());
@@ -265,10 +352,7 @@ public class GuestMenu extends JFrame {
                 "Price: High to Low",
                 "Rating: High to Low"
         });
-        sortCombo.addActionListener(e -> {
-            applySort();
-            refreshHotelGrid();
-        });
+        sortCombo.addActionListener(e -> refreshHotelGrid());
         rightControls.add(sortCombo);
 
         // Refresh button to clear all filters and reload hotels
@@ -279,6 +363,10 @@ public class GuestMenu extends JFrame {
         refreshButton.addActionListener(e -> {
             // Clear search filter
             destinationQuery = "";
+            searchCheckIn = null;
+            searchCheckOut = null;
+            searchGuests = 1;
+            searchFilters = RoomSearchEngine.Filters.NONE;
             // Clear search bar input
             if (searchBar != null) {
                 searchBar.clearFields();
@@ -296,9 +384,7 @@ public class GuestMenu extends JFrame {
 
         gridSection.add(topBar, BorderLayout.NORTH);
 
-        hotelGridPanel = new JPanel();
-        hotelGridPanel.setLayout(new GridLayout(0, 3, 20, 20));
-        hotelGridPanel.setBackground(Color.WHITE);
+        hotelGridPanel = new RoomCardGrid(this::createHotelCard);
         // Ensure grid panel has a minimum size
         hotelGridPanel.setMinimumSize(new Dimension(Integer.MAX_VALUE, 350));
 
@@ -311,11 +397,112 @@ public class GuestMenu extends JFrame {
         return gridSection;
     }
 
-    private List<Room> computeRooms() {
+    /** Everything a grid refresh depends on, captured on the EDT when the query starts. */
+    private record GridQuery(User user, boolean favoritesOnly, boolean favoritesFilter, boolean onlyAvailable,
+                             String destination,
+                             LocalDate checkIn, LocalDate checkOut, int guests,
+                             RoomSearchEngine.Filters filters, String sortMode, boolean announceCorrection) {}
+
+    /** A query reduced to what decides its result, as the key of {@link #RESULTS}. */
+    private record GridKey(String favoritesOf, boolean favoritesOnly, boolean favoritesFilter, boolean onlyAvailable,
+                           String destination, LocalDate checkIn, LocalDate checkOut, int guests,
+                           RoomSearchEngine.Filters filters, String sortMode) {
+        static GridKey of(GridQuery q) {
+            boolean favorites = q.favoritesOnly() || q.favoritesFilter();
+            String email = favorites && q.user() != null && q.user().getEmail() != null
+                    ? q.user().getEmail().trim().toLowerCase(Locale.ROOT) : null;
+            String destination = q.destination() == null ? ""
+                    : q.destination().trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+            return new GridKey(email, q.favoritesOnly(), q.favoritesFilter(), q.onlyAvailable(), destination,
+                    q.checkIn(), q.checkOut(), q.guests(), q.filters(), q.sortMode());
+        }
+    }
+
+    /** Data the result of {@code q} is computed from; a change to anything else keeps it cached. */
+    private static Set<SearchResultCache.Source> dependenciesOf(GridQuery q) {
+        Set<SearchResultCache.Source> out = EnumSet.of(SearchResultCache.Source.ROOMS);
+        if (q.checkIn() != null && q.checkOut() != null) out.add(SearchResultCache.Source.BOOKINGS);
+        if ("Rating: High to Low".equals(q.sortMode())) out.add(SearchResultCache.Source.REVIEWS);
+        if ("Recommended".equals(q.sortMode())) {
+            out.addAll(EnumSet.of(SearchResultCache.Source.BOOKINGS, SearchResultCache.Source.REVIEWS,
+                    SearchResultCache.Source.FAVORITES));
+        }
+        if (q.favoritesOnly() || q.favoritesFilter()) out.add(SearchResultCache.Source.FAVORITES);
+        return out;
+    }
+
+    /** What a finished query hands back to the EDT. */
+    private record GridResult(List<Room> rooms, String correction) {}
+
+    /**
+     * Re-runs the search and shows the result. Calls in quick succession (slider drags, checkbox
+     * clicks) are coalesced; the query runs on the search thread, and a newer query cancels an
+     * older one that has not started and drops the result of one that has.
+     */
+    private void refreshHotelGrid() {
+        if (refreshTimer == null) {
+            refreshTimer = new Timer(SEARCH_DEBOUNCE_MS, e -> startRefresh());
+            refreshTimer.setRepeats(false);
+        }
+        refreshTimer.restart();
+    }
+
+    private void startRefresh() {
+        // safety: if user logged out after toggling "Only favorites"
+        if (onlyFavoritesFilter && !SessionManager.isLoggedIn()) onlyFavoritesFilter = false;
+        GridQuery query = new GridQuery(
+                SessionManager.getCurrentUser(),
+                showingFavorites && SessionManager.isLoggedIn(),
+                onlyFavoritesFilter,
+                onlyAvailable, destinationQuery, searchCheckIn, searchCheckOut, searchGuests, searchFilters,
+                sortCombo == null ? "Recommended" : (String) sortCombo.getSelectedItem(),
+                announceCorrection);
+        announceCorrection = false;
+
+        // Not interrupted: an interrupt would close any file channel the query is reading.
+        if (runningSearch != null) runningSearch.cancel(false);
+        long seq = ++searchSeq;
+        SwingWorker<GridResult, Void> worker = new SwingWorker<>() {
+            @Override
+            protected GridResult doInBackground() {
+                List<Room> rooms = RESULTS.computeIfAbsent(GridKey.of(query), dependenciesOf(query),
+                        () -> List.copyOf(sortRooms(computeRooms(query), query)));
+                String correction = query.announceCorrection() ? RoomSearchEngine.didYouMean(query.destination()) : null;
+                return new GridResult(rooms, correction);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || seq != searchSeq) return;
+                runningSearch = null;
+                try {
+                    showRooms(get(), query);
+                } catch (Exception ex) {
+                    System.err.println("Room search failed: " + ex.getMessage());
+                }
+            }
+        };
+        runningSearch = worker;
+        searchExecutor().execute(worker);
+    }
+
+    /** One background thread for searches; a query still queued when superseded never runs. */
+    private static synchronized ExecutorService searchExecutor() {
+        if (searchExecutor == null) {
+            searchExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "room-search");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return searchExecutor;
+    }
+
+    private List<Room> computeRooms(GridQuery q) {
         // Base list: either favorites or all rooms
         List<Room> base;
-        if (showingFavorites && SessionManager.isLoggedIn()) {
-            var favIds = FavoritesService.getFavorites(SessionManager.getCurrentUser());
+        if (q.favoritesOnly()) {
+            var favIds = FavoritesService.getFavorites(q.user());
             base = TransactionFileHandler.readRoomsFromFile()
                     .stream()
                     .filter(r -> favIds.contains(r.getId()))
@@ -325,70 +512,67 @@ public class GuestMenu extends JFrame {
         }
 
         // Favorites filter inside search results
-        if (onlyFavoritesFilter) {
-            if (!SessionManager.isLoggedIn()) {
-                // safety: if user logged out after toggle
-                onlyFavoritesFilter = false;
-            } else {
-                var favIds = FavoritesService.getFavorites(SessionManager.getCurrentUser());
-                base = base.stream().filter(r -> favIds.contains(r.getId())).toList();
-            }
+        if (q.favoritesFilter()) {
+            var favIds = FavoritesService.getFavorites(q.user());
+            base = base.stream().filter(r -> favIds.contains(r.getId())).toList();
         }
 
-        // Destination filter
-        String q = destinationQuery == null ? "" : destinationQuery.trim().toLowerCase();
-        if (!q.isEmpty()) {
-            base = base.stream()
-                    .filter(r -> (r.getHotelName() != null && r.getHotelName().toLowerCase().contains(q))
-                            || (r.getLocation() != null && r.getLocation().toLowerCase().contains(q)))
-                    .toList();
-        }
+        // Destination, stay dates, guest count and filters
+        base = RoomSearchEngine.search(base, q.destination(), q.checkIn(), q.checkOut(), q.guests(), q.filters());
 
         // Availability filter
-        if (onlyAvailable) {
+        if (q.onlyAvailable()) {
             base = base.stream().filter(Room::isAvailable).toList();
         }
 
         return base;
     }
 
-    private void applySort() {
-        if (currentRooms == null)
-            return;
-        String mode = sortCombo == null ? "Recommended" : (String) sortCombo.getSelectedItem();
+    /**
+     * Sorts by the chosen mode. For a misspelt destination the closest matches still come first;
+     * the mode only orders rooms that are equally close.
+     */
+    private static List<Room> sortRooms(List<Room> rooms, GridQuery q) {
+        List<Room> sorted = sortByMode(rooms, q);
+        Map<String, Double> closeness = RoomSearchEngine.closeness(q.destination());
+        if (closeness.isEmpty()) return sorted;
+        sorted = new ArrayList<>(sorted);
+        sorted.sort(Comparator.comparingDouble((Room r) -> closeness.getOrDefault(r.getId(), 0.0)).reversed());
+        return sorted;
+    }
+
+    private static List<Room> sortByMode(List<Room> rooms, GridQuery q) {
+        String mode = q.sortMode();
         if (mode == null || mode.equals("Recommended"))
-            return;
+            return RoomRanker.rank(rooms, q.checkIn(), q.checkOut());
 
         // Copy so we don't mutate source list references unexpectedly
-        currentRooms = new ArrayList<>(currentRooms);
+        List<Room> sorted = new ArrayList<>(rooms);
         switch (mode) {
-            case "Price: Low to High" -> currentRooms.sort(Comparator.comparingDouble(Room::getPricePerNight));
+            case "Price: Low to High" -> sorted.sort(Comparator.comparingDouble(Room::getPricePerNight));
             case "Price: High to Low" ->
-                currentRooms.sort(Comparator.comparingDouble(Room::getPricePerNight).reversed());
-            case "Rating: High to Low" -> currentRooms.sort((a, b) -> {
-                var sa = ReviewService.getStatsForRoom(a.getId());
-                var sb = ReviewService.getStatsForRoom(b.getId());
-                double ra = sa.count() > 0 ? sa.avg() : a.getRating();
-                double rb = sb.count() > 0 ? sb.avg() : b.getRating();
-                return Double.compare(rb, ra);
-            });
+                sorted.sort(Comparator.comparingDouble(Room::getPricePerNight).reversed());
+            case "Rating: High to Low" -> {
+                // One lookup per room, not two per comparison.
+                Map<Room, Double> rating = new IdentityHashMap<>();
+                for (Room r : sorted) {
+                    var stats = ReviewService.getStatsForRoom(r.getId());
+                    rating.put(r, stats.count() > 0 ? stats.avg() : r.getRating());
+                }
+                sorted.sort(Comparator.comparingDouble((Room r) -> rating.get(r)).reversed());
+            }
             default -> {
             }
         }
+        return sorted;
     }
 
-    private void refreshHotelGrid() {
-        hotelGridPanel.removeAll();
-
-        // recompute with filters before sorting
-        currentRooms = computeRooms();
+    /** Publishes a finished query on the EDT. */
+    private void showRooms(GridResult result, GridQuery query) {
+        currentRooms = result.rooms();
 
-        // apply sort before painting
-        applySort();
-
-        for (Room room : currentRooms) {
-            hotelGridPanel.add(createHotelCard(room));
-        }
+        // Cards are built as their rows scroll into view
+        hotelGridPanel.setRooms(currentRooms);
 
         // update count label if present
         if (gridSection != null) {
@@ -412,6 +596,11 @@ public class GuestMenu extends JFrame {
             mainPanel.revalidate();
             mainPanel.repaint();
         }
+
+        if (result.correction() != null) {
+            Toast.show(this, "No exact match for \"" + query.destination() + "\". Showing results for \""
+                    + result.correction() + "\".", Toast.Type.INFO);
+        }
     }
 
     private JPanel createHotelCard(Room room) {
@@ -460,14 +649,13 @@ public class GuestMenu extends JFrame {
             public void componentResized(java.awt.event.ComponentEvent e) {
                 imageLabel.setBounds(0, 0, imagePanel.getWidth(), imagePanel.getHeight());
                 // Fit & scale image to panel size
-                imageLabel.setIcon(
-                        ImageUtils.loadAndScale(room.getImagePath(), imagePanel.getWidth(), imagePanel.getHeight()));
+                ImageUtils.loadInto(imageLabel, room.getImagePath(), imagePanel.getWidth(), imagePanel.getHeight());
                 priceTag.setLocation(Math.max(0, imagePanel.getWidth() - 120), 10);
             }
         });
         // initial bounds
         imageLabel.setBounds(0, 0, 400, 180);
-        imageLabel.setIcon(ImageUtils.loadAndScale(room.getImagePath(), 400, 180));
+        ImageUtils.loadInto(imageLabel, room.getImagePath(), 400, 180);
         priceTag.setLocation(280, 10);
         imagePanel.add(priceTag, Integer.valueOf(1));
 
@@ -495,8 +683,14 @@ public class GuestMenu extends JFrame {
                 if (!SessionManager.isLoggedIn())
                     return;
             }
+            boolean wasFav = FavoritesService.isFavorite(SessionManager.getCurrentUser(), room.getId());
             boolean nowFav = FavoritesService.toggle(SessionManager.getCurrentUser(), room.getId());
             refreshHeart.run();
+            if (nowFav == wasFav) {
+                // toggle() returns false both for "removed" and for a failed write
+                Toast.show(this, "Could not save favorites. Please try again.", Toast.Type.ERROR);
+                return;
+            }
             Toast.show(this, nowFav ? "Added to favorites." : "Removed from favorites.", Toast.Type.SUCCESS, 1100);
         });
 
@@ -592,32 +786,62 @@ public class GuestMenu extends JFrame {
 
         cardPanel.add(detailsPanel);
 
-        // Click-to-open details / booking dialog
+        // Click-to-open details / booking dialog (Enter/Space when the card has keyboard focus)
         cardPanel.setCursor(new Cursor(Cursor.HAND_CURSOR));
         cardPanel.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override
             public void mouseClicked(java.awt.event.MouseEvent e) {
-                RoomDetailsDialog dialog = new RoomDetailsDialog(GuestMenu.this, room, bookingService);
-                dialog.setVisible(true);
-                // In case availability changed after booking
-                currentRooms = bookingService.getAllAvailableRooms();
-                refreshHotelGrid();
+                openRoomDetails(room);
             }
 
             @Override
             public void mouseEntered(java.awt.event.MouseEvent e) {
                 cardPanel.setBorder(BorderFactory.createLineBorder(new Color(180, 180, 180), 1));
+                // Likely to be opened next: load its reviews, availability and large image now.
+                RoomDetailsPrefetcher.prefetch(room, searchCheckIn, searchCheckOut);
             }
 
             @Override
             public void mouseExited(java.awt.event.MouseEvent e) {
+                if (!cardPanel.isFocusOwner()) {
+                    cardPanel.setBorder(BorderFactory.createLineBorder(new Color(220, 220, 220), 1));
+                }
+                RoomDetailsPrefetcher.cancel(room);
+            }
+        });
+        cardPanel.setFocusable(true);
+        cardPanel.addFocusListener(new java.awt.event.FocusAdapter() {
+            @Override
+            public void focusGained(java.awt.event.FocusEvent e) {
+                cardPanel.setBorder(BorderFactory.createLineBorder(new Color(180, 180, 180), 1));
+                RoomDetailsPrefetcher.prefetch(room, searchCheckIn, searchCheckOut);
+            }
+
+            @Override
+            public void focusLost(java.awt.event.FocusEvent e) {
                 cardPanel.setBorder(BorderFactory.createLineBorder(new Color(220, 220, 220), 1));
             }
         });
+        cardPanel.addKeyListener(new java.awt.event.KeyAdapter() {
+            @Override
+            public void keyPressed(java.awt.event.KeyEvent e) {
+                if (e.getKeyCode() == java.awt.event.KeyEvent.VK_ENTER || e.getKeyCode() == java.awt.event.KeyEvent.VK_SPACE) {
+                    openRoomDetails(room);
+                }
+            }
+        });
 
         return cardPanel;
     }
 
+    private void openRoomDetails(Room room) {
+        RoomDetailsDialog dialog = new RoomDetailsDialog(this, room, bookingService, searchCheckIn, searchCheckOut);
+        dialog.setVisible(true);
+        // In case availability changed after booking
+        currentRooms = bookingService.getAllAvailableRooms();
+        refreshHotelGrid();
+    }
+
     private void handleAdminModeSwitch() {
         // Open unified Login dialog as modal
         AdminLoginDialog dlg = new AdminLoginDialog(this);
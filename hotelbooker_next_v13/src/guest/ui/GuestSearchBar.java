@@ -1,6 +1,8 @@
 //GuestSearchBar.java - A modern, rounded search card component for hotel booking with filters and calendar input.
 package guest.ui;
 
+import guest.service.RoomSearchEngine;
+
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.event.*;
@@ -8,6 +10,13 @@ import javax.swing.text.*;
 import java.util.regex.*;
 import java.awt.*;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * A modern, rounded search card component for hotel booking.
@@ -22,11 +31,23 @@ public class GuestSearchBar extends JPanel {
     private int guestCount = 1; // single source of truth for guest count
     private JButton searchButton;
     private JButton filterButton;
-    // Filter selections
+    // Top of the price sliders; the max slider there means no upper bound.
+    private static final int PRICE_SLIDER_MAX = 500;
+    // Filter selections ("" = not set)
     private String selectedMinPrice = "";
     private String selectedMaxPrice = "";
     private String selectedMinRating = "Any rating";
+    private final Set<String> selectedAmenities = new LinkedHashSet<>();
+    // Live "amenity -> matching rooms" counts for the filter popup (none when unset).
+    private Supplier<Map<String, Integer>> amenityCountProvider;
     private SearchListener searchListener;
+    private static final String DESTINATION_PLACEHOLDER = "Where are you going?";
+    // Destination typeahead
+    private Function<String, List<RoomSearchEngine.Suggestion>> suggestionProvider;
+    private JPopupMenu suggestionPopup;
+    private DefaultListModel<RoomSearchEngine.Suggestion> suggestionModel;
+    private JList<RoomSearchEngine.Suggestion> suggestionList;
+    private boolean acceptingSuggestion;
 
     public interface SearchListener {
         void onSearch(String destination, String checkIn, String checkOut, String guests);
@@ -53,7 +74,7 @@ public class GuestSearchBar extends JPanel {
         // Destination
         gbc.gridx = 0;
         gbc.weightx = 0.25;
-        add(createInputSection("Destination", "Where are you going?"), gbc);
+        add(createInputSection("Destination", DESTINATION_PLACEHOLDER), gbc);
 
         // Check-in
         gbc.gridx = 1;
@@ -112,7 +133,10 @@ public class GuestSearchBar extends JPanel {
         sectionPanel.add(labelComponent);
         sectionPanel.add(textField);
 
-        if (label.equals("Destination")) destinationField = textField;
+        if (label.equals("Destination")) {
+            destinationField = textField;
+            installTypeahead(textField);
+        }
 
         return sectionPanel;
     }
@@ -311,7 +335,7 @@ public class GuestSearchBar extends JPanel {
             Font labelFont = new Font("Segoe UI", Font.BOLD, 13);
             Font normalFont = new Font("Segoe UI", Font.PLAIN, 13);
 
-            // Filters row: left = Price range (0 - 500) with overlapping sliders, right = Rating
+            // Filters row: left = Price range (0 - 500+) with overlapping sliders, right = Rating
             JPanel filterRow = new JPanel(new BorderLayout(12, 0));
             filterRow.setOpaque(false);
 
@@ -334,8 +358,9 @@ public class GuestSearchBar extends JPanel {
             priceWrapper.setOpaque(false);
             priceWrapper.setBorder(BorderFactory.createEmptyBorder(6, 6, 10, 6));
 
-            int defaultMin = 50;
-            int defaultMax = 300;
+            // Sliders start at their ends, which mean "no bound"; see priceBound.
+            int defaultMin = 0;
+            int defaultMax = PRICE_SLIDER_MAX;
             try {
                 if (!selectedMinPrice.isEmpty()) {
                     String digits = selectedMinPrice.replaceAll("[^0-9]", "");
@@ -347,8 +372,8 @@ public class GuestSearchBar extends JPanel {
                 }
             } catch (NumberFormatException ignored) {}
 
-            JSlider minSlider = new JSlider(0, 500, Math.max(0, Math.min(defaultMin, 500)));
-            JSlider maxSlider = new JSlider(0, 500, Math.max(0, Math.min(defaultMax, 500)));
+            JSlider minSlider = new JSlider(0, PRICE_SLIDER_MAX, Math.max(0, Math.min(defaultMin, PRICE_SLIDER_MAX)));
+            JSlider maxSlider = new JSlider(0, PRICE_SLIDER_MAX, Math.max(0, Math.min(defaultMax, PRICE_SLIDER_MAX)));
             minSlider.setMajorTickSpacing(100);
             maxSlider.setMajorTickSpacing(100);
             minSlider.setPaintTicks(false);
@@ -368,7 +393,7 @@ public class GuestSearchBar extends JPanel {
             JPanel minMaxRow = new JPanel(new BorderLayout());
             minMaxRow.setOpaque(false);
             JLabel minLabel = new JLabel("Min: $" + minSlider.getValue());
-            JLabel maxLabel = new JLabel("Max: $" + maxSlider.getValue());
+            JLabel maxLabel = new JLabel("Max: " + priceLabel(maxSlider.getValue()));
             minLabel.setFont(normalFont);
             maxLabel.setFont(normalFont);
             minMaxRow.add(minLabel, BorderLayout.WEST);
@@ -396,6 +421,44 @@ public class GuestSearchBar extends JPanel {
             filterRow.add(ratingPanel, BorderLayout.EAST);
             content.add(filterRow);
 
+            // Amenities with live counts, e.g. "Pool (132)"; the counts follow the other selections.
+            JPanel amenityGrid = new JPanel(new GridLayout(0, 3, 12, 4));
+            amenityGrid.setOpaque(false);
+            Map<String, JCheckBox> amenityBoxes = new LinkedHashMap<>();
+            Runnable refreshAmenityCounts = () -> {
+                Map<String, Integer> counts = amenityCountProvider == null ? Map.of() : amenityCountProvider.get();
+                for (Map.Entry<String, JCheckBox> en : amenityBoxes.entrySet()) {
+                    en.getValue().setText(en.getKey() + " (" + counts.getOrDefault(en.getKey(), 0) + ")");
+                }
+            };
+            Map<String, Integer> initialCounts = amenityCountProvider == null ? Map.of() : amenityCountProvider.get();
+            Set<String> amenityNames = new LinkedHashSet<>(initialCounts.keySet());
+            amenityNames.addAll(selectedAmenities);
+            for (String amenity : amenityNames) {
+                JCheckBox box = new JCheckBox(amenity + " (" + initialCounts.getOrDefault(amenity, 0) + ")",
+                        selectedAmenities.contains(amenity));
+                box.setOpaque(false);
+                box.setFont(normalFont);
+                box.addActionListener(ae -> {
+                    if (box.isSelected()) selectedAmenities.add(amenity); else selectedAmenities.remove(amenity);
+                    handleSearch();
+                    refreshAmenityCounts.run();
+                });
+                amenityBoxes.put(amenity, box);
+                amenityGrid.add(box);
+            }
+            if (!amenityBoxes.isEmpty()) {
+                content.add(Box.createVerticalStrut(12));
+                JLabel amenityTitle = new JLabel("Amenities:");
+                amenityTitle.setFont(labelFont);
+                amenityTitle.setBorder(BorderFactory.createEmptyBorder(0, 0, 6, 0));
+                JPanel amenityRow = new JPanel(new BorderLayout());
+                amenityRow.setOpaque(false);
+                amenityRow.add(amenityTitle, BorderLayout.NORTH);
+                amenityRow.add(amenityGrid, BorderLayout.CENTER);
+                content.add(amenityRow);
+            }
+
             // Separator between slider/rating and actions
             content.add(Box.createVerticalStrut(12));
             JSeparator sep = new JSeparator();
@@ -405,8 +468,7 @@ public class GuestSearchBar extends JPanel {
             content.add(Box.createVerticalStrut(12));
 
             // initialize displayed range
-            priceValueLabel.setText(" " + common.util.CurrencyUtil.formatNoCents(minSlider.getValue()) +
-                    " - " + common.util.CurrencyUtil.formatNoCents(maxSlider.getValue()));
+            priceValueLabel.setText(" " + priceLabel(minSlider.getValue()) + " - " + priceLabel(maxSlider.getValue()));
 
             ChangeListener sliderChange = new ChangeListener() {
                 @Override
@@ -422,16 +484,16 @@ public class GuestSearchBar extends JPanel {
                             min = max;
                         }
                     }
-                    priceValueLabel.setText(" " + common.util.CurrencyUtil.formatNoCents(min) +
-                            " - " + common.util.CurrencyUtil.formatNoCents(max));
+                    priceValueLabel.setText(" " + priceLabel(min) + " - " + priceLabel(max));
                     minLabel.setText("Min: $" + min);
-                    maxLabel.setText("Max: $" + max);
+                    maxLabel.setText("Max: " + priceLabel(max));
                     // reflect immediately
-                    selectedMinPrice = String.valueOf(min);
-                    selectedMaxPrice = String.valueOf(max);
+                    selectedMinPrice = priceBound(min, 0);
+                    selectedMaxPrice = priceBound(max, PRICE_SLIDER_MAX);
                     if (searchListener != null) {
                         handleSearch();
                     }
+                    refreshAmenityCounts.run();
                 }
             };
 
@@ -462,8 +524,8 @@ public class GuestSearchBar extends JPanel {
 
             apply.addActionListener(ae -> {
                 // capture slider values (they already update live, but ensure stored)
-                selectedMinPrice = String.valueOf(minSlider.getValue());
-                selectedMaxPrice = String.valueOf(maxSlider.getValue());
+                selectedMinPrice = priceBound(minSlider.getValue(), 0);
+                selectedMaxPrice = priceBound(maxSlider.getValue(), PRICE_SLIDER_MAX);
                 selectedMinRating = (String) ratingCombo.getSelectedItem();
                 // update button label to indicate active filter
                 if (selectedMinRating != null && !selectedMinRating.equals("Any rating")) {
@@ -473,6 +535,7 @@ public class GuestSearchBar extends JPanel {
                 }
                 dlg.setVisible(false);
                 dlg.dispose();
+                handleSearch();
             });
 
             cancel.addActionListener(ae -> {
@@ -503,8 +566,9 @@ public class GuestSearchBar extends JPanel {
     private void handleSearch() {
         if (searchListener != null && destinationField != null && checkInField != null 
                 && checkOutField != null && guestsField != null) {
+            String destination = destinationField.getText();
             searchListener.onSearch(
-                    destinationField.getText() != null ? destinationField.getText() : "",
+                    destination != null && !destination.equals(DESTINATION_PLACEHOLDER) ? destination : "",
                     checkInField.getText() != null ? checkInField.getText() : "",
                     checkOutField.getText() != null ? checkOutField.getText() : "",
                     guestsField.getText() != null ? guestsField.getText() : ""
@@ -512,6 +576,116 @@ public class GuestSearchBar extends JPanel {
         }
     }
 
+    /** Suggestion popup under the destination field; arrows pick, Enter accepts (or searches), Esc closes. */
+    private void installTypeahead(JTextField field) {
+        suggestionModel = new DefaultListModel<>();
+        suggestionList = new JList<>(suggestionModel);
+        suggestionList.setFocusable(false);
+        suggestionList.setFont(UIStyles.FONT_PLAIN);
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        suggestionList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (value instanceof RoomSearchEngine.Suggestion sg) {
+                    setText(sg.text() + "   " + sg.kind() + " \u00b7 " + sg.rooms() + (sg.rooms() == 1 ? " room" : " rooms"));
+                }
+                setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+                return this;
+            }
+        });
+        suggestionList.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int i = suggestionList.locationToIndex(e.getPoint());
+                if (i >= 0) acceptSuggestion(field, suggestionModel.get(i));
+            }
+        });
+
+        suggestionPopup = new JPopupMenu();
+        suggestionPopup.setFocusable(false);
+        suggestionPopup.setBorder(new LineBorder(new Color(220, 220, 220)));
+        suggestionPopup.add(suggestionList);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { changed(); }
+            @Override public void removeUpdate(DocumentEvent e) { changed(); }
+            @Override public void changedUpdate(DocumentEvent e) { }
+
+            private void changed() {
+                if (!acceptingSuggestion) SwingUtilities.invokeLater(() -> updateSuggestions(field));
+            }
+        });
+        field.addKeyListener(new java.awt.event.KeyAdapter() {
+            @Override
+            public void keyPressed(java.awt.event.KeyEvent e) {
+                boolean open = suggestionPopup.isVisible() && !suggestionModel.isEmpty();
+                switch (e.getKeyCode()) {
+                    case java.awt.event.KeyEvent.VK_DOWN, java.awt.event.KeyEvent.VK_UP -> {
+                        if (!open) return;
+                        int step = e.getKeyCode() == java.awt.event.KeyEvent.VK_DOWN ? 1 : -1;
+                        int n = suggestionModel.size();
+                        int next = (suggestionList.getSelectedIndex() + step + n) % n;
+                        suggestionList.setSelectedIndex(next);
+                        e.consume();
+                    }
+                    case java.awt.event.KeyEvent.VK_ENTER -> {
+                        RoomSearchEngine.Suggestion picked = open ? suggestionList.getSelectedValue() : null;
+                        if (picked != null) {
+                            acceptSuggestion(field, picked);
+                        } else {
+                            suggestionPopup.setVisible(false);
+                            handleSearch();
+                        }
+                        e.consume();
+                    }
+                    case java.awt.event.KeyEvent.VK_ESCAPE -> suggestionPopup.setVisible(false);
+                    default -> { }
+                }
+            }
+        });
+        field.addFocusListener(new java.awt.event.FocusAdapter() {
+            @Override
+            public void focusLost(java.awt.event.FocusEvent e) {
+                suggestionPopup.setVisible(false);
+            }
+        });
+    }
+
+    private void updateSuggestions(JTextField field) {
+        String typed = field.getText();
+        List<RoomSearchEngine.Suggestion> found = suggestionProvider == null || !field.isFocusOwner()
+                || typed == null || typed.isBlank() || typed.equals(DESTINATION_PLACEHOLDER)
+                ? List.of()
+                : suggestionProvider.apply(typed);
+        if (found.isEmpty()) {
+            suggestionPopup.setVisible(false);
+            return;
+        }
+        suggestionModel.clear();
+        for (RoomSearchEngine.Suggestion sg : found) suggestionModel.addElement(sg);
+        suggestionList.clearSelection();
+        suggestionList.setVisibleRowCount(found.size());
+        suggestionPopup.setPopupSize(Math.max(field.getWidth(), 260), suggestionList.getPreferredScrollableViewportSize().height + 4);
+        if (!suggestionPopup.isVisible() && field.isShowing()) {
+            suggestionPopup.show(field, 0, field.getHeight());
+        } else {
+            suggestionPopup.pack();
+        }
+    }
+
+    private void acceptSuggestion(JTextField field, RoomSearchEngine.Suggestion picked) {
+        acceptingSuggestion = true;
+        try {
+            field.setText(picked.text());
+        } finally {
+            acceptingSuggestion = false;
+        }
+        suggestionPopup.setVisible(false);
+        handleSearch();
+    }
+
     /** Rounded panel background */
     private void applyRoundedBackground() {
         setOpaque(false);
@@ -532,6 +706,22 @@ public class GuestSearchBar extends JPanel {
         this.searchListener = listener;
     }
 
+    /** Source of destination typeahead suggestions (none when unset). */
+    public void setSuggestionProvider(Function<String, List<RoomSearchEngine.Suggestion>> provider) {
+        this.suggestionProvider = provider;
+    }
+
+    /** A slider value as a price filter: "" (no bound) when the slider is at its open end. */
+    private static String priceBound(int value, int openEnd) {
+        return value == openEnd ? "" : String.valueOf(value);
+    }
+
+    /** "$500+" at the top of the slider, which means any price above it too. */
+    private static String priceLabel(int value) {
+        String label = common.util.CurrencyUtil.formatNoCents(value);
+        return value >= PRICE_SLIDER_MAX ? label + "+" : label;
+    }
+
     public String getDestination() { return destinationField != null ? destinationField.getText() : ""; }
     public String getCheckIn() { return checkInField != null ? checkInField.getText() : ""; }
     public String getCheckOut() { return checkOutField != null ? checkOutField.getText() : ""; }
@@ -539,12 +729,23 @@ public class GuestSearchBar extends JPanel {
     public String getMinPrice() { return selectedMinPrice; }
     public String getMaxPrice() { return selectedMaxPrice; }
     public String getMinRating() { return selectedMinRating; }
+    public Set<String> getAmenities() { return new LinkedHashSet<>(selectedAmenities); }
+
+    /** Source of the amenity counts shown in the filter popup. */
+    public void setAmenityCountProvider(Supplier<Map<String, Integer>> provider) {
+        this.amenityCountProvider = provider;
+    }
 
     public void clearFields() {
         if (destinationField != null) destinationField.setText("");
         if (checkInField != null) checkInField.setText("mm/dd/yyyy");
         if (checkOutField != null) checkOutField.setText("mm/dd/yyyy");
-        // reset guest count to default (1 Guest)
+        // reset filters and guest count to default (1 Guest)
+        selectedMinPrice = "";
+        selectedMaxPrice = "";
+        selectedMinRating = "Any rating";
+        selectedAmenities.clear();
+        if (filterButton != null) filterButton.setText("Filters");
         guestCount = 1;
         if (guestsField != null) guestsField.setText(formatGuestsLabel(guestCount));
     }
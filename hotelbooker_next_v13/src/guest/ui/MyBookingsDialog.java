@@ -325,7 +325,7 @@ public class MyBookingsDialog extends JPanel {
             return;
         }
 
-        List<Booking> bookings = service.getBookingsByGuestName(guestName);
+        List<Booking> bookings = service.getBookingsByGuestName(guestName, from, to);
         DateTimeFormatter df = DateTimeFormatter.ISO_LOCAL_DATE;
 
         int shown = 0;
@@ -562,7 +562,7 @@ public class MyBookingsDialog extends JPanel {
                     JOptionPane.INFORMATION_MESSAGE);
             refresh();
         } else {
-            JOptionPane.showMessageDialog(this, "Could not cancel booking (not found).",
+            JOptionPane.showMessageDialog(this, "Could not cancel booking: " + service.getLastError(),
                     "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
@@ -0,0 +1,143 @@
+package guest.ui;
+
+import common.model.Room;
+
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Three-column grid of room cards that only builds the cards it shows.
+ *
+ * The grid is as tall as all rows together, so the scroll bar and wheel work as usual, but it only
+ * holds cards for the rows in view plus {@link #OVERSCAN_ROWS} above and below. Scrolling builds
+ * cards as rows come into view. Recently shown cards are kept for scrolling back. A refresh
+ * therefore costs what is on screen, not the number of results.
+ */
+class RoomCardGrid extends JPanel {
+    private static final int COLUMNS = 3;
+    private static final int GAP = 20;
+    private static final int OVERSCAN_ROWS = 1;
+    private static final int CACHED_CARDS = 60;
+
+    private final Function<Room, ? extends JComponent> cardFactory;
+    private List<Room> rooms = List.of();
+    private int rowHeight = 380; // grows to the tallest card built so far
+
+    // Built cards, least recently shown first.
+    private final Map<Room, JComponent> cards = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Room, JComponent> eldest) {
+            return size() > CACHED_CARDS;
+        }
+    };
+
+    private JViewport viewport;
+    private int shownFirstRow = -1;
+    private int shownLastRow = -1;
+    private final ChangeListener onScroll = e -> {
+        int[] rows = rowsInView();
+        if (rows[0] != shownFirstRow || rows[1] != shownLastRow) {
+            revalidate();
+            repaint();
+        }
+    };
+
+    RoomCardGrid(Function<Room, ? extends JComponent> cardFactory) {
+        super(null);
+        this.cardFactory = cardFactory;
+        setBackground(Color.WHITE);
+    }
+
+    /** Shows {@code rooms} in this order; cards are built as they scroll into view. */
+    void setRooms(List<Room> rooms) {
+        this.rooms = rooms == null ? List.of() : new ArrayList<>(rooms);
+        cards.clear();
+        removeAll();
+        shownFirstRow = -1;
+        shownLastRow = -1;
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int rows = rowCount();
+        // No preferred width: the grid takes whatever width the page gives it, like the old GridLayout.
+        return new Dimension(0, rows == 0 ? 0 : rows * rowHeight + (rows - 1) * GAP);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null) viewport.addChangeListener(onScroll);
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) viewport.removeChangeListener(onScroll);
+        viewport = null;
+        super.removeNotify();
+    }
+
+    /** Places the cards of the rows in view (building missing ones) and drops the rest. */
+    @Override
+    public void doLayout() {
+        int width = getWidth();
+        if (width <= 0 || rooms.isEmpty()) {
+            removeAll();
+            return;
+        }
+        int[] rows = rowsInView();
+        shownFirstRow = rows[0];
+        shownLastRow = rows[1];
+
+        int cardWidth = Math.max(1, (width - (COLUMNS - 1) * GAP) / COLUMNS);
+        int tallest = rowHeight;
+        Set<Component> shown = Collections.newSetFromMap(new IdentityHashMap<>());
+        int to = Math.min(rooms.size(), (rows[1] + 1) * COLUMNS);
+        for (int i = rows[0] * COLUMNS; i < to; i++) {
+            Room room = rooms.get(i);
+            JComponent card = cards.get(room);
+            if (card == null) {
+                card = cardFactory.apply(room);
+                cards.put(room, card);
+                tallest = Math.max(tallest, card.getPreferredSize().height);
+            }
+            if (card.getParent() != this) add(card);
+            int row = i / COLUMNS;
+            card.setBounds((i % COLUMNS) * (cardWidth + GAP), row * (rowHeight + GAP), cardWidth, rowHeight);
+            shown.add(card);
+        }
+        for (Component c : getComponents()) {
+            if (!shown.contains(c)) remove(c);
+        }
+        if (tallest > rowHeight) {
+            rowHeight = tallest;
+            revalidate();
+        }
+    }
+
+    private int rowCount() {
+        return (rooms.size() + COLUMNS - 1) / COLUMNS;
+    }
+
+    /** First and last row to show: the rows overlapping the visible area, plus the overscan. */
+    private int[] rowsInView() {
+        Rectangle view = getVisibleRect();
+        if (view.isEmpty()) view = new Rectangle(0, 0, getWidth(), rowHeight); // not on screen yet
+        int stride = rowHeight + GAP;
+        int first = Math.max(0, view.y / stride - OVERSCAN_ROWS);
+        int last = Math.min(rowCount() - 1, (view.y + view.height) / stride + OVERSCAN_ROWS);
+        return new int[]{first, last};
+    }
+}
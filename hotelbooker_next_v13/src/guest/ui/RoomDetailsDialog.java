@@ -6,6 +6,7 @@ import common.model.Room;
 import common.util.ImageUtils;
 import guest.service.GuestBookingService;
 import guest.service.CartService;
+import guest.service.RoomDetailsPrefetcher;
 import common.session.SessionManager;
 import common.model.User;
 import common.util.PdfReceiptGenerator;
@@ -40,11 +41,22 @@ public class RoomDetailsDialog extends JDialog {
     private JLabel availabilityLabel;
     private JPanel reviewsList;
     private JLabel ratingHeader;
+    private final LocalDate initialCheckIn;
+    private final LocalDate initialCheckOut;
 
     public RoomDetailsDialog(JFrame owner, Room room, GuestBookingService bookingService) {
+        this(owner, room, bookingService, null, null);
+    }
+
+    /** Opens with the stay dates of the current search filled in (both or neither may be null). */
+    public RoomDetailsDialog(JFrame owner, Room room, GuestBookingService bookingService,
+                             LocalDate checkIn, LocalDate checkOut) {
         super(owner, "Room Details", true);
         this.room = room;
         this.bookingService = bookingService;
+        boolean dated = checkIn != null && checkOut != null && checkOut.isAfter(checkIn);
+        this.initialCheckIn = dated ? checkIn : null;
+        this.initialCheckOut = dated ? checkOut : null;
         buildUI();
     }
 
@@ -66,7 +78,7 @@ public class RoomDetailsDialog extends JDialog {
 
         JLabel image = new JLabel();
         image.setAlignmentX(Component.LEFT_ALIGNMENT);
-        image.setIcon(ImageUtils.loadAndScale(room.getImagePath(), 420, 250));
+        ImageUtils.loadInto(image, room.getImagePath(), RoomDetailsPrefetcher.IMAGE_WIDTH, RoomDetailsPrefetcher.IMAGE_HEIGHT);
         image.setBorder(BorderFactory.createLineBorder(new Color(230, 230, 230)));
         left.add(image);
         left.add(Box.createVerticalStrut(14));
@@ -179,6 +191,10 @@ public class RoomDetailsDialog extends JDialog {
 
         checkOut = new JSpinner(new SpinnerDateModel());
         checkOut.setEditor(new JSpinner.DateEditor(checkOut, "yyyy-MM-dd"));
+        if (initialCheckIn != null) {
+            checkIn.setValue(java.sql.Date.valueOf(initialCheckIn));
+            checkOut.setValue(java.sql.Date.valueOf(initialCheckOut));
+        }
         pickOutBtn = new JButton("\uD83D\uDCC5");
         pickOutBtn.setToolTipText("Pick date");
         pickOutBtn.addActionListener(e -> pickDate(false));
@@ -256,6 +272,8 @@ public class RoomDetailsDialog extends JDialog {
         close.setAlignmentX(Component.LEFT_ALIGNMENT);
         close.addActionListener(e -> dispose());
         right.add(close);
+
+        if (initialCheckIn != null) updateAvailabilityAndTotal();
     }
     
     private void addField(JPanel parent, String label, JComponent field) {
@@ -341,7 +359,10 @@ public class RoomDetailsDialog extends JDialog {
                 Toast.show(this, "Please write a short comment.", Toast.Type.WARNING);
                 return;
             }
-            ReviewService.upsert(room.getId(), u.getEmail(), stars, text);
+            if (!ReviewService.upsert(room.getId(), u.getEmail(), stars, text)) {
+                Toast.show(this, "Could not save your review. Please try again.", Toast.Type.ERROR);
+                return;
+            }
             Toast.show(this, "Thanks! Your review was saved.", Toast.Type.SUCCESS, 1200);
             comment.setText("");
             refreshReviews();
@@ -367,7 +388,7 @@ public class RoomDetailsDialog extends JDialog {
             ratingHeader.setText("Rating: " + tag + " (" + cnt + " reviews)");
         }
 
-        java.util.List<Review> reviews = ReviewService.getReviewsForRoom(room.getId());
+        java.util.List<Review> reviews = RoomDetailsPrefetcher.reviews(room.getId());
         if (reviews.isEmpty()) {
             JLabel empty = new JLabel("No reviews yet. Be the first!");
             empty.setForeground(new Color(120, 120, 120));
@@ -434,7 +455,7 @@ public class RoomDetailsDialog extends JDialog {
                 if (in == null || out == null || !out.isAfter(in)) {
                     availabilityLabel.setText("Availability: —");
                 } else {
-                    int remaining = bookingService.getRemainingUnitsForDates(room.getId(), in, out);
+                    int remaining = RoomDetailsPrefetcher.remainingUnits(room.getId(), in, out);
                     availabilityLabel.setText("Availability: " + remaining + " of " + Math.max(1, room.getUnits()) + " unit(s) for selected dates");
                 }
             }
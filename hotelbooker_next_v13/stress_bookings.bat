@@ -0,0 +1,27 @@
+@echo off
+setlocal
+
+rem Books the same few rooms from many threads at once in a throwaway data folder
+rem and fails if any night ends up with more bookings than the room has units.
+rem Arguments (optional): bookings threads rooms days
+
+cd /d %~dp0
+
+set WORK=%TEMP%\hotelbooker-stress-%RANDOM%
+mkdir "%WORK%\run"
+
+echo Compiling...
+dir /s /b src\*.java tools\*.java > "%WORK%\sources.txt"
+javac -encoding UTF-8 -d "%WORK%\classes" @"%WORK%\sources.txt"
+if errorlevel 1 goto :done
+
+echo Running...
+pushd "%WORK%\run"
+java -cp "%WORK%\classes" BookingStress %*
+set RESULT=%ERRORLEVEL%
+popd
+
+:done
+if not defined RESULT set RESULT=1
+rmdir /s /q "%WORK%"
+exit /b %RESULT%
@@ -0,0 +1,21 @@
+#!/usr/bin/env bash
+set -e
+
+# Books the same few rooms from many threads at once in a throwaway data folder
+# and fails if any night ends up with more bookings than the room has units.
+# Arguments (optional): bookings threads rooms days
+
+cd "$(dirname "$0")"
+
+work="$(mktemp -d)"
+trap 'rm -rf "$work"' EXIT
+
+echo "Compiling..."
+find src tools -name "*.java" > "$work/sources.txt"
+javac -encoding UTF-8 -d "$work/classes" @"$work/sources.txt"
+
+echo "Running..."
+mkdir "$work/run"
+classes="$work/classes"
+cd "$work/run"
+java -cp "$classes" BookingStress "$@"
@@ -0,0 +1,165 @@
+import common.filehandler.TransactionFileHandler;
+import common.model.Booking;
+import common.model.Room;
+import guest.service.GuestBookingService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency check for booking, in two parts:
+ * <ul>
+ *   <li>many threads book a few rooms over a few nights at once, then every night of every room is
+ *       counted and the run fails if any has more CONFIRMED bookings than the room has units;</li>
+ *   <li>every thread books its own room at the same time, and the run fails unless every one of
+ *       those bookings went through (bookings of different rooms must not turn each other away).</li>
+ * </ul>
+ *
+ * Runs against the {@code data} folder of the working directory, which must not exist yet; use
+ * {@code stress_bookings.sh} / {@code stress_bookings.bat}, which start it in a fresh temp folder.
+ *
+ * Usage: {@code BookingStress [bookings] [threads] [rooms] [days]} (defaults 4000 32 8 10).
+ */
+public class BookingStress {
+    public static void main(String[] args) throws Exception {
+        int bookings = arg(args, 0, 4000);
+        int threads = arg(args, 1, 32);
+        int roomCount = arg(args, 2, 8);
+        int days = arg(args, 3, 10);
+
+        if (Files.exists(Path.of("data"))) {
+            System.err.println("Refusing to run: " + Path.of("data").toAbsolutePath() + " already exists.");
+            System.exit(2);
+        }
+
+        // Rooms with 1..3 units each, so both the single-unit and the multi-unit paths are contended.
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            Room room = new Room("S" + (i + 1), "Stress Hotel", "Standard Room", "Test City", 100,
+                    0, 0, new String[0], 4, 1 + i % 3, true, "assets/images/city_center.jpg");
+            TransactionFileHandler.saveRoom(room);
+            rooms.add(room);
+        }
+
+        LocalDate base = LocalDate.now().plusDays(30);
+        Random rnd = new Random(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < bookings; i++) {
+            Room room = rooms.get(rnd.nextInt(roomCount));
+            LocalDate in = base.plusDays(rnd.nextInt(days));
+            LocalDate out = in.plusDays(1 + rnd.nextInt(3));
+            String guest = "Guest " + i;
+            tasks.add(pool.submit(() -> {
+                go.await();
+                if (new GuestBookingService().createBooking(guest, room.getId(), in, out, 1, "Cash") != null) {
+                    booked.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long start = System.nanoTime();
+        go.countDown();
+        for (Future<?> f : tasks) {
+            try {
+                f.get();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                System.err.println("Booking thread failed: " + e.getCause());
+            }
+        }
+        pool.shutdown();
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        TransactionFileHandler.checkpoint();
+
+        // Count every night the stays can touch (check-in within days, up to 3 nights).
+        int oversold = 0;
+        List<Booking> all = TransactionFileHandler.readBookingsForRange(base, base.plusDays(days + 3));
+        for (Room room : rooms) {
+            for (int d = 0; d < days + 3; d++) {
+                LocalDate night = base.plusDays(d);
+                int taken = 0;
+                for (Booking b : all) {
+                    if (b.getRoomId().equalsIgnoreCase(room.getId()) && "CONFIRMED".equals(b.getStatus())
+                            && !night.isBefore(b.getCheckInDate()) && night.isBefore(b.getCheckOutDate())) {
+                        taken++;
+                    }
+                }
+                if (taken > room.getUnits()) {
+                    oversold++;
+                    System.out.println("OVERSOLD " + room.getId() + " " + night + ": " + taken + " of " + room.getUnits());
+                }
+            }
+        }
+        int payments = TransactionFileHandler.readPaymentsFromFile().size();
+
+        System.out.println(bookings + " attempts from " + threads + " threads over " + roomCount + " rooms and "
+                + days + " days in " + ms + " ms: " + booked + " booked, " + payments + " payments, "
+                + oversold + " oversold nights");
+
+        int separate = bookEachOwnRoom(threads, base.plusDays(days + 30));
+        int expected = threads * OWN_ROOM_NIGHTS;
+        System.out.println(expected + " bookings of " + threads + " separate rooms at once: " + separate + " booked");
+
+        if (oversold > 0 || failed.get() > 0 || payments != booked.get() || separate != expected) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static final int OWN_ROOM_NIGHTS = 20;
+
+    /**
+     * Each thread books {@link #OWN_ROOM_NIGHTS} single nights of its own one-unit room, all threads
+     * at once. Nothing competes for a unit, so every booking must succeed. Returns how many did.
+     */
+    private static int bookEachOwnRoom(int threads, LocalDate from) throws Exception {
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Room room = new Room("P" + (i + 1), "Stress Hotel", "Single Room", "Test City", 100,
+                    0, 0, new String[0], 1, 1, true, "assets/images/city_center.jpg");
+            TransactionFileHandler.saveRoom(room);
+            rooms.add(room);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (Room room : rooms) {
+            tasks.add(pool.submit(() -> {
+                go.await();
+                for (int n = 0; n < OWN_ROOM_NIGHTS; n++) {
+                    LocalDate in = from.plusDays(n);
+                    if (new GuestBookingService().createBooking("Own " + room.getId(), room.getId(), in, in.plusDays(1), 1, "Cash") != null) {
+                        booked.incrementAndGet();
+                    } else {
+                        System.out.println("REFUSED " + room.getId() + " " + in);
+                    }
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> f : tasks) f.get();
+        pool.shutdown();
+        return booked.get();
+    }
+
+    private static int arg(String[] args, int i, int def) {
+        return args.length > i ? Integer.parseInt(args[i]) : def;
+    }
+}